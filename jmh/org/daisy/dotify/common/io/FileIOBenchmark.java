@@ -0,0 +1,94 @@
+package org.daisy.dotify.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures copying and comparing files and streams using {@link FileIO}.
+ * Divide the size by the score to get the throughput.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class FileIOBenchmark {
+	@Param({"1048576", "268435456"})
+	int bytes;
+
+	private byte[] data;
+	private File f1;
+	private File f2;
+	private File out;
+
+	@Setup
+	public void setup() throws IOException {
+		data = new byte[bytes];
+		new Random(1).nextBytes(data);
+		f1 = Files.createTempFile("benchmark", ".tmp").toFile();
+		f2 = Files.createTempFile("benchmark", ".tmp").toFile();
+		out = Files.createTempFile("benchmark", ".tmp").toFile();
+		Files.write(f1.toPath(), data);
+		Files.write(f2.toPath(), data);
+	}
+
+	@TearDown
+	public void tearDown() {
+		f1.delete();
+		f2.delete();
+		out.delete();
+	}
+
+	@Benchmark
+	public void copyFile() throws IOException {
+		FileIO.copy(new FileInputStream(f1), new FileOutputStream(out));
+	}
+
+	@Benchmark
+	public void copyStream() throws IOException {
+		FileIO.copy(new ByteArrayInputStream(data), new NullOutputStream());
+	}
+
+	@Benchmark
+	public long diffFile() throws IOException {
+		return FileIO.diff(f1, f2);
+	}
+
+	@Benchmark
+	public long diffStream() throws IOException {
+		return FileIO.diff(new ByteArrayInputStream(data), new ByteArrayInputStream(data));
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+			// discard
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			// discard
+		}
+	}
+}
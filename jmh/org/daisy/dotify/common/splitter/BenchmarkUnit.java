@@ -0,0 +1,155 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Provides a split point unit resembling a row of braille text, together
+ * with a generator for flows of such rows.
+ */
+class BenchmarkUnit implements SplitPointUnit {
+	private final boolean breakable, skippable, collapsible;
+	private final float size;
+	private final float lastSize;
+	private final List<String> supplementIds;
+
+	BenchmarkUnit(boolean breakable, boolean skippable, boolean collapsible, float size, float lastSize, List<String> supplementIds) {
+		this.breakable = breakable;
+		this.skippable = skippable;
+		this.collapsible = collapsible;
+		this.size = size;
+		this.lastSize = lastSize;
+		this.supplementIds = supplementIds;
+	}
+
+	@Override
+	public boolean isBreakable() {
+		return breakable;
+	}
+
+	@Override
+	public boolean isSkippable() {
+		return skippable;
+	}
+
+	@Override
+	public boolean isCollapsible() {
+		return collapsible;
+	}
+
+	@Override
+	public boolean collapsesWith(Object obj) {
+		return obj instanceof BenchmarkUnit && ((BenchmarkUnit)obj).collapsible==collapsible;
+	}
+
+	@Override
+	public float getUnitSize() {
+		return size;
+	}
+
+	@Override
+	public float getLastUnitSize() {
+		return lastSize;
+	}
+
+	@Override
+	public List<String> getSupplementaryIDs() {
+		return supplementIds;
+	}
+
+	/**
+	 * Creates a flow of rows. Roughly every fifth row ends a paragraph and is followed
+	 * by a collapsible margin, every fortieth row refers to a note.
+	 * @param size the number of units
+	 * @param seed the random seed
+	 * @param source the type of data source
+	 * @param indexedSupplements true if the notes should be {@link IndexedSupplements}, false otherwise
+	 * @return returns a data source with the flow and the notes as supplements
+	 */
+	static SplitPointDataList<BenchmarkUnit> createFlow(int size, long seed, Source source, boolean indexedSupplements) {
+		return createFlow(size, seed, source, indexedSupplements, 1);
+	}
+
+	/**
+	 * Same as {@link #createFlow(int, long, Source, boolean)}, except that a paragraph is
+	 * followed by a run of collapsible margins, for example where several blocks end at 
+	 * the same row.
+	 * @param size the number of units
+	 * @param seed the random seed
+	 * @param source the type of data source
+	 * @param indexedSupplements true if the notes should be {@link IndexedSupplements}, false otherwise
+	 * @param margins the maximum number of margins after a paragraph
+	 * @return returns a data source with the flow and the notes as supplements
+	 */
+	static SplitPointDataList<BenchmarkUnit> createFlow(int size, long seed, Source source, boolean indexedSupplements, int margins) {
+		Random r = new Random(seed);
+		List<BenchmarkUnit> units = new ArrayList<>(size);
+		Map<String, BenchmarkUnit> notes = new HashMap<>();
+		int note = 0;
+		while (units.size()<size) {
+			int rnd = r.nextInt(40);
+			if (rnd==0) {
+				String id = "note-" + (note++);
+				notes.put(id, new BenchmarkUnit(true, false, false, 1+r.nextInt(3), 1, Collections.emptyList()));
+				units.add(new BenchmarkUnit(r.nextBoolean(), false, false, 1, 1, Collections.singletonList(id)));
+			} else if (rnd<8) {
+				units.add(new BenchmarkUnit(true, false, false, 1, 1, Collections.emptyList()));
+				for (int i=margins>1?r.nextInt(margins)+1:1; i>0 && units.size()<size; i--) {
+					units.add(new BenchmarkUnit(true, true, true, r.nextInt(2)+1, 0, Collections.emptyList()));
+				}
+			} else {
+				units.add(new BenchmarkUnit(r.nextInt(4)>0, false, false, 1, 1, Collections.emptyList()));
+			}
+		}
+		Supplements<BenchmarkUnit> supplements;
+		if (indexedSupplements) {
+			IndexedSupplements.Builder<BenchmarkUnit> builder = IndexedSupplements.<BenchmarkUnit>builder().overhead(1);
+			for (int i=0; i<note; i++) {
+				builder.put("note-" + i, notes.get("note-" + i));
+			}
+			supplements = builder.build();
+		} else {
+			supplements = new Supplements<BenchmarkUnit>() {
+				@Override
+				public BenchmarkUnit get(String id) {
+					return notes.get(id);
+				}
+
+				@Override
+				public double getOverhead() {
+					return 1;
+				}
+			};
+		}
+		switch (source) {
+			case INDEXED:
+				return SplitPointDataList.indexed(units, supplements);
+			case COLUMNAR:
+				return SplitPointDataList.columnar(units, supplements);
+			default:
+				return new SplitPointDataList<>(units, supplements);
+		}
+	}
+
+	/**
+	 * The type of data source to create.
+	 */
+	enum Source {
+		/**
+		 * A plain list.
+		 */
+		LIST,
+		/**
+		 * A list with a size index.
+		 */
+		INDEXED,
+		/**
+		 * A list with a size index and columns.
+		 */
+		COLUMNAR
+	}
+}
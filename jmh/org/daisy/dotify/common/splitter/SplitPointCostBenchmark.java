@@ -0,0 +1,64 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the search for the best split point on a single page, comparing
+ * a cost function that is called once per unit with the batch cost function.
+ * None of the cost functions have a lower bound, so all units on the page
+ * are evaluated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitPointCostBenchmark {
+	@Param({"100", "1000"})
+	int units;
+
+	private SplitPointDataList<BenchmarkUnit> data;
+	private SplitPointCost<BenchmarkUnit> perCall;
+	private SplitPointCost<BenchmarkUnit> batch;
+
+	@Setup
+	public void setup() {
+		data = BenchmarkUnit.createFlow(units, 1, BenchmarkUnit.Source.LIST, false);
+		SplitPointHandler.DefaultCost<BenchmarkUnit> cost = new SplitPointHandler.DefaultCost<>();
+		perCall = (d, index, limit)->cost.getCost(d, index, limit);
+		batch = new BatchSplitPointCost<BenchmarkUnit>() {
+			@Override
+			public double getCost(SplitPointDataSource<BenchmarkUnit, ?> d, int index, int limit) {
+				return cost.getCost(d, index, limit);
+			}
+
+			@Override
+			public void getCosts(SplitPointDataSource<BenchmarkUnit, ?> d, int from, int to, int limit, double[] out) {
+				cost.getCosts(d, from, to, limit, out);
+			}
+		};
+	}
+
+	@Benchmark
+	public Object perCall() {
+		return SplitPointHandler.findBreakpointBefore(data, units-1, perCall);
+	}
+
+	@Benchmark
+	public Object batch() {
+		return SplitPointHandler.findBreakpointBefore(data, units-1, batch);
+	}
+}
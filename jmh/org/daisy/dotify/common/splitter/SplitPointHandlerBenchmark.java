@@ -0,0 +1,342 @@
+package org.daisy.dotify.common.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures pagination of a flow of rows using {@link SplitPointHandler}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitPointHandlerBenchmark {
+	@Param({"10", "1000", "10000", "100000"})
+	int units;
+	@Param({"25"})
+	float pageHeight;
+	@Param({"LIST", "INDEXED", "COLUMNAR"})
+	String source;
+	@Param({"false", "true"})
+	boolean indexedSupplements;
+	// the maximum number of collapsible margins after a paragraph
+	@Param({"1"})
+	int margins;
+
+	private SplitPointDataList<BenchmarkUnit> data;
+	private SplitPointHandler<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> handler;
+	private CachingSplitPointHandler<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> cachingHandler;
+	private SplitPointHandler<BenchmarkUnit, SplitPointDataStream<BenchmarkUnit>> streamHandler;
+	private SplitPointHandler<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> countingHandler;
+	private static final float[] TRIALS = {-2, 2, -1, 1, 0};
+	private float[] candidates;
+	private List<SplitPointDataList<BenchmarkUnit>> segments;
+	private IncrementalPaginator<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> incremental;
+	// the flow with a row inserted in the middle
+	private SplitPointDataList<BenchmarkUnit> edited;
+	private File checkpointDirectory;
+	private SplitPointCheckpoints checkpoints;
+
+	@Setup
+	public void setup() throws IOException {
+		data = BenchmarkUnit.createFlow(units, 1, BenchmarkUnit.Source.valueOf(source), indexedSupplements, margins);
+		handler = new SplitPointHandler<>();
+		cachingHandler = new CachingSplitPointHandler<>();
+		streamHandler = new SplitPointHandler<>();
+		countingHandler = new SplitPointHandler<>();
+		countingHandler.setListener(new SplitPointCounters());
+		// a segment, such as a chapter, starts every 1000 units
+		Set<BenchmarkUnit> boundaries = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<BenchmarkUnit> units = data.getRemaining();
+		for (int i=0; i<units.size(); i+=1000) {
+			boundaries.add(units.get(i));
+		}
+		segments = data.segments(boundaries::contains);
+		List<BenchmarkUnit> rows = new ArrayList<>(units);
+		rows.add(units.size()/2, new BenchmarkUnit(true, false, false, 1, 1, Collections.emptyList()));
+		switch (BenchmarkUnit.Source.valueOf(source)) {
+			case INDEXED:
+				edited = SplitPointDataList.indexed(rows, data.getSupplements());
+				break;
+			case COLUMNAR:
+				edited = SplitPointDataList.columnar(rows, data.getSupplements());
+				break;
+			default:
+				edited = new SplitPointDataList<>(rows, data.getSupplements());
+		}
+		incremental = IncrementalPaginator.builder(data)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build();
+		incremental.paginate(pageHeight);
+		checkpointDirectory = Files.createTempDirectory("checkpoints").toFile();
+		checkpoints = new SplitPointCheckpoints(checkpointDirectory);
+		checkpoints.paginate(data, true, pageHeight, StandardSplitOption.ALLOW_FORCE);
+		candidates = new float[10];
+		for (int i=0; i<candidates.length; i++) {
+			candidates[i] = pageHeight*(i+1)/2;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		for (File f : checkpointDirectory.listFiles()) {
+			f.delete();
+		}
+		checkpointDirectory.delete();
+	}
+
+	/**
+	 * Paginates the entire flow, one page at a time.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void paginate(Blackhole bh) {
+		SplitPointDataList<BenchmarkUnit> tail = data;
+		while (!tail.isEmpty()) {
+			SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> sp = handler.split(pageHeight, tail, StandardSplitOption.ALLOW_FORCE);
+			bh.consume(sp.getHead());
+			tail = SplitPointHandler.<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>trimLeading(sp.getTail()).getTail();
+		}
+	}
+
+	/**
+	 * Same as {@link #paginate(Blackhole)}, with a {@link SplitPointCounters} listener.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void paginateCounted(Blackhole bh) {
+		SplitPointDataList<BenchmarkUnit> tail = data;
+		while (!tail.isEmpty()) {
+			SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> sp = countingHandler.split(pageHeight, tail, StandardSplitOption.ALLOW_FORCE);
+			bh.consume(sp.getHead());
+			tail = SplitPointHandler.<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>trimLeading(sp.getTail()).getTail();
+		}
+	}
+
+	/**
+	 * Same as {@link #paginate(Blackhole)}, reading the units from an iterator
+	 * with a {@link SplitPointDataStream}.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void paginateStream(Blackhole bh) {
+		SplitPointDataStream<BenchmarkUnit> tail = new SplitPointDataStream<>(data.getRemaining().iterator(), data.getSupplements());
+		while (!tail.isEmpty()) {
+			SplitPoint<BenchmarkUnit, SplitPointDataStream<BenchmarkUnit>> sp = streamHandler.split(pageHeight, tail, StandardSplitOption.ALLOW_FORCE);
+			bh.consume(sp.getHead());
+			tail = SplitPointHandler.<BenchmarkUnit, SplitPointDataStream<BenchmarkUnit>>trimLeading(sp.getTail()).getTail();
+		}
+	}
+
+	/**
+	 * Paginates the flow in segments of 1000 units using a {@link ParallelPaginator}.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> paginateSegments() {
+		return ParallelPaginator.builder(segments)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build()
+				.paginate(pageHeight);
+	}
+
+	/**
+	 * Same as {@link #paginateSegments()}, running each segment on the calling thread.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> paginateSegmentsSequential() {
+		return ParallelPaginator.builder(segments)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.executor(Runnable::run)
+				.build()
+				.paginate(pageHeight);
+	}
+
+	/**
+	 * Paginates the entire flow using a {@link Paginator}.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void paginator(Blackhole bh) {
+		Paginator<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> p = Paginator.builder(data)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build();
+		while (p.hasNext()) {
+			bh.consume(p.next(pageHeight).getHead());
+		}
+	}
+
+	/**
+	 * Paginates the entire flow using an {@link OptimalPaginator}.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> optimalPaginator() {
+		return OptimalPaginator.builder(data)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build()
+				.paginate(pageHeight);
+	}
+
+	/**
+	 * Inserts a row in the middle of the flow and removes it again, updating the
+	 * pagination with an {@link IncrementalPaginator} after each edit.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> repaginate() {
+		int index = (edited.getSize(Integer.MAX_VALUE)-1)/2;
+		incremental.update(edited, index, 0, 1);
+		return incremental.update(data, index, 1, 0);
+	}
+
+	/**
+	 * Paginates the entire flow from a checkpoint that was stored by {@link SplitPointCheckpoints}
+	 * during the setup.
+	 * @return returns the split points
+	 * @throws IOException if the checkpoint couldn't be stored
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> paginateFromCheckpoint() throws IOException {
+		return checkpoints.paginate(data, true, pageHeight, StandardSplitOption.ALLOW_FORCE);
+	}
+
+	/**
+	 * Divides the entire flow into 10 parts using a {@link Partitioner}.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> partition() {
+		return Partitioner.builder(data)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build()
+				.partition(10);
+	}
+
+	/**
+	 * Same as {@link #partition()}, paginating the flow with a {@link Paginator} for
+	 * each size that is tried.
+	 * @return returns the split points
+	 */
+	@Benchmark
+	public List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> partitionByPagination() {
+		float low = 0;
+		float high = SplitPointHandler.totalSize(data, Float.MAX_VALUE, true);
+		while (true) {
+			float mid = low+(high-low)/2;
+			if (mid<=low || mid>=high) {
+				break;
+			} else if (paginate(mid, 10).size()<=10) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return paginate(high, Integer.MAX_VALUE);
+	}
+
+	private List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> paginate(float size, int max) {
+		Paginator<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> p = Paginator.builder(data)
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build();
+		List<SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>>> ret = new ArrayList<>();
+		while (p.hasNext() && ret.size()<=max) {
+			SplitPoint<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> sp = p.next(size);
+			ret.add(sp);
+			if (sp.getHead().isEmpty() && sp.getDiscarded().isEmpty()) {
+				// the next unit doesn't fit, which counts as too many pages
+				ret.addAll(Collections.nCopies(max, sp));
+				break;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds the first page break.
+	 * @return returns the specification
+	 */
+	@Benchmark
+	public SplitPointSpecification findFirst() {
+		return handler.find(pageHeight, data, StandardSplitOption.ALLOW_FORCE);
+	}
+
+	/**
+	 * Finds the first page break with several trial page heights, as when
+	 * testing whether a header or a footer fits on the page.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void trialFind(Blackhole bh) {
+		trialFind(bh, handler);
+	}
+
+	/**
+	 * Same as {@link #trialFind(Blackhole)}, using a {@link CachingSplitPointHandler}.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void trialFindCached(Blackhole bh) {
+		trialFind(bh, cachingHandler);
+	}
+
+	private void trialFind(Blackhole bh, SplitPointHandler<BenchmarkUnit, SplitPointDataList<BenchmarkUnit>> h) {
+		// a new data source, so that the cache starts empty
+		SplitPointDataList<BenchmarkUnit> d = data.tail(0);
+		for (float trial : TRIALS) {
+			bh.consume(h.find(pageHeight+trial, d, StandardSplitOption.ALLOW_FORCE));
+		}
+	}
+
+	/**
+	 * Finds the first page break for several candidate page heights, one at a time.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void candidateFind(Blackhole bh) {
+		for (float candidate : candidates) {
+			bh.consume(handler.find(candidate, data, StandardSplitOption.ALLOW_FORCE));
+		}
+	}
+
+	/**
+	 * Same as {@link #candidateFind(Blackhole)}, with all candidates in one call.
+	 * @return returns the specifications
+	 */
+	@Benchmark
+	public List<SplitPointSpecification> candidateFindMulti() {
+		return handler.find(candidates, data, StandardSplitOption.ALLOW_FORCE);
+	}
+
+}
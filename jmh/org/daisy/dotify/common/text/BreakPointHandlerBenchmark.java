@@ -0,0 +1,77 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures breaking a paragraph into rows using {@link BreakPointHandler}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BreakPointHandlerBenchmark {
+	@Param({"100", "10000", "1000000"})
+	int length;
+	@Param({"32"})
+	int rowWidth;
+
+	private String paragraph;
+
+	@Setup
+	public void setup() {
+		paragraph = createParagraph(length, 1);
+	}
+
+	/**
+	 * Creates a paragraph of words separated by spaces, with soft hyphens 
+	 * inside of longer words.
+	 * @param length the length of the paragraph, in chars
+	 * @param seed the random seed
+	 * @return returns the paragraph
+	 */
+	static String createParagraph(int length, long seed) {
+		Random r = new Random(seed);
+		StringBuilder sb = new StringBuilder(length);
+		while (sb.length()<length) {
+			int word = 1+r.nextInt(12);
+			for (int i=0; i<word && sb.length()<length; i++) {
+				if (i>0 && i%3==0 && word-i>2) {
+					sb.append('\u00ad');
+				}
+				sb.append((char)('a'+r.nextInt(26)));
+			}
+			sb.append(' ');
+		}
+		sb.setLength(length);
+		return sb.toString();
+	}
+
+	/**
+	 * Breaks the entire paragraph into rows.
+	 * @param bh the black hole
+	 */
+	@Benchmark
+	public void breakParagraph(Blackhole bh) {
+		BreakPointHandler bph = new BreakPointHandler(paragraph);
+		while (bph.hasNext()) {
+			bh.consume(bph.nextRow(rowWidth, true).getHead());
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures code point lookups in {@link SimpleUCharReplacer}, comparing the
+ * boxed map lookup with the compiled {@link CodePointTable}. The scores are
+ * lookups per second. The estimated footprint of the compiled table is
+ * printed during setup. It also measures {@link SimpleUCharReplacer#replace(String)}
+ * on a text where about 2% of the characters are substituted.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UCharReplacerBenchmark {
+	private static final int LOOKUPS = 10000;
+	@Param({"100", "5000"})
+	int entries;
+
+	private SimpleUCharReplacer replacer;
+	private CodePointTable table;
+	private int[] codePoints;
+	private String text;
+
+	@Setup
+	public void setup() {
+		replacer = createReplacer(entries, 1);
+		text = createText(replacer, LOOKUPS, 0.02, 3);
+		table = replacer.getTable();
+		System.out.println();
+		System.out.println("Entries: " + table.size() + ", table footprint: " + table.getFootprint() + " bytes");
+		Random r = new Random(2);
+		codePoints = new int[LOOKUPS];
+		for (int i=0; i<LOOKUPS; i++) {
+			codePoints[i] = randomCodePoint(r);
+		}
+	}
+
+	/**
+	 * Creates a text of ASCII letters and spaces, where some characters
+	 * have been replaced with characters that have substitutions.
+	 * @param replacer the replacer
+	 * @param length the length of the text
+	 * @param ratio the ratio of characters with substitutions
+	 * @param seed the random seed
+	 * @return returns the text
+	 */
+	static String createText(SimpleUCharReplacer replacer, int length, double ratio, long seed) {
+		Random r = new Random(seed);
+		Integer[] mapped = replacer.keySet().toArray(new Integer[0]);
+		StringBuilder sb = new StringBuilder(length);
+		while (sb.length()<length) {
+			if (r.nextDouble()<ratio) {
+				sb.appendCodePoint(mapped[r.nextInt(mapped.length)]);
+			} else {
+				int c = 'a'+r.nextInt(27);
+				sb.append(c>'z'?' ':(char)c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates a replacer with substitutions for code points that are mostly
+	 * within the Latin blocks above ASCII, but also in other parts of the BMP and in
+	 * the supplementary planes.
+	 * @param entries the number of entries
+	 * @param seed the random seed
+	 * @return returns a new replacer
+	 */
+	static SimpleUCharReplacer createReplacer(int entries, long seed) {
+		Random r = new Random(seed);
+		SimpleUCharReplacer ret = new SimpleUCharReplacer();
+		while (ret.size()<entries) {
+			ret.put(randomCodePoint(r), Integer.toHexString(r.nextInt(0x10000)));
+		}
+		return ret;
+	}
+
+	private static int randomCodePoint(Random r) {
+		int x = r.nextInt(10);
+		if (x<7) {
+			return 0x80 + r.nextInt(0x250-0x80);
+		} else if (x<9) {
+			return 0x250 + r.nextInt(0xD800-0x250);
+		} else {
+			return 0x10000 + r.nextInt(0x10000);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void mapLookup(Blackhole bh) {
+		for (int cp : codePoints) {
+			bh.consume(replacer.get(cp));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public void tableLookup(Blackhole bh) {
+		for (int cp : codePoints) {
+			bh.consume(table.get(cp));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public CharSequence replace() {
+		return replacer.replace(text);
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.daisy.dotify.common.xml;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures encoding detection and parsing of PEF-like files using {@link XMLTools}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class XMLToolsBenchmark {
+	@Param({"1024", "1048576", "104857600"})
+	int bytes;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		data = createPef(bytes);
+	}
+
+	/**
+	 * Creates a PEF-like document of approximately the specified size.
+	 * @param bytes the size, in bytes
+	 * @return returns the document, encoded as UTF-8
+	 */
+	static byte[] createPef(int bytes) {
+		String row = "<row>\u2801\u2803\u2809\u2819\u2811\u280b\u281b\u2813\u280a\u281a\u2805\u2807\u280d\u281d\u2815\u280f</row>\n";
+		String end = "</page></section></volume></body></pef>\n";
+		int rowBytes = row.getBytes(StandardCharsets.UTF_8).length;
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<pef version=\"2008-1\" xmlns=\"http://www.daisy.org/ns/2008/pef\"><body><volume cols=\"32\" rows=\"29\" rowgap=\"0\" duplex=\"true\"><section><page>\n");
+		int size = sb.length()+end.length();
+		for (int rows = 1; size+rowBytes<=bytes; rows++) {
+			sb.append(row);
+			size += rowBytes;
+			if (rows%29==0) {
+				sb.append("</page><page>\n");
+				size += 14;
+			}
+		}
+		sb.append(end);
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String detectXmlEncoding() throws XmlEncodingDetectionException {
+		return XMLTools.detectXmlEncoding(data);
+	}
+
+	@Benchmark
+	public XMLInfo parseXML() throws XMLToolsException {
+		InputSource source = new InputSource(new ByteArrayInputStream(data));
+		source.setSystemId("urn:benchmark");
+		return XMLTools.parseXML(source, false);
+	}
+
+}
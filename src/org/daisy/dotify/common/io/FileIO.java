@@ -1,16 +1,19 @@
 package org.daisy.dotify.common.io;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -24,12 +27,15 @@ import java.util.logging.Logger;
  */
 public class FileIO {
 	private static final Logger logger = Logger.getLogger(FileIO.class.getCanonicalName());
+	private static final int BUFFER_SIZE = 64 * 1024;
 	
 	private FileIO() {}
 
 	/**
 	 * Copies an input stream to an output stream. In Java 9 or later, use 
-	 * <code>is.transferTo(OutputStream)</code>.
+	 * <code>is.transferTo(OutputStream)</code>. If both streams are file 
+	 * streams, the bytes are transferred between the file channels. The
+	 * streams are closed when done.
 	 * 
 	 * @param is
 	 *            the input stream
@@ -42,14 +48,44 @@ public class FileIO {
 	//TODO: @Deprecated 
 	public static void copy(InputStream is, OutputStream os) throws IOException {
 		try (
-			InputStream bis = new BufferedInputStream(is);
-			OutputStream bos = new BufferedOutputStream(os);
+			InputStream in = is;
+			OutputStream out = os;
 		) {
-			int b;
-			while ((b = bis.read()) != -1) {
-				bos.write(b);
+			if (in instanceof FileInputStream && out instanceof FileOutputStream) {
+				copy(((FileInputStream)in).getChannel(), ((FileOutputStream)out).getChannel());
+			} else {
+				byte[] buf = new byte[BUFFER_SIZE];
+				int len;
+				while ((len = in.read(buf)) != -1) {
+					out.write(buf, 0, len);
+				}
+				out.flush();
 			}
-			bos.flush();
+		}
+	}
+
+	/**
+	 * Copies the input channel, from its current position, to the output channel.
+	 * @param in the input channel
+	 * @param out the output channel
+	 * @throws IOException if IO fails
+	 */
+	private static void copy(FileChannel in, FileChannel out) throws IOException {
+		long pos = in.position();
+		long size = in.size();
+		long n;
+		while (pos < size && (n = in.transferTo(pos, size - pos, out)) > 0) {
+			pos += n;
+		}
+		in.position(pos);
+		// copy what remains, if the transfer stopped early or the file has grown 
+		ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		while (in.read(buf) != -1) {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				out.write(buf);
+			}
+			buf.clear();
 		}
 	}
 
@@ -139,21 +175,135 @@ public class FileIO {
 	 */
 	public static long diff(InputStream f1, InputStream f2) throws IOException {
 		try (
-			InputStream bf1 = new BufferedInputStream(f1);
-			InputStream bf2 = new BufferedInputStream(f2)
+			InputStream in1 = f1;
+			InputStream in2 = f2
 		) {
-			int b1;
-			int b2;
+			if (in1 instanceof FileInputStream && in2 instanceof FileInputStream) {
+				return diff(((FileInputStream)in1).getChannel(), ((FileInputStream)in2).getChannel());
+			}
+			byte[] b1 = new byte[BUFFER_SIZE];
+			byte[] b2 = new byte[BUFFER_SIZE];
+			ByteBuffer w1 = ByteBuffer.wrap(b1);
+			ByteBuffer w2 = ByteBuffer.wrap(b2);
 			long pos = 0;
-			while ((b1 = bf1.read()) != -1 & b1 == (b2 = bf2.read())) {
-				pos++;
-				// continue
+			while (true) {
+				int n1 = fill(in1, b1);
+				int n2 = fill(in2, b2);
+				int n = Math.min(n1, n2);
+				int m = mismatch(w1, w2, n);
+				if (m >= 0) {
+					return pos + m;
+				} else if (n1 != n2) {
+					return pos + n;
+				} else if (n < BUFFER_SIZE) {
+					return -1;
+				}
+				pos += n;
 			}
-			if (b1 != -1 || b2 != -1) {
-				return pos;
+		}
+	}
+
+	/**
+	 * Compares the files binary.
+	 * 
+	 * @param f1
+	 *            the first file
+	 * @param f2
+	 *            the second file
+	 * @return returns -1 if the files are equal, byte position where first
+	 *         difference occurred otherwise
+	 * @throws IOException
+	 *             if IO fails
+	 */
+	public static long diff(File f1, File f2) throws IOException {
+		try (
+			FileChannel c1 = FileChannel.open(f1.toPath(), StandardOpenOption.READ);
+			FileChannel c2 = FileChannel.open(f2.toPath(), StandardOpenOption.READ)
+		) {
+			return diff(c1, c2);
+		}
+	}
+
+	/**
+	 * Compares the channels binary, from their current positions.
+	 * @param c1 the first channel
+	 * @param c2 the second channel
+	 * @return returns -1 if the channels are equal, the number of bytes 
+	 * 		before the first difference otherwise
+	 * @throws IOException if IO fails
+	 */
+	private static long diff(FileChannel c1, FileChannel c2) throws IOException {
+		ByteBuffer b1 = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		ByteBuffer b2 = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		long pos = 0;
+		while (true) {
+			int n1 = fill(c1, b1);
+			int n2 = fill(c2, b2);
+			int n = Math.min(n1, n2);
+			int m = mismatch(b1, b2, n);
+			if (m >= 0) {
+				return pos + m;
+			} else if (n1 != n2) {
+				return pos + n;
+			} else if (n < BUFFER_SIZE) {
+				return -1;
+			}
+			pos += n;
+		}
+	}
+
+	/**
+	 * Reads from the input stream until the buffer is full or the end of the 
+	 * stream is reached.
+	 * @param in the input stream
+	 * @param buf the buffer
+	 * @return returns the number of bytes read
+	 * @throws IOException if IO fails
+	 */
+	private static int fill(InputStream in, byte[] buf) throws IOException {
+		int len = 0;
+		int n;
+		while (len < buf.length && (n = in.read(buf, len, buf.length - len)) != -1) {
+			len += n;
+		}
+		return len;
+	}
+
+	/**
+	 * Reads from the channel until the buffer is full or the end of the 
+	 * channel is reached.
+	 * @param in the channel
+	 * @param buf the buffer
+	 * @return returns the number of bytes read
+	 * @throws IOException if IO fails
+	 */
+	private static int fill(FileChannel in, ByteBuffer buf) throws IOException {
+		buf.clear();
+		while (buf.hasRemaining() && in.read(buf) != -1) {
+			// continue
+		}
+		return buf.position();
+	}
+
+	/**
+	 * Finds the first byte that differs in the specified buffers,
+	 * comparing eight bytes at a time.
+	 * @param b1 the first buffer
+	 * @param b2 the second buffer
+	 * @param len the number of bytes to compare, from index 0
+	 * @return returns the index of the first difference, or -1 if there is none 
+	 */
+	static int mismatch(ByteBuffer b1, ByteBuffer b2, int len) {
+		int i = 0;
+		while (i + 8 <= len && b1.getLong(i) == b2.getLong(i)) {
+			i += 8;
+		}
+		for (; i < len; i++) {
+			if (b1.get(i) != b2.get(i)) {
+				return i;
 			}
-			return -1;
 		}
+		return -1;
 	}
 	
 	/**
@@ -0,0 +1,28 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Provides a cost function that can evaluate the cost of a range of
+ * split points in one call. When a cost function implements this interface,
+ * the split point handler uses {@link #getCosts(SplitPointDataSource, int, int, int, double[])}
+ * instead of calling {@link #getCost(SplitPointDataSource, int, int)} for
+ * each unit.
+ * 
+ * @param <T> the type of split point unit
+ */
+public interface BatchSplitPointCost<T extends SplitPointUnit> extends SplitPointCost<T> {
+
+	/**
+	 * Computes the cost of breaking after each of the units in the specified range.
+	 * The result must be the same as calling {@link #getCost(SplitPointDataSource, int, int)}
+	 * for each index.
+	 * 
+	 * @param units the units
+	 * @param from the index of the first unit, inclusive
+	 * @param to the index of the last unit, exclusive
+	 * @param limit the maximum length to consider
+	 * @param out the array to store the costs in, where the cost for the unit at
+	 * 		index <code>from+i</code> is stored at index <code>i</code>
+	 */
+	public void getCosts(SplitPointDataSource<T, ?> units, int from, int to, int limit, double[] out);
+
+}
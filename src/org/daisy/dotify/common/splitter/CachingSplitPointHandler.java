@@ -0,0 +1,140 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides a split point handler that remembers how far it has measured
+ * the units of recently used data sources. This is useful when the same data
+ * source is split several times with different break points, for example
+ * when testing whether additional content fits on a page, before the data
+ * source is actually split.</p>
+ *
+ * <p>Data sources are identified by identity, and a call with a break point
+ * that is within the measured units is answered without measuring them again.
+ * Otherwise, the measuring continues from where it stopped. The backward search
+ * for the best split point is performed for every call, since it depends on the
+ * cost function.</p>
+ *
+ * <p>The units are always measured one at a time, which means that a size index
+ * provided by the data source isn't used. Since data sources are expected to be
+ * immutable, the cached measurements are never invalidated, but the least
+ * recently used data source is evicted when the cache is full.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public class CachingSplitPointHandler<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> extends SplitPointHandler<T, U> {
+	private static final int DEFAULT_CACHE_SIZE = 4;
+	private final Map<Key, SizeMeasurements<T>> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a new handler that remembers the measurements of the four most
+	 * recently used data sources.
+	 */
+	public CachingSplitPointHandler() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a new handler that remembers the measurements of the specified
+	 * number of data sources.
+	 * @param maxSize the maximum number of data sources
+	 * @throws IllegalArgumentException if the maximum size is less than one
+	 */
+	public CachingSplitPointHandler(int maxSize) {
+		if (maxSize<1) {
+			throw new IllegalArgumentException("Cache size must be at least one: " + maxSize);
+		}
+		this.entries = new LinkedHashMap<Key, SizeMeasurements<T>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -2479519862707862406L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, SizeMeasurements<T>> eldest) {
+				return size()>maxSize;
+			}
+		};
+	}
+
+	@Override
+	SplitPointSpecification find(float breakPoint, U data, SplitPointSizeIndex index, SplitPointCost<T> cost, SplitOptions opts, SplitPointEvent event) {
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		if (data.isEmpty()) {
+			// pretty simple...
+			return SplitPointSpecification.empty();
+		} else if (breakPoint<=0) {
+			return SplitPointSpecification.none();
+		}
+		return find(breakPoint, data, getMeasurements(data, opts.useLastUnitSize), cost, opts, event);
+	}
+
+	@Override
+	SizeMeasurements<T> getMeasurements(U data, boolean useLastUnitSize) {
+		Key key = new Key(data, useLastUnitSize);
+		synchronized (entries) {
+			SizeMeasurements<T> ret = entries.get(key);
+			if (ret!=null) {
+				hits.incrementAndGet();
+			} else {
+				misses.incrementAndGet();
+				ret = new SizeMeasurements<>(data, useLastUnitSize);
+				entries.put(key, ret);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Gets the number of calls where the data source was found in the cache.
+	 * Calls that return a split point specification of type {@link Type#EMPTY}
+	 * or {@link Type#NONE} without measuring any units are not counted, and a call
+	 * with several break points is counted once.
+	 * @return returns the number of hits
+	 */
+	public long getCacheHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of calls where the data source wasn't found in the cache.
+	 * @return returns the number of misses
+	 * @see #getCacheHits()
+	 */
+	public long getCacheMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Identifies a data source by identity.
+	 */
+	private static class Key {
+		private final Object data;
+		private final boolean useLastUnitSize;
+
+		private Key(Object data, boolean useLastUnitSize) {
+			this.data = data;
+			this.useLastUnitSize = useLastUnitSize;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(data)*31+(useLastUnitSize?1:0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+			return data==other.data && useLastUnitSize==other.useLastUnitSize;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Walks the units of a data source, one at a time, and passes them to a step.
+ * Collapsible units are held back until it is known whether they collapse with
+ * the following unit, in which case only the largest of them is included.
+ *
+ * <p>If the data source has {@link UnitColumns}, the collapse groups that were
+ * computed with the columns are used. While the pending unit is the largest unit
+ * of such a group, the units that collapse with it are discarded without being
+ * compared, and a call to {@link #next()} examines all units up to the next unit
+ * that replaces it.</p>
+ *
+ * @param <T> the type of split point units
+ */
+class CollapseScanner<T extends SplitPointUnit> {
+	private final SplitPointDataSource<T, ?> data;
+	private final SplitPointColumns columns;
+	private final UnitColumns groups;
+	private final StepForward<T> impl;
+	// the index of the last unit that has been examined
+	private int position = -1;
+	// the index of the pending collapsible unit, or -1
+	private int maxCollapsable = -1;
+	// true if the pending collapsible unit is the largest unit of a collapse group so far
+	private boolean grouped = false;
+	// the number of units that have been discarded
+	private int discarded = 0;
+
+	/**
+	 * Creates a new scanner.
+	 * @param data the data
+	 * @param impl the step, created for the same data
+	 */
+	CollapseScanner(SplitPointDataSource<T, ?> data, StepForward<T> impl) {
+		this.data = data;
+		this.columns = DataSourceColumns.of(data);
+		this.groups = columns instanceof UnitColumns?(UnitColumns)columns:null;
+		this.impl = impl;
+	}
+
+	/**
+	 * Examines the next unit. If no collapsible unit is pending, the step may
+	 * include several units at once, see {@link StepForward#skip(int)}. If the
+	 * pending unit is the largest unit of a collapse group, the units that
+	 * collapse with it are discarded at once.
+	 * @return returns true if a unit was examined, false if there are no more units
+	 */
+	boolean next() {
+		int i = position+1;
+		if (!data.hasElementAt(i)) {
+			return false;
+		}
+		if (maxCollapsable<0) {
+			int next = impl.skip(i);
+			if (next>i) {
+				position = next-1;
+				i = next;
+				if (!data.hasElementAt(i)) {
+					return false;
+				}
+			}
+		} else if (grouped) {
+			i = nextInGroup(i);
+			if (i<0) {
+				return true;
+			}
+		}
+		if (columns.isCollapsible(i)) {
+			addCollapsible(i);
+		} else {
+			if (maxCollapsable>=0) {
+				impl.addUnit(maxCollapsable);
+				maxCollapsable = -1;
+			}
+			impl.addUnit(i);
+		}
+		position = i;
+		return true;
+	}
+
+	private void addCollapsible(int i) {
+		if (maxCollapsable>=0) {
+			if (data.get(maxCollapsable).collapsesWith(data.get(i))) {
+				if (columns.getUnitSize(maxCollapsable)<columns.getUnitSize(i)) {
+					//new one is now max, add the previous to collapsed
+					impl.addDiscarded(maxCollapsable);
+					discarded++;
+					maxCollapsable = i;
+				} else {
+					//old one is max, add the new one to collapsed
+					impl.addDiscarded(i);
+					discarded++;
+				}
+				return;
+			}
+			impl.addUnit(maxCollapsable);
+		}
+		maxCollapsable = i;
+		grouped = groups!=null && groups.isGroupStart(i);
+	}
+
+	/**
+	 * Discards the units that collapse with the pending unit, up to the next unit that
+	 * is larger. If that unit is in the same group, it replaces the pending unit.
+	 * Otherwise, the pending unit is included.
+	 * @param i the index of the next unit
+	 * @return returns the index of the next unit to examine, or -1 if the units have
+	 * 		already been examined
+	 */
+	private int nextInGroup(int i) {
+		int next = groups.getNextChange(maxCollapsable);
+		for (; i<next && data.hasElementAt(i); i++) {
+			impl.addDiscarded(i);
+			discarded++;
+		}
+		if (!data.hasElementAt(i)) {
+			position = i-1;
+			return -1;
+		} else if (columns.isCollapsible(i) && !groups.isGroupStart(i)) {
+			// a larger unit in the same group
+			impl.addDiscarded(maxCollapsable);
+			discarded++;
+			maxCollapsable = i;
+			position = i;
+			return -1;
+		} else {
+			// the end of the group
+			impl.addUnit(maxCollapsable);
+			maxCollapsable = -1;
+			grouped = false;
+			return i;
+		}
+	}
+
+	/**
+	 * Gets the index of the last unit that has been examined.
+	 * @return returns the index, or -1 if no unit has been examined
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the index of the pending collapsible unit.
+	 * @return returns the index, or -1 if there is no pending unit
+	 */
+	int getPending() {
+		return maxCollapsable;
+	}
+
+	/**
+	 * Gets the number of units that have been discarded because they
+	 * collapsed with a larger unit.
+	 * @return returns the number of units
+	 */
+	int getDiscardedCount() {
+		return discarded;
+	}
+
+	/**
+	 * Includes the pending collapsible unit, if any.
+	 */
+	void finish() {
+		if (maxCollapsable>=0) {
+			impl.addUnit(maxCollapsable);
+			maxCollapsable = -1;
+			grouped = false;
+		}
+	}
+}
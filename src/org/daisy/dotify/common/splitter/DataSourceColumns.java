@@ -0,0 +1,64 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Provides split point columns that read the attributes from the units
+ * of a data source. This is used for data sources that don't provide
+ * columns of their own.
+ */
+final class DataSourceColumns implements SplitPointColumns {
+	private final SplitPointDataSource<?, ?> data;
+
+	private DataSourceColumns(SplitPointDataSource<?, ?> data) {
+		this.data = data;
+	}
+
+	/**
+	 * Gets the columns of the specified data source, or columns that
+	 * read from the units if the data source doesn't provide any.
+	 * @param data the data source
+	 * @return returns the columns
+	 */
+	static SplitPointColumns of(SplitPointDataSource<?, ?> data) {
+		return data.getColumns().orElseGet(()->new DataSourceColumns(data));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Note that this requires all units of the data source to be computed.
+	 */
+	@Override
+	public int getUnitCount() {
+		return data.getSize(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isBreakable(int index) {
+		return data.get(index).isBreakable();
+	}
+
+	@Override
+	public boolean isSkippable(int index) {
+		return data.get(index).isSkippable();
+	}
+
+	@Override
+	public boolean isCollapsible(int index) {
+		return data.get(index).isCollapsible();
+	}
+
+	@Override
+	public boolean hasSupplementaryIDs(int index) {
+		return SizeIndex.hasSupplements(data.get(index));
+	}
+
+	@Override
+	public float getUnitSize(int index) {
+		return data.get(index).getUnitSize();
+	}
+
+	@Override
+	public float getLastUnitSize(int index) {
+		return data.get(index).getLastUnitSize();
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+
+/**
+ * Records the units that are discarded because they collapse with a larger unit,
+ * in the order that they are discarded. The included units aren't recorded.
+ *
+ * @param <T> the type of split point units
+ */
+class DiscardStep<T extends SplitPointUnit> implements StepForward<T> {
+	private static final int[] EMPTY = new int[0];
+	private int[] discarded = EMPTY;
+	private int count = 0;
+
+	@Override
+	public void addUnit(int index) {
+		//Nothing to do
+	}
+
+	@Override
+	public boolean overflows(int buffer) {
+		return false;
+	}
+
+	@Override
+	public void addDiscarded(int index) {
+		if (count==discarded.length) {
+			discarded = Arrays.copyOf(discarded, Math.max(8, count*2));
+		}
+		discarded[count++] = index;
+	}
+
+	/**
+	 * Gets the indexes of the discarded units. Only the first
+	 * {@link #getCount()} entries are used.
+	 * @return returns the indexes
+	 */
+	int[] getDiscarded() {
+		return discarded;
+	}
+
+	/**
+	 * Gets the number of discarded units.
+	 * @return returns the number of units
+	 */
+	int getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+
+/**
+ * Provides a size index that is extended as units are measured. Units are
+ * identified by their position in the original data source, but they are read
+ * from the data source that is current when the index is extended. Entries before
+ * the current position can be released.
+ */
+final class GrowingSizeIndex {
+	private double[] sizeBefore;
+	private int[] irregular;
+	private int irregularStart;
+	private int irregularEnd;
+	private int[] supplementary;
+	private int supplementaryStart;
+	private int supplementaryEnd;
+	// the position of sizeBefore[0]
+	private int base;
+	// the number of measured units, from the start of the original data source
+	private int measured;
+
+	GrowingSizeIndex() {
+		this.sizeBefore = new double[64];
+		this.irregular = new int[16];
+		this.supplementary = new int[16];
+		this.irregularStart = 0;
+		this.irregularEnd = 0;
+		this.supplementaryStart = 0;
+		this.supplementaryEnd = 0;
+		this.base = 0;
+		this.measured = 0;
+	}
+
+	/**
+	 * Measures units until the size of the units from the specified position exceeds
+	 * the limit, or until there are no more units.
+	 * @param data the data source, starting at the specified position
+	 * @param position the position of the data source
+	 * @param limit the limit
+	 */
+	void measure(SplitPointDataSource<?, ?> data, int position, double limit) {
+		while (measured<position) {
+			// the units have been skipped without being measured, since only the
+			// difference between two positions is used, they can be given any size
+			ensureCapacity();
+			sizeBefore[measured-base+1] = sizeBefore[measured-base];
+			measured++;
+		}
+		double start = sizeBefore[position-base];
+		while (sizeBefore[measured-base]-start<=limit && data.hasElementAt(measured-position)) {
+			add(data.get(measured-position));
+		}
+	}
+
+	private void ensureCapacity() {
+		if (measured-base+1>=sizeBefore.length) {
+			sizeBefore = Arrays.copyOf(sizeBefore, sizeBefore.length*2);
+		}
+	}
+
+	private void add(SplitPointUnit unit) {
+		ensureCapacity();
+		if (SizeIndex.isIrregular(unit)) {
+			irregular = append(irregular, irregularEnd);
+			irregular[irregularEnd++] = measured;
+			if (SizeIndex.hasSupplements(unit)) {
+				supplementary = append(supplementary, supplementaryEnd);
+				supplementary[supplementaryEnd++] = measured;
+			}
+		}
+		sizeBefore[measured-base+1] = sizeBefore[measured-base] + unit.getUnitSize();
+		measured++;
+	}
+
+	private static int[] append(int[] values, int end) {
+		return end<values.length?values:Arrays.copyOf(values, values.length*2);
+	}
+
+	/**
+	 * Releases the entries before the specified position.
+	 * @param position the position
+	 */
+	void release(int position) {
+		position = Math.min(position, measured);
+		while (irregularStart<irregularEnd && irregular[irregularStart]<position) {
+			irregularStart++;
+		}
+		while (supplementaryStart<supplementaryEnd && supplementary[supplementaryStart]<position) {
+			supplementaryStart++;
+		}
+		// compact when at least half of the entries are unused
+		if (position-base>sizeBefore.length/2) {
+			sizeBefore = Arrays.copyOfRange(sizeBefore, position-base, position-base+sizeBefore.length);
+			base = position;
+		}
+		if (irregularStart>irregular.length/2) {
+			irregular = Arrays.copyOfRange(irregular, irregularStart, irregularStart+irregular.length);
+			irregularEnd -= irregularStart;
+			irregularStart = 0;
+		}
+		if (supplementaryStart>supplementary.length/2) {
+			supplementary = Arrays.copyOfRange(supplementary, supplementaryStart, supplementaryStart+supplementary.length);
+			supplementaryEnd -= supplementaryStart;
+			supplementaryStart = 0;
+		}
+	}
+
+	/**
+	 * Gets a view of this index starting at the specified position. The view
+	 * is valid until this index is released past the position.
+	 * @param position the position
+	 * @return returns a view
+	 */
+	SplitPointSizeIndex view(int position) {
+		return new SplitPointSizeIndex() {
+			@Override
+			public int getUnitCount() {
+				return measured-position;
+			}
+
+			@Override
+			public double getSizeBefore(int index) {
+				if (index<0 || index>getUnitCount()) {
+					throw new IndexOutOfBoundsException("Index: " + index);
+				}
+				return sizeBefore[position+index-base]-sizeBefore[position-base];
+			}
+
+			@Override
+			public int nextIrregularUnit(int fromIndex) {
+				return next(irregular, irregularStart, irregularEnd, position+fromIndex)-position;
+			}
+
+			@Override
+			public int nextSupplementaryUnit(int fromIndex) {
+				return next(supplementary, supplementaryStart, supplementaryEnd, position+fromIndex)-position;
+			}
+		};
+	}
+
+	private int next(int[] positions, int start, int end, int from) {
+		int i = Arrays.binarySearch(positions, start, end, from);
+		if (i<0) {
+			i = -(i+1);
+		}
+		return i<end?positions[i]:measured;
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>Provides the head of a split point as a view of the units before the split
+ * point, so that the units don't have to be copied when the data is split. The head
+ * contains the units before the trailing skippable units, except the units that were
+ * discarded because they collapsed with a larger unit. The discarded units and the
+ * supplements of the head are also provided as views, see {@link #getDiscarded()} and
+ * {@link #getSupplements()}.</p>
+ *
+ * <p>The views are unmodifiable. The units before the split point must not be
+ * modified while the views are in use.</p>
+ *
+ * @param <T> the type of split point units
+ */
+final class HeadList<T extends SplitPointUnit> extends AbstractList<T> implements RandomAccess {
+	// the units before the trailing skippable units
+	private final SplitPointDataList<T> data;
+	private final int end;
+	// all units before the split point
+	private final List<T> units;
+	private final Supplements<T> map;
+	// the collapsed units, in the order they were discarded
+	private final int[] collapsed;
+	private final int count;
+	// the collapsed units, in ascending order
+	private final int[] excluded;
+	private volatile List<T> supplements = null;
+
+	/**
+	 * Creates a new head.
+	 * @param data the units before the trailing skippable units
+	 * @param units all units before the split point, starting with the units of data
+	 * @param map the supplements
+	 * @param collapsed the indexes of the units of data that collapsed with a larger unit,
+	 * 		in the order they were discarded
+	 * @param count the number of indexes in collapsed
+	 */
+	HeadList(SplitPointDataList<T> data, List<T> units, Supplements<T> map, int[] collapsed, int count) {
+		this.data = data;
+		this.end = data.getSize(Integer.MAX_VALUE);
+		this.units = units;
+		this.map = map;
+		this.collapsed = collapsed;
+		this.count = count;
+		this.excluded = sorted(collapsed, count);
+	}
+
+	private static int[] sorted(int[] values, int count) {
+		for (int i=1; i<count; i++) {
+			if (values[i-1]>values[i]) {
+				int[] ret = Arrays.copyOf(values, count);
+				Arrays.sort(ret);
+				return ret;
+			}
+		}
+		return values;
+	}
+
+	@Override
+	public T get(int index) {
+		if (index<0 || index>=size()) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return data.get(toSourceIndex(index));
+	}
+
+	/**
+	 * Gets the index in the units before the split point of the unit at the specified
+	 * index of the head. Since the excluded units are sorted, excluded[j]-j is the number
+	 * of units in the head before the excluded unit j.
+	 */
+	private int toSourceIndex(int index) {
+		int low = 0;
+		int high = count;
+		while (low<high) {
+			int mid = (low+high)>>>1;
+			if (excluded[mid]-mid<=index) {
+				low = mid+1;
+			} else {
+				high = mid;
+			}
+		}
+		return index+low;
+	}
+
+	@Override
+	public int size() {
+		return end-count;
+	}
+
+	/**
+	 * Gets the discarded units. These are the units that collapsed with a
+	 * larger unit, in the order they were discarded, followed by the
+	 * trailing skippable units.
+	 * @return returns the discarded units
+	 */
+	List<T> getDiscarded() {
+		return new Discarded();
+	}
+
+	/**
+	 * Gets the supplements of the units in the head. The supplements are
+	 * resolved the first time the returned list is accessed.
+	 * @return returns the supplements
+	 */
+	List<T> getSupplements() {
+		return new Supplementary();
+	}
+
+	private List<T> resolveSupplements() {
+		List<T> ret = supplements;
+		if (ret==null) {
+			ret = new ArrayList<>();
+			SupplementTracker<T> tracker = SupplementTracker.create(data, map, DataSourceColumns.of(data));
+			for (int i=0, j=0; i<end; i++) {
+				if (j<count && excluded[j]==i) {
+					j++;
+				} else {
+					tracker.add(i, ret);
+				}
+			}
+			supplements = ret;
+		}
+		return ret;
+	}
+
+	private class Discarded extends AbstractList<T> implements RandomAccess {
+
+		@Override
+		public T get(int index) {
+			if (index<0 || index>=size()) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+			return index<count?data.get(collapsed[index]):units.get(end+index-count);
+		}
+
+		@Override
+		public int size() {
+			return count+units.size()-end;
+		}
+	}
+
+	private class Supplementary extends AbstractList<T> implements RandomAccess {
+
+		@Override
+		public T get(int index) {
+			return resolveSupplements().get(index);
+		}
+
+		@Override
+		public int size() {
+			return resolveSupplements().size();
+		}
+	}
+
+}
@@ -0,0 +1,375 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides pagination that can be updated after the data has been edited,
+ * for example when a paragraph of a book has been changed. The split point
+ * specifications of the previous pagination are kept, and only the pages that
+ * are affected by the edit are paginated again.</p>
+ *
+ * <p>The split point of a page only depends on the units from the start of the
+ * page up to the last unit that was examined when it was found. After an edit,
+ * the pages that end before the edited units, including the units that were
+ * examined after them, are reused. Pagination then restarts from the first
+ * affected page and continues until a page starts at the same unit as a page
+ * in the previous pagination, after the edited units and with the same page
+ * number, or with page numbers that both use the last break point. From there
+ * on, the pages are the same as before, and they are reused too. To guard
+ * against edits that aren't correctly described, each page has a fingerprint,
+ * computed from the hash codes of its units, which must match for the page to be
+ * reused after the edit.</p>
+ *
+ * <p>The work for an edit is therefore proportional to the number of pages that
+ * change. The split points of the reused pages are created from the kept
+ * specifications when they are first accessed, which doesn't involve finding
+ * them. This requires that the data source can be split at any position without
+ * examining the units before it, as {@link SplitPointDataList} can.</p>
+ *
+ * <p>The cost function must only depend on the units up to the limit it is
+ * given. Note that the paginator is stateful and not thread safe. The data source
+ * is split more than once, therefore it must support this. Note that
+ * {@link SplitPointDataStream} doesn't.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public final class IncrementalPaginator<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final SplitPointCost<T> cost;
+	private final SplitOption[] options;
+	private final boolean trimLeading;
+	private U data;
+	private float[] breakPoints = null;
+	private List<Page> pages = null;
+	// the number of units in the data
+	private int size = 0;
+	// the number of pages that were found in the last pagination
+	private int found = 0;
+
+	/**
+	 * Provides a builder for incremental paginators.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private final U data;
+		private SplitPointCost<T> cost = null;
+		private SplitOption[] options = new SplitOption[0];
+		private boolean trimLeading = false;
+
+		private Builder(U data) {
+			this.data = data;
+		}
+
+		/**
+		 * Sets the cost function used when determining the optimal <i>forced</i> split point.
+		 * If no cost function is set, the default cost function of {@link SplitPointHandler} is used.
+		 * @param cost the cost function
+		 * @return this builder
+		 */
+		public Builder<T, U> cost(SplitPointCost<T> cost) {
+			this.cost = cost;
+			return this;
+		}
+
+		/**
+		 * Sets the split options to use for every split point.
+		 * @param options the split options
+		 * @return this builder
+		 */
+		public Builder<T, U> options(SplitOption ... options) {
+			this.options = options;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not leading skippable units should be removed before
+		 * each split point. The default is false.
+		 * @param value true if leading skippable units should be removed, false otherwise
+		 * @return this builder
+		 * @see Paginator.Builder#trimLeading(boolean)
+		 */
+		public Builder<T, U> trimLeading(boolean value) {
+			this.trimLeading = value;
+			return this;
+		}
+
+		/**
+		 * Builds a new incremental paginator using the current configuration of this builder.
+		 * @return a new {@link IncrementalPaginator}
+		 */
+		public IncrementalPaginator<T, U> build() {
+			return new IncrementalPaginator<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new {@link IncrementalPaginator.Builder}.
+	 * @param data the data to paginate
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return a new builder
+	 */
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> Builder<T, U> builder(U data) {
+		return new Builder<>(data);
+	}
+
+	private IncrementalPaginator(Builder<T, U> builder) {
+		this.cost = builder.cost;
+		this.options = builder.options;
+		this.trimLeading = builder.trimLeading;
+		this.data = builder.data;
+	}
+
+	/**
+	 * A page of the previous pagination.
+	 */
+	private static class Page {
+		// the position where the page starts, before leading skippable units
+		private final int start;
+		// the number of units on the page, including skipped and discarded units
+		private final int units;
+		// the position after the last unit that the split point depends on
+		private final int end;
+		private final SplitPointSpecification spec;
+		private final int fingerprint;
+
+		private Page(int start, int units, int end, SplitPointSpecification spec, int fingerprint) {
+			this.start = start;
+			this.units = units;
+			this.end = end;
+			this.spec = spec;
+			this.fingerprint = fingerprint;
+		}
+
+		private Page shift(int delta) {
+			return delta==0?this:new Page(start+delta, units, end==Integer.MAX_VALUE?end:end+delta, spec, fingerprint);
+		}
+	}
+
+	/**
+	 * Keeps the extent of the units that were examined by the last find.
+	 */
+	private static class Extent implements SplitPointListener {
+		private int units = 0;
+
+		@Override
+		public void findCompleted(SplitPointEvent event) {
+			units = Math.max(event.getCollapseUnits(), event.getTotalSizeUnits());
+		}
+	}
+
+	/**
+	 * <p>Paginates all data, using the supplied break points for successive
+	 * pages. The last break point is used for all remaining pages. The
+	 * pagination is kept, so that it can be updated with
+	 * {@link #update(SplitPointDataSource, int, int, int)}.</p>
+	 *
+	 * <p>If a unit doesn't fit on an empty page, the pagination stops. In this case,
+	 * the last split point has an empty head and the remaining units in its tail.</p>
+	 *
+	 * @param breakPoints the break points, at least one
+	 * @return returns the split points
+	 * @throws IllegalArgumentException if no break points are supplied
+	 */
+	public List<SplitPoint<T, U>> paginate(float ... breakPoints) {
+		if (breakPoints.length==0) {
+			throw new IllegalArgumentException("No break points.");
+		}
+		this.breakPoints = breakPoints.clone();
+		return paginate(Collections.emptyList(), 0, 0, 0);
+	}
+
+	/**
+	 * <p>Paginates edited data, using the break points of the previous pagination
+	 * and reusing the pages that aren't affected by the edit. The edit is described
+	 * by a range of units in the previous data that has been replaced by a range
+	 * of units in the edited data, starting at the same index. The pagination is
+	 * then replaced by that of the edited data.</p>
+	 *
+	 * <p>The result is the same as that of {@link #paginate(float...)} with the
+	 * edited data.</p>
+	 *
+	 * @param data the edited data
+	 * @param index the index of the first edited unit
+	 * @param removed the number of units that were removed from the previous data
+	 * @param added the number of units that were added in their place
+	 * @return returns the split points
+	 * @throws IllegalStateException if no data has been paginated
+	 * @throws IllegalArgumentException if the edit is outside of the previous data
+	 */
+	public List<SplitPoint<T, U>> update(U data, int index, int removed, int added) {
+		if (pages==null) {
+			throw new IllegalStateException("No pagination to update.");
+		}
+		if (index<0 || removed<0 || added<0 || index+removed>size) {
+			throw new IllegalArgumentException("Edit outside of data: " + index + ", " + removed + ", " + added);
+		}
+		int reuse = 0;
+		while (reuse<pages.size() && pages.get(reuse).end<=index) {
+			reuse++;
+		}
+		this.data = data;
+		return paginate(pages, reuse, index+added, added-removed);
+	}
+
+	/**
+	 * Gets the number of pages that were found, rather than reused, by the
+	 * last pagination.
+	 * @return returns the number of pages
+	 */
+	int getFoundPages() {
+		return found;
+	}
+
+	/**
+	 * Paginates the data, reusing pages from a previous pagination.
+	 * @param previous the pages of the previous pagination
+	 * @param reuse the number of pages at the start of the previous pagination to reuse
+	 * @param from the position after the edited units, from which the previous pages can be
+	 * 		reused again
+	 * @param delta the difference between the positions of the previous pages after the edited
+	 * 		units and the positions of the same pages in the data
+	 */
+	private List<SplitPoint<T, U>> paginate(List<Page> previous, int reuse, int from, int delta) {
+		int units = data.getSize(Integer.MAX_VALUE);
+		List<Page> current = new ArrayList<>(previous.subList(0, reuse));
+		// the position where the first page that isn't reused starts
+		int offset = 0;
+		if (reuse>0) {
+			Page last = previous.get(reuse-1);
+			offset = last.start+last.units;
+		}
+		Extent extent = new Extent();
+		Paginator<T, U> p = Paginator.builder(offset>0?data.split(offset).tail():data)
+				.cost(cost)
+				.options(options)
+				.trimLeading(trimLeading)
+				.listener(extent)
+				.build();
+		SplitPointColumns columns = DataSourceColumns.of(data);
+		List<SplitPoint<T, U>> splitPoints = new ArrayList<>();
+		// the next page of the previous pagination that could be reused
+		int k = reuse;
+		while (p.hasNext()) {
+			int start = offset+p.getPosition();
+			if (start>=from) {
+				while (k<previous.size() && previous.get(k).start+delta<start) {
+					k++;
+				}
+				if (k<previous.size() && previous.get(k).start+delta==start
+						&& sameBreakPoints(k, current.size())
+						&& previous.get(k).fingerprint==fingerprint(start, start+previous.get(k).units)) {
+					// the pages are the same as before from here on
+					for (; k<previous.size(); k++) {
+						current.add(previous.get(k).shift(delta));
+					}
+					break;
+				}
+			}
+			SplitPointSpecification spec = p.find(getBreakPoint(current.size()));
+			int end = Integer.MAX_VALUE;
+			if (spec.getType()==Type.INDEX) {
+				// the units that were examined, and the skippable units and the unit
+				// after them that may have been examined when looking for the split point
+				end = offset+p.getPosition()+extent.units;
+				while (end<units && columns.isSkippable(end)) {
+					end++;
+				}
+				end++;
+			}
+			splitPoints.add(p.next(spec));
+			int next = p.hasNext()?offset+p.getPosition():units;
+			current.add(new Page(start, next-start, end, spec, fingerprint(start, next)));
+			if (spec.getType()==Type.NONE) {
+				// the next unit doesn't fit
+				break;
+			}
+		}
+		this.pages = current;
+		this.size = units;
+		this.found = splitPoints.size();
+		return new SplitPoints(data, current, reuse, splitPoints);
+	}
+
+	/**
+	 * Provides the split points of a pagination. The split points of the pages that
+	 * were reused are created when they are first accessed.
+	 */
+	private class SplitPoints extends AbstractList<SplitPoint<T, U>> implements RandomAccess {
+		private final U data;
+		private final List<Page> pages;
+		private final List<SplitPoint<T, U>> splitPoints;
+
+		/**
+		 * Creates a new instance.
+		 * @param data the data
+		 * @param pages the pages
+		 * @param first the index of the first page that was found
+		 * @param found the split points of the pages that were found
+		 */
+		private SplitPoints(U data, List<Page> pages, int first, List<SplitPoint<T, U>> found) {
+			this.data = data;
+			this.pages = pages;
+			this.splitPoints = new ArrayList<>(Collections.nCopies(pages.size(), null));
+			for (int i=0; i<found.size(); i++) {
+				splitPoints.set(first+i, found.get(i));
+			}
+		}
+
+		@Override
+		public SplitPoint<T, U> get(int index) {
+			SplitPoint<T, U> ret = splitPoints.get(index);
+			if (ret==null) {
+				Page page = pages.get(index);
+				ret = Paginator.builder(page.start>0?data.split(page.start).tail():data)
+						.cost(cost)
+						.options(options)
+						.trimLeading(trimLeading)
+						.build()
+						.next(page.spec);
+				splitPoints.set(index, ret);
+			}
+			return ret;
+		}
+
+		@Override
+		public int size() {
+			return pages.size();
+		}
+	}
+
+	private float getBreakPoint(int page) {
+		return breakPoints[Math.min(page, breakPoints.length-1)];
+	}
+
+	/**
+	 * Returns true if the pages from the two page numbers onwards use the same
+	 * break points, that is, if the page numbers are equal, or if both use
+	 * the last break point.
+	 */
+	private boolean sameBreakPoints(int page1, int page2) {
+		return page1==page2 || (page1>=breakPoints.length-1 && page2>=breakPoints.length-1);
+	}
+
+	/**
+	 * Computes a fingerprint of the units from start to end, or of the units up
+	 * to the end of the data, if there are fewer units.
+	 */
+	private int fingerprint(int start, int end) {
+		int ret = 1;
+		for (int i=start; i<end && data.hasElementAt(i); i++) {
+			ret = 31*ret+Objects.hashCode(data.get(i));
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,168 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>Provides supplements where each identifier is assigned a number, in
+ * the order that the supplements were added. The sizes of the supplements
+ * are recorded when the instance is built.</p>
+ *
+ * <p>When the split point handler is given supplements of this type, it
+ * keeps track of the supplements that have been added to a result by
+ * number instead of by identifier. If the data source is also created with
+ * {@link SplitPointDataList#columnar(List, Supplements)}, the identifiers of
+ * each unit are resolved once, when the data source is created.</p>
+ *
+ * @param <T> the type of units
+ */
+public final class IndexedSupplements<T extends SplitPointUnit> implements Supplements<T> {
+	private static final int[] NO_INDEXES = new int[0];
+	private final Map<String, Integer> indexes;
+	private final List<T> units;
+	private final float[] sizes;
+	private final double overhead;
+
+	/**
+	 * Provides a builder for indexed supplements.
+	 *
+	 * @param <T> the type of units
+	 */
+	public static class Builder<T extends SplitPointUnit> {
+		private final Map<String, T> units = new LinkedHashMap<>();
+		private double overhead = 0;
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a supplement. If a supplement with the same identifier has
+		 * already been added, it is replaced, but keeps its number.
+		 * @param id the identifier
+		 * @param unit the supplement
+		 * @return this builder
+		 * @throws NullPointerException if id or unit is null
+		 */
+		public Builder<T> put(String id, T unit) {
+			units.put(Objects.requireNonNull(id), Objects.requireNonNull(unit));
+			return this;
+		}
+
+		/**
+		 * Sets the overhead associated with adding at least one supplement to the result.
+		 * @param value the overhead
+		 * @return this builder
+		 */
+		public Builder<T> overhead(double value) {
+			this.overhead = value;
+			return this;
+		}
+
+		/**
+		 * Creates new indexed supplements using the current state of the builder.
+		 * @return returns new indexed supplements
+		 */
+		public IndexedSupplements<T> build() {
+			return new IndexedSupplements<>(this);
+		}
+	}
+
+	private IndexedSupplements(Builder<T> builder) {
+		int size = builder.units.size();
+		this.indexes = new HashMap<>();
+		this.units = new ArrayList<>(size);
+		this.sizes = new float[size];
+		for (Map.Entry<String, T> e : builder.units.entrySet()) {
+			sizes[units.size()] = e.getValue().getUnitSize();
+			indexes.put(e.getKey(), units.size());
+			units.add(e.getValue());
+		}
+		this.overhead = builder.overhead;
+	}
+
+	/**
+	 * Creates a new builder.
+	 * @param <T> the type of units
+	 * @return returns a new builder
+	 */
+	public static <T extends SplitPointUnit> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	@Override
+	public T get(String id) {
+		Integer index = indexes.get(id);
+		return index!=null?units.get(index):null;
+	}
+
+	@Override
+	public double getOverhead() {
+		return overhead;
+	}
+
+	/**
+	 * Gets the number of supplements.
+	 * @return returns the number of supplements
+	 */
+	public int size() {
+		return units.size();
+	}
+
+	/**
+	 * Gets the number assigned to the specified identifier.
+	 * @param id the identifier
+	 * @return returns the number, or -1 if there is no supplement with the identifier
+	 */
+	public int indexOf(String id) {
+		Integer index = indexes.get(id);
+		return index!=null?index:-1;
+	}
+
+	/**
+	 * Gets the supplement with the specified number.
+	 * @param index the number
+	 * @return returns the supplement
+	 * @throws IndexOutOfBoundsException if the number is out of range
+	 */
+	public T get(int index) {
+		return units.get(index);
+	}
+
+	/**
+	 * Gets the size of the supplement with the specified number, as recorded
+	 * when this instance was built.
+	 * @param index the number
+	 * @return returns the size
+	 * @throws IndexOutOfBoundsException if the number is out of range
+	 */
+	public float getUnitSize(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * Gets the numbers of the specified identifiers, in the same order.
+	 * Identifiers without a supplement are left out.
+	 * @param ids the identifiers, may be null
+	 * @return returns the numbers
+	 */
+	int[] indexesOf(List<String> ids) {
+		if (ids==null || ids.isEmpty()) {
+			return NO_INDEXES;
+		}
+		int[] ret = new int[ids.size()];
+		int count = 0;
+		for (String id : ids) {
+			int index = indexOf(id);
+			if (index>=0) {
+				ret[count++] = index;
+			}
+		}
+		return count==ret.length?ret:Arrays.copyOf(ret, count);
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Provides a split option that limits how far back from the overflow
+ * position the split point handler searches for a split point. Only the
+ * specified number of units, ending with the last unit that fits, are
+ * considered. If none of them is breakable, the split is handled as if
+ * there were no breakable units at all.
+ */
+public final class LookBackSplitOption implements SplitOption {
+	private final int maxUnits;
+
+	private LookBackSplitOption(int maxUnits) {
+		this.maxUnits = maxUnits;
+	}
+
+	/**
+	 * Creates a new option with the specified maximum number of units to consider.
+	 * @param maxUnits the maximum number of units
+	 * @return returns a new option
+	 * @throws IllegalArgumentException if maxUnits is less than one
+	 */
+	public static LookBackSplitOption maxUnits(int maxUnits) {
+		if (maxUnits<1) {
+			throw new IllegalArgumentException("Value must be at least one: " + maxUnits);
+		}
+		return new LookBackSplitOption(maxUnits);
+	}
+
+	/**
+	 * Gets the maximum number of units to consider.
+	 * @return returns the maximum number of units
+	 */
+	public int getMaxUnits() {
+		return maxUnits;
+	}
+
+	@Override
+	public String toString() {
+		return "LookBackSplitOption [maxUnits=" + maxUnits + "]";
+	}
+}
@@ -0,0 +1,321 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.daisy.dotify.common.splitter.SplitPointHandler.SplitOptions;
+
+/**
+ * <p>Provides pagination that minimizes the total cost of all split points,
+ * rather than the cost of each split point. A {@link Paginator} takes the
+ * split point with the lowest cost for each page in turn, without regard to
+ * the pages that follow. This paginator considers every breakable unit that
+ * fits on a page, and picks the combination of split points with the lowest
+ * sum of costs, in the same way as the Knuth-Plass line breaking algorithm.</p>
+ *
+ * <p>The cost of a split point is the value returned by the cost function for
+ * the unit before it, with the last unit that fits as the limit. The cost of the
+ * last page, where all remaining units fit, is zero. The split point that a
+ * {@link Paginator} would use for a page is always considered, including a forced
+ * split point, therefore the total cost is never greater than that of a
+ * {@link Paginator} with the same configuration.</p>
+ *
+ * <p>Page breaks at the same position, before pages with the same break point,
+ * are merged, keeping the one with the lowest total cost. The data is traversed
+ * once, in order, and the cost function is evaluated for every unit within reach
+ * of each page break. The work for each page break can be limited with a
+ * {@link LookBackSplitOption}.</p>
+ *
+ * <p>The split points are created by a {@link Paginator}, so the result is the
+ * same as that of a paginator that happened to choose the same split points.
+ * The data source is split more than once, at positions that aren't known in
+ * advance, therefore it must support this. Note that {@link SplitPointDataStream}
+ * doesn't.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public final class OptimalPaginator<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final U data;
+	private final SplitPointCost<T> cost;
+	private final SplitOption[] options;
+	private final SplitOptions opts;
+	private final boolean trimLeading;
+
+	/**
+	 * Provides a builder for optimal paginators.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private final U data;
+		private SplitPointCost<T> cost = null;
+		private SplitOption[] options = new SplitOption[0];
+		private boolean trimLeading = false;
+
+		private Builder(U data) {
+			this.data = data;
+		}
+
+		/**
+		 * Sets the cost function. If no cost function is set, the default cost
+		 * function of {@link SplitPointHandler} is used.
+		 * @param cost the cost function
+		 * @return this builder
+		 */
+		public Builder<T, U> cost(SplitPointCost<T> cost) {
+			this.cost = cost;
+			return this;
+		}
+
+		/**
+		 * Sets the split options to use for every split point.
+		 * @param options the split options
+		 * @return this builder
+		 */
+		public Builder<T, U> options(SplitOption ... options) {
+			this.options = options;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not leading skippable units should be removed before
+		 * each split point. The default is false.
+		 * @param value true if leading skippable units should be removed, false otherwise
+		 * @return this builder
+		 * @see Paginator.Builder#trimLeading(boolean)
+		 */
+		public Builder<T, U> trimLeading(boolean value) {
+			this.trimLeading = value;
+			return this;
+		}
+
+		/**
+		 * Builds a new optimal paginator using the current configuration of this builder.
+		 * @return a new {@link OptimalPaginator}
+		 */
+		public OptimalPaginator<T, U> build() {
+			return new OptimalPaginator<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new {@link OptimalPaginator.Builder}.
+	 * @param data the data to paginate
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return a new builder
+	 */
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> Builder<T, U> builder(U data) {
+		return new Builder<>(data);
+	}
+
+	private OptimalPaginator(Builder<T, U> builder) {
+		this.data = builder.data;
+		this.cost = builder.cost!=null?builder.cost:new SplitPointHandler<T, U>().defaultCost;
+		this.options = builder.options;
+		this.opts = SplitOptions.parse(builder.options);
+		this.trimLeading = builder.trimLeading;
+	}
+
+	/**
+	 * A page break, identified by the position where the next page starts
+	 * and the break point of the next page.
+	 */
+	private static class Node {
+		private final int position;
+		private final int page;
+		private double cost;
+		private Node previous;
+		// the split point specification that leads from the previous node to this node
+		private SplitPointSpecification spec;
+
+		private Node(int position, int page, double cost, Node previous, SplitPointSpecification spec) {
+			this.position = position;
+			this.page = page;
+			this.cost = cost;
+			this.previous = previous;
+			this.spec = spec;
+		}
+	}
+
+	/**
+	 * <p>Paginates all data, using the supplied break points for successive
+	 * pages. The last break point is used for all remaining pages.</p>
+	 *
+	 * <p>If a unit doesn't fit on an empty page, the pagination stops. In this case,
+	 * the last split point has an empty head and the remaining units in its tail.</p>
+	 *
+	 * @param breakPoints the break points, at least one
+	 * @return returns the split points
+	 * @throws IllegalArgumentException if no break points are supplied
+	 */
+	public List<SplitPoint<T, U>> paginate(float ... breakPoints) {
+		if (breakPoints.length==0) {
+			throw new IllegalArgumentException("No break points.");
+		}
+		// pages after the last break point have the same break point, and are therefore
+		// equivalent as far as the remaining pages are concerned
+		int pages = breakPoints.length;
+		Map<Long, Node> active = new HashMap<>();
+		PriorityQueue<Node> queue = new PriorityQueue<>((n1, n2)->n1.position!=n2.position?
+				Integer.compare(n1.position, n2.position):Integer.compare(n1.page, n2.page));
+		Node start = new Node(0, 0, 0, null, null);
+		queue.add(start);
+		active.put(0L, start);
+		Node end = null;
+		// the node with the greatest position, in case the end can't be reached
+		Node last = start;
+		U tail = data;
+		int tailPosition = 0;
+		double[] costs = new double[0];
+		// the units are measured once, as in the paginator
+		GrowingSizeIndex index = new GrowingSizeIndex();
+		while (!queue.isEmpty()) {
+			Node n = queue.poll();
+			active.remove((long)n.position*pages+n.page);
+			if (n.position>tailPosition) {
+				tail = tail.split(n.position-tailPosition).tail();
+				tailPosition = n.position;
+			}
+			if (n.position>last.position) {
+				last = n;
+			}
+			int leading = trimLeading?SplitPointHandler.findLeading(tail):0;
+			U page = leading>0?tail.split(leading).tail():tail;
+			if (page.isEmpty()) {
+				if (end==null || n.cost<end.cost) {
+					end = n;
+				}
+				continue;
+			}
+			int next = Math.min(n.page+1, pages-1);
+			float breakPoint = breakPoints[n.page];
+			if (breakPoint<=0) {
+				// nothing fits, the node is removed
+				continue;
+			}
+			int position = n.position+leading;
+			index.release(position);
+			index.measure(page, position, breakPoint);
+			SplitPointSizeIndex view = index.view(position);
+			if (SplitPointHandler.fits(page, view, breakPoint, opts.useLastUnitSize, null)) {
+				// the remaining units fit on the last page
+				relax(active, queue, pages, n, SplitPointSpecification.all(), position+page.getSize(Integer.MAX_VALUE), next, 0);
+				continue;
+			}
+			SizeStep<T> step = new SizeStep<>(breakPoint, page, opts.useLastUnitSize, view);
+			int startPos = SplitPointHandler.findCollapse(page, step);
+			if (startPos<0) {
+				// the first unit doesn't fit, the node is removed
+				continue;
+			}
+			int strPos = SplitPointHandler.forwardSkippable(page, startPos);
+			if (!page.hasElementAt(strPos+1)) {
+				relax(active, queue, pages, n, SplitPointSpecification.all(), position+strPos+1, next, 0);
+				continue;
+			}
+			int first = Math.max(0, strPos-opts.maxLookBack+1);
+			costs = getCosts(page, first, strPos, costs);
+			SplitPointColumns columns = DataSourceColumns.of(page);
+			// the best split point and the best breakable split point, as selected by the paginator
+			int best = strPos;
+			int bestBreakable = -1;
+			double bestCost = Double.MAX_VALUE;
+			double bestBreakableCost = Double.MAX_VALUE;
+			for (int i=strPos; i>=first; i--) {
+				double c = costs[i-first];
+				if (c<Double.MAX_VALUE && c<=bestCost) {
+					best = i;
+					bestCost = c;
+				}
+				if (c<Double.MAX_VALUE && columns.isBreakable(i)) {
+					if (c<=bestBreakableCost) {
+						bestBreakable = i;
+						bestBreakableCost = c;
+					}
+					relax(active, queue, pages, n, new SplitPointSpecification(i+1, false, opts.trimTrailing), position+i+1, next, c);
+				}
+			}
+			if (best!=bestBreakable && opts.useForce) {
+				// the paginator breaks hard here, so it's included to make sure that the
+				// result is never worse than that of the paginator
+				relax(active, queue, pages, n, new SplitPointSpecification(best+1, true, opts.trimTrailing), position+best+1, next, bestCost);
+			}
+		}
+		Node n = end!=null?end:last;
+		return replay(n, breakPoints[n.page]);
+	}
+
+	/**
+	 * Gets the costs of the units from first to limit, inclusive.
+	 * @param out an array to reuse, if it is large enough
+	 * @return returns the costs, where the cost of the unit at index <code>first+i</code> is at index <code>i</code>
+	 */
+	private double[] getCosts(U page, int first, int limit, double[] out) {
+		int len = limit-first+1;
+		double[] ret = out.length>=len?out:new double[Math.max(len, out.length*2)];
+		if (cost instanceof BatchSplitPointCost) {
+			((BatchSplitPointCost<T>)cost).getCosts(page, first, limit+1, limit, ret);
+		} else {
+			for (int i=first; i<=limit; i++) {
+				ret[i-first] = cost.getCost(page, i, limit);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds a page break, unless there is already a page break at the same position
+	 * with the same break point for the next page and a lower or equal cost.
+	 */
+	private static void relax(Map<Long, Node> active, PriorityQueue<Node> queue, int pages, Node from, SplitPointSpecification spec, int position, int page, double c) {
+		double total = from.cost+c;
+		long key = (long)position*pages+page;
+		Node n = active.get(key);
+		if (n==null) {
+			n = new Node(position, page, total, from, spec);
+			active.put(key, n);
+			queue.add(n);
+		} else if (total<n.cost) {
+			// the position in the queue doesn't depend on the cost
+			n.cost = total;
+			n.previous = from;
+			n.spec = spec;
+		}
+	}
+
+	/**
+	 * Creates the split points that lead to the specified node. If there is data after
+	 * the node, one more split point is added, in the same way as the paginator would.
+	 * At the end of the data, this split point contains the leading skippable units.
+	 * Otherwise, the next unit doesn't fit and the split point has an empty head.
+	 * @param breakPoint the break point of the page after the node
+	 */
+	private List<SplitPoint<T, U>> replay(Node n, float breakPoint) {
+		Deque<SplitPointSpecification> specs = new ArrayDeque<>();
+		for (Node x = n; x.previous!=null; x = x.previous) {
+			specs.push(x.spec);
+		}
+		Paginator<T, U> p = Paginator.builder(data)
+				.cost(cost)
+				.options(options)
+				.trimLeading(trimLeading)
+				.build();
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		for (SplitPointSpecification spec : specs) {
+			ret.add(p.next(spec));
+		}
+		if (p.hasNext()) {
+			ret.add(p.next(breakPoint));
+		}
+		return ret;
+	}
+
+}
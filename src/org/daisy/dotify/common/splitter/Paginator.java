@@ -0,0 +1,243 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.daisy.dotify.common.splitter.SplitPointHandler.SplitOptions;
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides successive split points for a data source, for example
+ * pages from a flow of rows. This is equivalent to calling
+ * {@link SplitPointHandler#split(float, SplitPointDataSource, SplitPointCost, SplitOption...)}
+ * repeatedly on the tail of the previous result, but units are measured
+ * once when the paginator walks the data source, rather than once for
+ * every call.</p>
+ * 
+ * <p>Note that the paginator is stateful and not thread safe.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public class Paginator<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final SplitPointHandler<T, U> handler;
+	private final SplitPointCost<T> cost;
+	private final SplitOptions options;
+	private final boolean trimLeading;
+	private final GrowingSizeIndex index;
+	private U remaining;
+	// leading units that have been removed, but not yet returned
+	private List<T> leading;
+	// the position of the remaining data in the original data source 
+	private int position;
+
+	/**
+	 * Provides a builder for paginators.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private final U data;
+		private SplitPointCost<T> cost = null;
+		private SplitOption[] options = new SplitOption[0];
+		private boolean trimLeading = false;
+		private SplitPointListener listener = null;
+
+		private Builder(U data) {
+			this.data = data;
+		}
+
+		/**
+		 * Sets the cost function used when determining the optimal <i>forced</i> split point.
+		 * If no cost function is set, the default cost function of {@link SplitPointHandler} is used.
+		 * @param cost the cost function
+		 * @return this builder
+		 */
+		public Builder<T, U> cost(SplitPointCost<T> cost) {
+			this.cost = cost;
+			return this;
+		}
+
+		/**
+		 * Sets the split options to use for every split point.
+		 * @param options the split options
+		 * @return this builder
+		 */
+		public Builder<T, U> options(SplitOption ... options) {
+			this.options = options;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not leading skippable units should be removed before
+		 * each split point. If set, the removed units are placed first in
+		 * {@link SplitPoint#getDiscarded()}. The default is false.
+		 * @param value true if leading skippable units should be removed, false otherwise
+		 * @return this builder
+		 */
+		public Builder<T, U> trimLeading(boolean value) {
+			this.trimLeading = value;
+			return this;
+		}
+
+		/**
+		 * Sets a listener that is notified about the work performed when finding
+		 * and splitting at each split point. The default is no listener.
+		 * @param listener the listener
+		 * @return this builder
+		 * @see SplitPointHandler#setListener(SplitPointListener)
+		 */
+		public Builder<T, U> listener(SplitPointListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Builds a new paginator using the current configuration of this builder.
+		 * @return a new {@link Paginator}
+		 */
+		public Paginator<T, U> build() {
+			return new Paginator<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new {@link Paginator.Builder}.
+	 * @param data the data to paginate
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return a new builder
+	 */
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> Builder<T, U> builder(U data) {
+		return new Builder<>(data);
+	}
+
+	private Paginator(Builder<T, U> builder) {
+		this.handler = new SplitPointHandler<>();
+		this.handler.setListener(builder.listener);
+		this.cost = builder.cost!=null?builder.cost:handler.defaultCost;
+		this.options = SplitOptions.parse(builder.options);
+		this.trimLeading = builder.trimLeading;
+		this.index = new GrowingSizeIndex();
+		this.remaining = builder.data;
+		this.leading = new ArrayList<>();
+		this.position = 0;
+	}
+
+	/**
+	 * Returns true if there is more data to paginate.
+	 * @return returns true if there is more data, false otherwise
+	 */
+	public boolean hasNext() {
+		return !remaining.isEmpty();
+	}
+
+	/**
+	 * Gets the remaining data.
+	 * @return returns the remaining data
+	 */
+	public U getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * Gets the position of the remaining data in the original data source.
+	 * @return returns the position
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Finds the next split point at, or before, the supplied break point without
+	 * consuming the data. Note that leading skippable units are consumed, if they
+	 * should be removed. The specification can be used with 
+	 * {@link SplitPointHandler#split(SplitPointSpecification, SplitPointDataSource)}
+	 * on {@link #getRemaining()}.
+	 * @param breakPoint the split point
+	 * @return returns a split point specification
+	 */
+	public SplitPointSpecification find(float breakPoint) {
+		skipLeading();
+		if (remaining.isEmpty()) {
+			return SplitPointSpecification.empty();
+		}
+		// Measure until the units overflow, so that the size index covers
+		// the units that are examined by the handler.
+		index.measure(remaining, position, breakPoint);
+		return handler.find(breakPoint, remaining, index.view(position), cost, options);
+	}
+
+	/**
+	 * Gets the next split point at, or before, the supplied break point.
+	 * @param breakPoint the split point
+	 * @return returns the split point
+	 */
+	public SplitPoint<T, U> next(float breakPoint) {
+		return next(find(breakPoint));
+	}
+
+	/**
+	 * Gets the next split point using a specification that applies to the
+	 * remaining data, after leading skippable units have been removed.
+	 * @param spec the split point specification
+	 * @return returns the split point
+	 */
+	SplitPoint<T, U> next(SplitPointSpecification spec) {
+		skipLeading();
+		SplitPoint<T, U> ret = handler.split(spec, remaining);
+		remaining = ret.getTail();
+		if (spec.getType()==Type.INDEX) {
+			position += spec.getIndex();
+			index.release(position);
+		}
+		if (leading.isEmpty()) {
+			return ret;
+		} else {
+			List<T> discarded = leading;
+			discarded.addAll(ret.discardedView());
+			leading = new ArrayList<>();
+			return new SplitPoint<>(ret.headView(), ret.supplementsView(), ret.getTail(), discarded, ret.isHardBreak(), true);
+		}
+	}
+
+	/**
+	 * Returns an iterator over the split points of the remaining data, using
+	 * the supplied break points. The iteration ends when there is no more data
+	 * or no more break points.
+	 * @param breakPoints the break points
+	 * @return returns an iterator
+	 */
+	public Iterator<SplitPoint<T, U>> iterator(Iterator<Float> breakPoints) {
+		return new Iterator<SplitPoint<T, U>>() {
+			@Override
+			public boolean hasNext() {
+				return Paginator.this.hasNext() && breakPoints.hasNext();
+			}
+
+			@Override
+			public SplitPoint<T, U> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return Paginator.this.next(breakPoints.next());
+			}
+		};
+	}
+
+	private void skipLeading() {
+		if (trimLeading) {
+			int count = SplitPointHandler.findLeading(remaining);
+			if (count>0) {
+				SplitResult<T, U> res = remaining.split(count);
+				leading.addAll(res.head());
+				remaining = res.tail();
+				position += count;
+			}
+		}
+	}
+
+}
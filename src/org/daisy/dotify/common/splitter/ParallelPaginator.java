@@ -0,0 +1,225 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides pagination of data that is divided into segments, where each
+ * segment starts on a new page, for example at the start of a chapter or a volume.
+ * Since no state is carried over from one segment to the next, the segments
+ * are paginated in parallel, each using a {@link Paginator}. The split points
+ * of all segments are returned in order. The calling thread takes part in the
+ * pagination, by paginating the segments that haven't been started when it
+ * needs their results.</p>
+ *
+ * <p>The segments of a {@link SplitPointDataList} can be created with
+ * {@link SplitPointDataList#segments(java.util.function.Predicate)}.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public final class ParallelPaginator<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final List<U> segments;
+	private final SplitPointCost<T> cost;
+	private final SplitOption[] options;
+	private final boolean trimLeading;
+	private final SplitPointListener listener;
+	private final Executor executor;
+
+	/**
+	 * Provides a builder for parallel paginators.
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private final List<U> segments;
+		private SplitPointCost<T> cost = null;
+		private SplitOption[] options = new SplitOption[0];
+		private boolean trimLeading = false;
+		private SplitPointListener listener = null;
+		private Executor executor = null;
+
+		private Builder(List<U> segments) {
+			this.segments = new ArrayList<>(segments);
+		}
+
+		/**
+		 * Sets the cost function used when determining the optimal <i>forced</i> split point.
+		 * @param cost the cost function
+		 * @return this builder
+		 * @see Paginator.Builder#cost(SplitPointCost)
+		 */
+		public Builder<T, U> cost(SplitPointCost<T> cost) {
+			this.cost = cost;
+			return this;
+		}
+
+		/**
+		 * Sets the split options to use for every split point.
+		 * @param options the split options
+		 * @return this builder
+		 */
+		public Builder<T, U> options(SplitOption ... options) {
+			this.options = options;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not leading skippable units should be removed before
+		 * each split point. The default is false.
+		 * @param value true if leading skippable units should be removed, false otherwise
+		 * @return this builder
+		 * @see Paginator.Builder#trimLeading(boolean)
+		 */
+		public Builder<T, U> trimLeading(boolean value) {
+			this.trimLeading = value;
+			return this;
+		}
+
+		/**
+		 * Sets a listener that is notified about the work performed for each
+		 * split point. Since segments are paginated in parallel, the listener
+		 * must be thread safe, such as {@link SplitPointCounters}.
+		 * @param listener the listener
+		 * @return this builder
+		 */
+		public Builder<T, U> listener(SplitPointListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Sets the executor that runs the pagination of each segment. The default
+		 * is the common fork join pool.
+		 * @param executor the executor
+		 * @return this builder
+		 */
+		public Builder<T, U> executor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Builds a new parallel paginator using the current configuration of this builder.
+		 * @return a new {@link ParallelPaginator}
+		 */
+		public ParallelPaginator<T, U> build() {
+			return new ParallelPaginator<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new {@link ParallelPaginator.Builder}.
+	 * @param segments the segments to paginate, in order
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return a new builder
+	 */
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> Builder<T, U> builder(List<U> segments) {
+		return new Builder<>(segments);
+	}
+
+	private ParallelPaginator(Builder<T, U> builder) {
+		this.segments = builder.segments;
+		this.cost = builder.cost;
+		this.options = builder.options;
+		this.trimLeading = builder.trimLeading;
+		this.listener = builder.listener;
+		this.executor = builder.executor!=null?builder.executor:ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * <p>Paginates all segments, using the same break point for every page.</p>
+	 *
+	 * <p>If a unit doesn't fit on an empty page, the pagination of that segment
+	 * stops. In this case, the last split point of the segment has an empty head
+	 * and the remaining units of the segment in its tail. The pagination of the
+	 * other segments isn't affected.</p>
+	 *
+	 * <p>If the pagination of a segment throws an exception, the exception
+	 * for the first such segment is thrown after all segments have completed.</p>
+	 *
+	 * @param breakPoint the break point
+	 * @return returns the split points of all segments, in order
+	 */
+	public List<SplitPoint<T, U>> paginate(float breakPoint) {
+		List<Task> tasks = new ArrayList<>();
+		for (U segment : segments) {
+			Task task = new Task(segment, breakPoint);
+			tasks.add(task);
+			executor.execute(task);
+		}
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		RuntimeException error = null;
+		for (Task task : tasks) {
+			// the calling thread paginates the segments that haven't been started
+			task.run();
+			try {
+				ret.addAll(task.result.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof Error) {
+					throw (Error)e.getCause();
+				} else if (error==null) {
+					error = e.getCause() instanceof RuntimeException?(RuntimeException)e.getCause():e;
+				}
+			}
+		}
+		if (error!=null) {
+			throw error;
+		}
+		return ret;
+	}
+
+	/**
+	 * Paginates a segment, on the first thread that runs the task.
+	 */
+	private class Task implements Runnable {
+		private final U segment;
+		private final float breakPoint;
+		private final AtomicBoolean started = new AtomicBoolean();
+		private final CompletableFuture<List<SplitPoint<T, U>>> result = new CompletableFuture<>();
+
+		private Task(U segment, float breakPoint) {
+			this.segment = segment;
+			this.breakPoint = breakPoint;
+		}
+
+		@Override
+		public void run() {
+			if (started.compareAndSet(false, true)) {
+				try {
+					result.complete(paginate(segment, breakPoint));
+				} catch (Throwable e) {
+					result.completeExceptionally(e);
+				}
+			}
+		}
+	}
+
+	private List<SplitPoint<T, U>> paginate(U segment, float breakPoint) {
+		Paginator<T, U> p = Paginator.builder(segment)
+				.cost(cost)
+				.options(options)
+				.trimLeading(trimLeading)
+				.listener(listener)
+				.build();
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		while (p.hasNext()) {
+			SplitPointSpecification spec = p.find(breakPoint);
+			ret.add(p.next(spec));
+			if (spec.getType()==Type.NONE) {
+				// the next unit doesn't fit
+				break;
+			}
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,380 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.daisy.dotify.common.splitter.SplitPointHandler.SplitOptions;
+
+/**
+ * <p>Provides division of data into a number of parts of nearly equal size,
+ * for example when dividing a book into volumes. Parts are only divided after
+ * breakable units (or anywhere, if force is allowed), and leading and trailing
+ * skippable units are removed in the same way as for a page.</p>
+ *
+ * <p>The units are measured once, in O(n) time. The parts for each size that
+ * is tried are then found from the cumulative sizes of the units, using binary
+ * search, in O(k log n) time for k parts, instead of paginating the data for each
+ * size. Finally, the split points are created, in O(n) time.</p>
+ *
+ * <p>Since the sizes are cumulative, the size of a part is an upper bound of the
+ * size of the same units on a page: the supplements of a unit are counted
+ * for every unit that refers to them, including the overhead, and collapsible
+ * units are collapsed as if all units were on the same page, except that the
+ * largest of the units that collapsed into a unit in another part is added
+ * at each end of a part.</p>
+ *
+ * <p>The split points are created by a {@link Paginator}. The data source is split
+ * more than once, therefore it must support this. Note that {@link SplitPointDataStream}
+ * doesn't.</p>
+ *
+ * @param <T> the type of split point units
+ * @param <U> the type of data source
+ */
+public final class Partitioner<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+	private final U data;
+	private final SplitOption[] options;
+	private final SplitOptions opts;
+	private final boolean trimLeading;
+	private final float minSize;
+	private final float maxSize;
+
+	/**
+	 * Provides a builder for partitioners.
+	 *
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 */
+	public static class Builder<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
+		private final U data;
+		private SplitOption[] options = new SplitOption[0];
+		private boolean trimLeading = false;
+		private float minSize = 0;
+		private float maxSize = Float.MAX_VALUE;
+
+		private Builder(U data) {
+			this.data = data;
+		}
+
+		/**
+		 * Sets the split options to use for every split point. Note that
+		 * {@link LookBackSplitOption} doesn't apply.
+		 * @param options the split options
+		 * @return this builder
+		 */
+		public Builder<T, U> options(SplitOption ... options) {
+			this.options = options;
+			return this;
+		}
+
+		/**
+		 * Sets whether or not leading skippable units should be removed before
+		 * each split point. The default is false.
+		 * @param value true if leading skippable units should be removed, false otherwise
+		 * @return this builder
+		 * @see Paginator.Builder#trimLeading(boolean)
+		 */
+		public Builder<T, U> trimLeading(boolean value) {
+			this.trimLeading = value;
+			return this;
+		}
+
+		/**
+		 * Sets the preferred minimum size of a part. Parts are filled to at least
+		 * this size, if possible, even if this makes the last part smaller than the
+		 * average. The default is 0.
+		 * @param value the minimum size
+		 * @return this builder
+		 */
+		public Builder<T, U> minSize(float value) {
+			this.minSize = value;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum size of a part. If the data can't be divided into
+		 * the requested number of parts of this size, more parts are used.
+		 * The default is no limit.
+		 * @param value the maximum size
+		 * @return this builder
+		 * @throws IllegalArgumentException if the value isn't greater than zero
+		 */
+		public Builder<T, U> maxSize(float value) {
+			if (value<=0) {
+				throw new IllegalArgumentException("Value must be greater than zero: " + value);
+			}
+			this.maxSize = value;
+			return this;
+		}
+
+		/**
+		 * Builds a new partitioner using the current configuration of this builder.
+		 * @return a new {@link Partitioner}
+		 */
+		public Partitioner<T, U> build() {
+			return new Partitioner<>(this);
+		}
+	}
+
+	/**
+	 * Creates a new {@link Partitioner.Builder}.
+	 * @param data the data to divide
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return a new builder
+	 */
+	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> Builder<T, U> builder(U data) {
+		return new Builder<>(data);
+	}
+
+	private Partitioner(Builder<T, U> builder) {
+		this.data = builder.data;
+		this.options = builder.options;
+		this.opts = SplitOptions.parse(builder.options);
+		this.trimLeading = builder.trimLeading;
+		this.minSize = builder.minSize;
+		this.maxSize = builder.maxSize;
+	}
+
+	/**
+	 * <p>Divides the data into the specified number of parts, or fewer if
+	 * the data can't be divided further. The size of the largest part is as
+	 * small as possible. The remaining parts are made as close to the average
+	 * size of the remaining data as possible, without exceeding this size.</p>
+	 *
+	 * <p>If a unit doesn't fit in a part of the maximum size, the division stops.
+	 * In this case, the last split point has an empty head and the remaining
+	 * units in its tail.</p>
+	 *
+	 * @param parts the number of parts
+	 * @return returns the split points, one for each part
+	 * @throws IllegalArgumentException if the number of parts is less than one
+	 */
+	public List<SplitPoint<T, U>> partition(int parts) {
+		if (parts<1) {
+			throw new IllegalArgumentException("Number of parts must be at least one: " + parts);
+		}
+		Measurements m = new Measurements();
+		float size = maxSize;
+		if (m.count(0, maxSize, parts)<=parts) {
+			// Find the smallest size that requires no more than the specified number
+			// of parts. The bisection stops when there are no more float values
+			// between the bounds.
+			float low = 0;
+			float high = Math.min(maxSize, (float)m.size(m.skipLeading(0), m.units));
+			while (true) {
+				float mid = low+(high-low)/2;
+				if (mid<=low || mid>=high) {
+					break;
+				} else if (m.count(0, mid, parts)<=parts) {
+					high = mid;
+				} else {
+					low = mid;
+				}
+			}
+			size = high;
+		}
+		return split(m, size, parts);
+	}
+
+	/**
+	 * Creates the split points, making each part as close to the average size
+	 * of the remaining data as possible, while making sure that the remaining
+	 * data fits in the remaining parts.
+	 * @param size the maximum size of a part
+	 */
+	private List<SplitPoint<T, U>> split(Measurements m, float size, int parts) {
+		Paginator<T, U> p = Paginator.builder(data)
+				.options(options)
+				.trimLeading(trimLeading)
+				.build();
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		int position = 0;
+		while (p.hasNext()) {
+			int start = m.skipLeading(position);
+			// the remaining parts, including this one
+			int left = parts-ret.size();
+			int end = m.next(start, size);
+			if (left>1 && end>start && end<m.units) {
+				float target = Math.min(size, Math.max(minSize, (float)(m.prefix[m.units]-m.prefix[start])/left));
+				int balanced = m.next(start, target);
+				if (balanced>start && m.count(balanced, size, left-1)<=left-1) {
+					end = balanced;
+				}
+			}
+			SplitPoint<T, U> sp = p.next(m.toSpecification(start, end));
+			if (start==m.units && !ret.isEmpty()) {
+				// only skippable units remain, they are added to the last part
+				SplitPoint<T, U> last = ret.remove(ret.size()-1);
+				List<T> discarded = new ArrayList<>(last.discardedView());
+				discarded.addAll(sp.discardedView());
+				sp = new SplitPoint<>(last.headView(), last.supplementsView(), sp.getTail(), discarded, last.isHardBreak(), true);
+			}
+			ret.add(sp);
+			if (end<=start && start<m.units) {
+				// the next unit doesn't fit
+				break;
+			}
+			position = Math.max(start, end);
+		}
+		return ret;
+	}
+
+	/**
+	 * Provides the cumulative sizes of the units and the positions where the data can be divided.
+	 */
+	private class Measurements {
+		private final int units;
+		private final SplitPointColumns columns;
+		// the size of the units before each position
+		private final double[] prefix;
+		// the last position, at or before each position, that follows a breakable unit, or -1
+		private final int[] previousBreak;
+		// the size of the largest unit in the collapsed units that start at each position
+		private final double[] leading;
+		// the size of the largest unit in the collapsed units that end at each position
+		private final double[] trailing;
+
+		private Measurements() {
+			this.units = data.getSize(Integer.MAX_VALUE);
+			this.columns = DataSourceColumns.of(data);
+			this.prefix = new double[units+1];
+			this.previousBreak = new int[units+1];
+			this.leading = new double[units+1];
+			this.trailing = new double[units+1];
+			DiscardStep<T> step = new DiscardStep<>();
+			SplitPointHandler.findCollapse(data, step);
+			BitSet discarded = new BitSet(units);
+			for (int i=0; i<step.getCount(); i++) {
+				discarded.set(step.getDiscarded()[i]);
+			}
+			SupplementTracker<T> supplements = SupplementTracker.create(data, columns);
+			previousBreak[0] = -1;
+			for (int i=0; i<units; i++) {
+				// a tracker that nothing has been added to gives the full size of the supplements
+				double s = supplements.peek(i, 0);
+				if (!discarded.get(i)) {
+					s += columns.getUnitSize(i);
+				}
+				prefix[i+1] = prefix[i]+s;
+				previousBreak[i+1] = columns.isBreakable(i)?i+1:previousBreak[i];
+				trailing[i+1] = discarded.get(i)?Math.max(trailing[i], columns.getUnitSize(i)):0;
+			}
+			// Collapsed units at the start or end of a part may have collapsed into a unit
+			// in another part. In that case, one of them is included in this part instead.
+			for (int i=units-1; i>=0; i--) {
+				leading[i] = discarded.get(i)?Math.max(leading[i+1], columns.getUnitSize(i)):0;
+			}
+		}
+
+		private int skipLeading(int position) {
+			int ret = position;
+			if (trimLeading) {
+				while (ret<units && columns.isSkippable(ret)) {
+					ret++;
+				}
+			}
+			return ret;
+		}
+
+		/**
+		 * Gets the size of the units from start to end, without trailing skippable units.
+		 */
+		private double size(int start, int end) {
+			int last = end;
+			if (opts.trimTrailing) {
+				while (last>start && columns.isSkippable(last-1)) {
+					last--;
+				}
+			}
+			double ret = prefix[last]-prefix[start];
+			if (last>start) {
+				ret += leading[start]+trailing[last];
+				if (opts.useLastUnitSize) {
+					ret += Math.max(0, columns.getLastUnitSize(last-1)-columns.getUnitSize(last-1));
+				}
+			}
+			return ret;
+		}
+
+		/**
+		 * Finds the end of a part.
+		 * @param start the start of the part, after leading skippable units
+		 * @param limit the maximum size of the part
+		 * @return returns the end of the part, or start if the first unit doesn't fit
+		 * 		or if there is no breakable unit and force isn't allowed
+		 */
+		private int next(int start, float limit) {
+			if (size(start, units)<=limit) {
+				return units;
+			}
+			// the last position where the units before it fit
+			int low = start;
+			int high = units;
+			while (low<high) {
+				int mid = (low+high+1)>>>1;
+				if (prefix[mid]-prefix[start]<=limit) {
+					low = mid;
+				} else {
+					high = mid-1;
+				}
+			}
+			int fits = low;
+			// skippable units after the last unit that fits are allowed, as on a page
+			int end = fits;
+			while (end<units && columns.isSkippable(end)) {
+				end++;
+			}
+			int ret = previousBreak[end];
+			while (ret>start && size(start, ret)>limit) {
+				ret = previousBreak[ret-1];
+			}
+			if (ret>start) {
+				return ret;
+			} else if (opts.useForce) {
+				ret = fits;
+				while (ret>start && size(start, ret)>limit) {
+					ret--;
+				}
+				return ret;
+			} else {
+				return start;
+			}
+		}
+
+		/**
+		 * Counts the number of parts of the specified size that are needed
+		 * for the data from the specified position, or returns a value greater than
+		 * max if more than max parts are needed or if a unit doesn't fit.
+		 */
+		private int count(int position, float limit, int max) {
+			int ret = 0;
+			int start = skipLeading(position);
+			while (start<units) {
+				if (ret==max) {
+					return max+1;
+				}
+				int end = next(start, limit);
+				if (end==start) {
+					return Integer.MAX_VALUE;
+				}
+				ret++;
+				start = skipLeading(end);
+			}
+			return ret;
+		}
+
+		private SplitPointSpecification toSpecification(int start, int end) {
+			if (start==units) {
+				return SplitPointSpecification.empty();
+			} else if (end==units) {
+				return SplitPointSpecification.all();
+			} else if (end==start) {
+				return SplitPointSpecification.none();
+			} else {
+				return new SplitPointSpecification(end-start, !columns.isBreakable(end-1), opts.trimTrailing);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Provides a size index backed by arrays. Tails of the index share
+ * the arrays with the original.
+ */
+final class SizeIndex implements SplitPointSizeIndex {
+	private final double[] sizeBefore;
+	private final int[] irregular;
+	private final int irregularCount;
+	private final int[] supplementary;
+	private final int supplementaryCount;
+	private final int offset;
+
+	private SizeIndex(double[] sizeBefore, int[] irregular, int irregularCount, int[] supplementary, int supplementaryCount, int offset) {
+		this.sizeBefore = sizeBefore;
+		this.irregular = irregular;
+		this.irregularCount = irregularCount;
+		this.supplementary = supplementary;
+		this.supplementaryCount = supplementaryCount;
+		this.offset = offset;
+	}
+
+	static SizeIndex build(List<? extends SplitPointUnit> units) {
+		int size = units.size();
+		double[] sizeBefore = new double[size+1];
+		int[] irregular = new int[size];
+		int[] supplementary = new int[size];
+		int irregularCount = 0;
+		int supplementaryCount = 0;
+		double sum = 0;
+		int i = 0;
+		for (SplitPointUnit unit : units) {
+			sizeBefore[i] = sum;
+			sum += unit.getUnitSize();
+			if (hasSupplements(unit)) {
+				supplementary[supplementaryCount++] = i;
+			}
+			if (isIrregular(unit)) {
+				irregular[irregularCount++] = i;
+			}
+			i++;
+		}
+		sizeBefore[size] = sum;
+		return new SizeIndex(sizeBefore, irregular, irregularCount, supplementary, supplementaryCount, 0);
+	}
+
+	static SizeIndex build(SplitPointColumns columns) {
+		int size = columns.getUnitCount();
+		double[] sizeBefore = new double[size+1];
+		int[] irregular = new int[size];
+		int[] supplementary = new int[size];
+		int irregularCount = 0;
+		int supplementaryCount = 0;
+		double sum = 0;
+		for (int i=0; i<size; i++) {
+			sizeBefore[i] = sum;
+			sum += columns.getUnitSize(i);
+			if (columns.hasSupplementaryIDs(i)) {
+				supplementary[supplementaryCount++] = i;
+			}
+			if (columns.hasSupplementaryIDs(i) || columns.isCollapsible(i) || columns.getLastUnitSize(i)>columns.getUnitSize(i)) {
+				irregular[irregularCount++] = i;
+			}
+		}
+		sizeBefore[size] = sum;
+		return new SizeIndex(sizeBefore, irregular, irregularCount, supplementary, supplementaryCount, 0);
+	}
+
+	static boolean hasSupplements(SplitPointUnit unit) {
+		List<String> ids = unit.getSupplementaryIDs();
+		return ids!=null && !ids.isEmpty();
+	}
+
+	/**
+	 * Returns true if the unit cannot be measured using the unit size alone.
+	 * @param unit the unit
+	 * @return returns true if the unit is irregular, false otherwise
+	 * @see SplitPointSizeIndex#nextIrregularUnit(int)
+	 */
+	static boolean isIrregular(SplitPointUnit unit) {
+		return hasSupplements(unit) || unit.isCollapsible() || unit.getLastUnitSize()>unit.getUnitSize();
+	}
+
+	/**
+	 * Gets an index for the units starting at the specified index.
+	 * @param fromIndex the index, relative to this index
+	 * @return returns a new index
+	 */
+	SizeIndex tail(int fromIndex) {
+		if (fromIndex==0) {
+			return this;
+		}
+		return new SizeIndex(sizeBefore, irregular, irregularCount, supplementary, supplementaryCount, offset+fromIndex);
+	}
+
+	@Override
+	public int getUnitCount() {
+		return sizeBefore.length-1-offset;
+	}
+
+	@Override
+	public double getSizeBefore(int index) {
+		if (index<0 || index>getUnitCount()) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return sizeBefore[offset+index]-sizeBefore[offset];
+	}
+
+	@Override
+	public int nextIrregularUnit(int fromIndex) {
+		return next(irregular, irregularCount, fromIndex);
+	}
+
+	@Override
+	public int nextSupplementaryUnit(int fromIndex) {
+		return next(supplementary, supplementaryCount, fromIndex);
+	}
+
+	private int next(int[] positions, int count, int fromIndex) {
+		int i = Arrays.binarySearch(positions, 0, count, offset+fromIndex);
+		if (i<0) {
+			i = -(i+1);
+		}
+		return (i<count?positions[i]:sizeBefore.length-1)-offset;
+	}
+
+}
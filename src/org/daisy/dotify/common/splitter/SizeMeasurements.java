@@ -0,0 +1,145 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.Arrays;
+
+/**
+ * Provides the measurements of a data source, as far as they have been made,
+ * so that the same data source can be measured for several break points
+ * without measuring the units more than once. There are two independent
+ * measurements. The total size of the units, where collapsible units are
+ * included, determines if all units fit. Otherwise, the size of the units
+ * after collapsing determines the last unit that fits.
+ *
+ * <p>The units are always measured one at a time, which means that a size
+ * index provided by the data source isn't used. Instances are not thread safe.</p>
+ *
+ * @param <T> the type of split point units
+ */
+class SizeMeasurements<T extends SplitPointUnit> {
+	private final SplitPointDataSource<T, ?> data;
+	private final boolean useLastUnitSize;
+	private final SplitPointColumns columns;
+	// the total size of the units before totalEnd
+	private final SupplementTracker<T> totalSupplements;
+	private float total = 0;
+	private int totalEnd = 0;
+	// the units examined by the collapsing scan, where maxSize[i] is the largest size
+	// that has been compared to the break point when unit i, or a previous unit, was examined
+	private final SizeStep<T> step;
+	private final CollapseScanner<T> scanner;
+	private float[] maxSize = new float[64];
+	private boolean scanned = false;
+
+	/**
+	 * Creates new measurements for the specified data source.
+	 * @param data the data source
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 */
+	SizeMeasurements(SplitPointDataSource<T, ?> data, boolean useLastUnitSize) {
+		this.data = data;
+		this.useLastUnitSize = useLastUnitSize;
+		this.columns = DataSourceColumns.of(data);
+		this.totalSupplements = SupplementTracker.create(data, columns);
+		this.step = new SizeStep<>(Float.POSITIVE_INFINITY, data, useLastUnitSize);
+		this.scanner = new CollapseScanner<>(data, step);
+	}
+
+	/**
+	 * Returns true if the total size of the units is less than or equal to the limit.
+	 * @param limit the limit
+	 * @return returns true if all units fit, false otherwise
+	 */
+	boolean fits(float limit) {
+		// same as SplitPointHandler.totalSize, but resumed where the previous call stopped
+		for (; data.hasElementAt(totalEnd) && total<=limit; totalEnd++) {
+			total = totalSupplements.add(totalEnd, total);
+			//last unit?
+			if (useLastUnitSize && !data.hasElementAt(totalEnd+1)) {
+				total += columns.getLastUnitSize(totalEnd);
+			} else {
+				total += columns.getUnitSize(totalEnd);
+			}
+		}
+		return total<=limit;
+	}
+
+	/**
+	 * Returns true if the total size of the units is less than or equal to the limit,
+	 * adding the units that are measured in this call to the event.
+	 * @param limit the limit
+	 * @param event the event, may be null
+	 * @return returns true if all units fit, false otherwise
+	 */
+	boolean fits(float limit, SplitPointEvent event) {
+		if (event==null) {
+			return fits(limit);
+		}
+		int start = totalEnd;
+		int lookups = totalSupplements.lookups;
+		boolean ret = fits(limit);
+		event.totalSizeUnits += totalEnd-start;
+		event.supplementLookups += totalSupplements.lookups-lookups;
+		return ret;
+	}
+
+	/**
+	 * Finds the index for the last unit that fits into the given space, adding
+	 * the units that are measured in this call to the event.
+	 * @param limit the limit
+	 * @param event the event, may be null
+	 * @return returns the index for the last unit
+	 */
+	int lastUnitBefore(float limit, SplitPointEvent event) {
+		if (event==null) {
+			return lastUnitBefore(limit);
+		}
+		int start = scanner.getPosition();
+		int discarded = scanner.getDiscardedCount();
+		int lookups = step.getSupplementLookups();
+		int ret = lastUnitBefore(limit);
+		event.collapseUnits += scanner.getPosition()-start;
+		event.discardedUnits += scanner.getDiscardedCount()-discarded;
+		event.supplementLookups += step.getSupplementLookups()-lookups;
+		return ret;
+	}
+
+	/**
+	 * Finds the index for the last unit that fits into the given space.
+	 * @param limit the limit
+	 * @return returns the index for the last unit
+	 */
+	int lastUnitBefore(float limit) {
+		int count = scanner.getPosition()+1;
+		if (count>0 && maxSize[count-1]>limit) {
+			// find the first unit that overflows
+			int low = 0;
+			int high = count-1;
+			while (low<high) {
+				int mid = (low+high)>>>1;
+				if (maxSize[mid]>limit) {
+					high = mid;
+				} else {
+					low = mid+1;
+				}
+			}
+			return low-1;
+		}
+		while (!scanned && scanner.next()) {
+			int i = scanner.getPosition();
+			float size = step.getSize(scanner.getPending());
+			if (i>=maxSize.length) {
+				maxSize = Arrays.copyOf(maxSize, Math.max(maxSize.length*2, i+1));
+			}
+			// units that the scanner discarded without examining them have the same
+			// size as the last unit that was examined
+			Arrays.fill(maxSize, count, i, count>0?maxSize[count-1]:0);
+			count = i+1;
+			maxSize[i] = i>0?Math.max(maxSize[i-1], size):size;
+			if (size>limit) {
+				return i-1;
+			}
+		}
+		scanned = true;
+		return scanner.getPosition();
+	}
+}
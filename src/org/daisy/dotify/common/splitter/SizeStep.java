@@ -1,84 +1,97 @@
 package org.daisy.dotify.common.splitter;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 class SizeStep<T extends SplitPointUnit> implements StepForward<T> {
 	private float size = 0;
-	private final Supplements<T> map;
-	private final Set<String> ids;
+	private final SplitPointColumns columns;
+	private final SupplementTracker<T> supplements;
 	private final float breakPoint;
 	private final boolean useLastUnitSize;
-	private T lastUnit;
-	private boolean hasSupplements;
+	private final SplitPointSizeIndex index;
+	private int lastUnit = -1;
 	
-	SizeStep(float breakPoint, Supplements<T> map, boolean useLastUnitSize) {
+	SizeStep(float breakPoint, SplitPointDataSource<T, ?> data, boolean useLastUnitSize) {
+		this(breakPoint, data, useLastUnitSize, null);
+	}
+
+	SizeStep(float breakPoint, SplitPointDataSource<T, ?> data, boolean useLastUnitSize, SplitPointSizeIndex index) {
 		this.breakPoint = breakPoint;
 		this.useLastUnitSize = useLastUnitSize;
-		this.map = map;
-		this.ids = new HashSet<>();
-		this.hasSupplements = false;
+		this.index = index;
+		this.columns = DataSourceColumns.of(data);
+		this.supplements = SupplementTracker.create(data, columns);
 	}
 
 	@Override
-	public void addUnit(T unit) {
-		if (lastUnit!=null) {
-			size+=lastUnit.getUnitSize();
-			lastUnit = null;
-		}
-		List<String> idList = unit.getSupplementaryIDs();
-		if (idList!=null) {
-			for (String id : idList) {
-				if (ids.add(id)) { //id didn't already exist in the list
-					T item = map.get(id);
-					if (item!=null) {
-						if (!hasSupplements) {
-							hasSupplements = true;
-							size+=map.getOverhead();
-						}
-						size+=item.getUnitSize();
-					}
-				}
-			}
+	public void addUnit(int unit) {
+		if (lastUnit>=0) {
+			size+=columns.getUnitSize(lastUnit);
+			lastUnit = -1;
 		}
+		size = supplements.add(unit, size);
 		lastUnit=unit;
 	}
 
 	@Override
-	public boolean overflows(T buffer) {
+	public boolean overflows(int buffer) {
+		return getSize(buffer)>breakPoint;
+	}
+
+	/**
+	 * Gets the size of the units included so far, followed by the specified unit.
+	 * @param buffer the index of the unit, or -1 to get the size of the units 
+	 * 			included so far
+	 * @return returns the size
+	 */
+	float getSize(int buffer) {
 		return size+(
-				buffer!=null?
-						lastUnitSize(buffer) + (lastUnit!=null?lastUnit.getUnitSize():0):
-						lastUnit!=null?(useLastUnitSize?lastUnit.getLastUnitSize():lastUnit.getUnitSize()):0
-					)>breakPoint;
+				buffer>=0?
+						lastUnitSize(buffer) + (lastUnit>=0?columns.getUnitSize(lastUnit):0):
+						lastUnit>=0?(useLastUnitSize?columns.getLastUnitSize(lastUnit):columns.getUnitSize(lastUnit)):0
+					);
 	}
 	
-	private float lastUnitSize(T b) {
-		float ret = 0;
-		List<String> idList = b.getSupplementaryIDs();
-		if (idList!=null) {
-			boolean hasAddedOverhead = hasSupplements; 
-			for (String id : idList) {
-				if (!ids.contains(id)) { //id didn't already exist in the list
-					T item = map.get(id);
-					if (item!=null) {
-						if (!hasAddedOverhead) {
-							hasAddedOverhead = true;
-							ret+=map.getOverhead();
-						}
-						ret+=item.getUnitSize();
-					}
-				}
+	private float lastUnitSize(int b) {
+		float ret = supplements.peek(b, 0);
+		ret += useLastUnitSize?columns.getLastUnitSize(b):columns.getUnitSize(b);
+		return ret;
+	}
+
+	@Override
+	public int skip(int from) {
+		if (index==null) {
+			return from;
+		}
+		int to = index.nextIrregularUnit(from);
+		if (to<=from) {
+			return from;
+		}
+		// The units before "to" are neither collapsible nor have supplements, and their
+		// last unit size doesn't exceed the unit size. Therefore, a unit can't overflow
+		// if the units up to and including it fit. The sizes are added in the same order
+		// as when the units are added one at a time, so that the result is the same.
+		int i = from;
+		for (; i<to; i++) {
+			float next = lastUnit>=0?size+columns.getUnitSize(lastUnit):size;
+			if (next+columns.getUnitSize(i)>breakPoint) {
+				break;
 			}
+			size = next;
+			lastUnit = i;
 		}
-		ret += useLastUnitSize?b.getLastUnitSize():b.getUnitSize();
-		return ret;
+		return i;
 	}
 
 	@Override
-	public void addDiscarded(T unit) {
+	public void addDiscarded(int unit) {
 		//Nothing to do
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Gets the number of supplement references that have been examined.
+	 * @return returns the number of references
+	 */
+	int getSupplementLookups() {
+		return supplements.lookups;
+	}
+
+}
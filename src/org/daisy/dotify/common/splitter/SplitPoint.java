@@ -1,11 +1,13 @@
 package org.daisy.dotify.common.splitter;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
- * Provides a data object to keep the information about a split point result.
+ * <p>Provides a data object to keep the information about a split point result.</p>
+ *
  * @param <T> the type of split point units 
  * @param <U> the type of data source
  * @author Joel Håkansson
@@ -17,6 +19,11 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 	private final U tail;
 	private final List<T> discarded;
 	private final boolean hardBreak;
+	// true if the lists are views of the data source, which are copied when they are first requested
+	private final boolean views;
+	private List<T> headCopy = null;
+	private List<T> supplementsCopy = null;
+	private List<T> discardedCopy = null;
 
 	/**
 	 * Create a new SplitPoint.
@@ -27,6 +34,21 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 	 * @param hardBreak set to true if a break point could not be achieved with respect for break point boundaries 
 	 */
 	public SplitPoint(List<T> head, List<T> supplements, U tail, List<T> discarded, boolean hardBreak) {
+		this(head, supplements, tail, discarded, hardBreak, false);
+	}
+
+	/**
+	 * Create a new SplitPoint, where the lists can be views that are backed by the data source.
+	 * If so, the lists are copied when they are requested using the public methods, so that
+	 * they can be modified.
+	 * @param head the part of the original SplitPointUnit list that fits within the target breakpoint 
+	 * @param supplements a list of supplement units
+	 * @param tail the part of the original SplitPointUnit list that is left
+	 * @param discarded a list of discarded units
+	 * @param hardBreak set to true if a break point could not be achieved with respect for break point boundaries 
+	 * @param views true if the lists are views, false otherwise
+	 */
+	SplitPoint(List<T> head, List<T> supplements, U tail, List<T> discarded, boolean hardBreak, boolean views) {
 		if (head == null) {
 			head = Collections.emptyList();
 		}
@@ -42,22 +64,45 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 		this.tail = tail;
 		this.discarded = discarded;
 		this.hardBreak = hardBreak;
+		this.views = views;
 	}
 	
 	/**
 	 * Get the head part of the SplitPointUnit list
 	 * @return returns the head part of the SplitPointUnit list
 	 */
-	public List<T> getHead() {
-		return head;
+	public synchronized List<T> getHead() {
+		if (views && headCopy == null) {
+			headCopy = new ArrayList<>(head);
+		}
+		return headView();
+	}
+
+	/**
+	 * Gets the head without copying it.
+	 * @return returns the head, or its copy if it has been copied
+	 */
+	synchronized List<T> headView() {
+		return headCopy != null ? headCopy : head;
 	}
 	
 	/**
 	 * Gets the supplements.
 	 * @return returns the supplements
 	 */
-	public List<T> getSupplements() {
-		return supplements;
+	public synchronized List<T> getSupplements() {
+		if (views && supplementsCopy == null) {
+			supplementsCopy = new ArrayList<>(supplements);
+		}
+		return supplementsView();
+	}
+
+	/**
+	 * Gets the supplements without copying them.
+	 * @return returns the supplements, or their copy if they have been copied
+	 */
+	synchronized List<T> supplementsView() {
+		return supplementsCopy != null ? supplementsCopy : supplements;
 	}
 
 	/**
@@ -72,8 +117,19 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 	 * Gets discarded units
 	 * @return returns the discarded units, if any
 	 */
-	public List<T> getDiscarded() {
-		return discarded;
+	public synchronized List<T> getDiscarded() {
+		if (views && discardedCopy == null) {
+			discardedCopy = new ArrayList<>(discarded);
+		}
+		return discardedView();
+	}
+
+	/**
+	 * Gets the discarded units without copying them.
+	 * @return returns the discarded units, or their copy if they have been copied
+	 */
+	synchronized List<T> discardedView() {
+		return discardedCopy != null ? discardedCopy : discarded;
 	}
 	
 	/**
@@ -89,6 +145,9 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		List<T> discarded = discardedView();
+		List<T> head = headView();
+		List<T> supplements = supplementsView();
 		result = prime * result + ((discarded == null) ? 0 : discarded.hashCode());
 		result = prime * result + (hardBreak ? 1231 : 1237);
 		result = prime * result + ((head == null) ? 0 : head.hashCode());
@@ -109,28 +168,31 @@ public class SplitPoint<T extends SplitPointUnit, U extends SplitPointDataSource
 			return false;
 		}
 		SplitPoint<?, ?> other = (SplitPoint<?, ?>) obj;
+		List<T> discarded = discardedView();
+		List<T> head = headView();
+		List<T> supplements = supplementsView();
 		if (discarded == null) {
-			if (other.discarded != null) {
+			if (other.discardedView() != null) {
 				return false;
 			}
-		} else if (!discarded.equals(other.discarded)) {
+		} else if (!discarded.equals(other.discardedView())) {
 			return false;
 		}
 		if (hardBreak != other.hardBreak) {
 			return false;
 		}
 		if (head == null) {
-			if (other.head != null) {
+			if (other.headView() != null) {
 				return false;
 			}
-		} else if (!head.equals(other.head)) {
+		} else if (!head.equals(other.headView())) {
 			return false;
 		}
 		if (supplements == null) {
-			if (other.supplements != null) {
+			if (other.supplementsView() != null) {
 				return false;
 			}
-		} else if (!supplements.equals(other.supplements)) {
+		} else if (!supplements.equals(other.supplementsView())) {
 			return false;
 		}
 		if (tail == null) {
@@ -0,0 +1,364 @@
+package org.daisy.dotify.common.splitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.daisy.dotify.common.splitter.SplitPointHandler.SplitOptions;
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+
+/**
+ * <p>Provides a store of pagination checkpoints on disk. A checkpoint is the
+ * sequence of split point specifications of a pagination, stored in a compact
+ * binary format. When the same data is paginated again with the same
+ * configuration, the split points are created from the checkpoint with
+ * {@link SplitPointHandler#split(SplitPointSpecification, SplitPointDataSource)},
+ * without finding them.</p>
+ *
+ * <p>Checkpoints are identified by a key that is computed from the content of
+ * the data, see {@link #key(SplitPointDataSource, boolean, float, SplitOption...)}.
+ * Computing the key requires a single pass over the units, without measuring them
+ * against the break point or evaluating any costs.</p>
+ *
+ * @see #write(List, OutputStream)
+ */
+public final class SplitPointCheckpoints {
+	private static final Logger logger = Logger.getLogger(SplitPointCheckpoints.class.getCanonicalName());
+	private static final int VERSION = 1;
+	// codes for the types of specifications, INDEX specifications use the codes after these
+	private static final int ALL = 0;
+	private static final int NONE = 1;
+	private static final int EMPTY = 2;
+	private static final int INDEX = 3;
+	private final File directory;
+
+	/**
+	 * Creates a new store of checkpoints in the specified directory. The directory
+	 * is created when the first checkpoint is stored, if it doesn't exist.
+	 * @param directory the directory
+	 */
+	public SplitPointCheckpoints(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * <p>Paginates all data using the default cost function, in the same way as a
+	 * {@link Paginator} with the same configuration. If a checkpoint exists for the
+	 * data and configuration, the split points are created from it. Otherwise, the
+	 * data is paginated and a checkpoint is stored.</p>
+	 *
+	 * <p>If a unit doesn't fit on an empty page, the pagination stops. In this case,
+	 * the last split point has an empty head and the remaining units in its tail.</p>
+	 *
+	 * <p>The data source is split more than once if the checkpoint can't be used,
+	 * therefore it must support this. Note that {@link SplitPointDataStream} doesn't.</p>
+	 *
+	 * @param data the data to paginate
+	 * @param trimLeading true if leading skippable units should be removed, false otherwise
+	 * @param breakPoint the break point of every page
+	 * @param options the split options
+	 * @param <T> the type of split point units
+	 * @param <U> the type of data source
+	 * @return returns the split points
+	 * @throws IOException if the checkpoint couldn't be stored
+	 */
+	public <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> List<SplitPoint<T, U>> paginate(U data, boolean trimLeading, float breakPoint, SplitOption ... options) throws IOException {
+		String key = key(data, trimLeading, breakPoint, options);
+		List<SplitPointSpecification> specs = get(key);
+		if (specs!=null) {
+			List<SplitPoint<T, U>> ret = replay(data, trimLeading, options, specs);
+			if (ret!=null) {
+				return ret;
+			}
+			logger.warning("Checkpoint doesn't match the data: " + key);
+		}
+		Paginator<T, U> p = Paginator.builder(data)
+				.options(options)
+				.trimLeading(trimLeading)
+				.build();
+		specs = new ArrayList<>();
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		while (p.hasNext()) {
+			SplitPointSpecification spec = p.find(breakPoint);
+			specs.add(spec);
+			ret.add(p.next(spec));
+			if (spec.getType()==Type.NONE) {
+				// the next unit doesn't fit
+				break;
+			}
+		}
+		put(key, specs);
+		return ret;
+	}
+
+	/**
+	 * Creates the split points of a checkpoint.
+	 * @return returns the split points, or null if the checkpoint doesn't cover the data
+	 */
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> List<SplitPoint<T, U>> replay(U data, boolean trimLeading, SplitOption[] options, List<SplitPointSpecification> specs) {
+		Paginator<T, U> p = Paginator.builder(data)
+				.options(options)
+				.trimLeading(trimLeading)
+				.build();
+		List<SplitPoint<T, U>> ret = new ArrayList<>();
+		for (SplitPointSpecification spec : specs) {
+			if (!p.hasNext()) {
+				return null;
+			}
+			ret.add(p.next(spec));
+		}
+		if (p.hasNext() && (specs.isEmpty() || specs.get(specs.size()-1).getType()!=Type.NONE)) {
+			return null;
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the checkpoint with the specified key.
+	 * @param key the key
+	 * @return returns the split point specifications of the checkpoint, or null if
+	 * 		there is no checkpoint with the key or if it couldn't be read
+	 */
+	public List<SplitPointSpecification> get(String key) {
+		File f = new File(directory, key);
+		try (InputStream is = new BufferedInputStream(new FileInputStream(f))) {
+			return read(is);
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to read checkpoint: " + f, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a checkpoint with the specified key, replacing any existing checkpoint
+	 * with the same key. The checkpoint is written to a temporary file, which then
+	 * replaces the checkpoint file, so that a checkpoint is never partially written.
+	 * @param key the key
+	 * @param specs the split point specifications
+	 * @throws IOException if the checkpoint couldn't be written
+	 */
+	public void put(String key, List<SplitPointSpecification> specs) throws IOException {
+		Path dir = directory.toPath();
+		Files.createDirectories(dir);
+		Path tmp = Files.createTempFile(dir, key, ".tmp");
+		try {
+			try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+				write(specs, os);
+			}
+			Files.move(tmp, dir.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * <p>Computes a key for the pagination of the data with the specified configuration.
+	 * The key is a hash of the properties of the units that affect the pagination,
+	 * the sizes of the supplements that they refer to, the overhead of the supplements
+	 * and the configuration. Units with the same properties give the same key.</p>
+	 *
+	 * <p>For each collapsible unit, the key includes whether or not it collapses with
+	 * the largest preceding unit of its collapse group, in the same way as the units
+	 * are collapsed when they are paginated. The cost function isn't included, therefore
+	 * checkpoints for different cost functions must be stored separately.</p>
+	 *
+	 * @param data the data
+	 * @param trimLeading true if leading skippable units are removed, false otherwise
+	 * @param breakPoint the break point
+	 * @param options the split options
+	 * @return returns the key, a string of hexadecimal digits
+	 */
+	public static String key(SplitPointDataSource<?, ?> data, boolean trimLeading, float breakPoint, SplitOption ... options) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		SplitOptions opts = SplitOptions.parse(options);
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		buf.putInt(VERSION);
+		buf.put((byte)((trimLeading?1:0) | (opts.useForce?2:0) | (opts.trimTrailing?4:0) | (opts.useLastUnitSize?8:0)));
+		buf.putInt(opts.maxLookBack);
+		buf.putFloat(breakPoint);
+		Supplements<? extends SplitPointUnit> supplements = data.getSupplements();
+		buf.putDouble(supplements!=null?supplements.getOverhead():0);
+		// the largest unit of the current collapse group
+		SplitPointUnit max = null;
+		for (int i=0; data.hasElementAt(i); i++) {
+			SplitPointUnit u = data.get(i);
+			if (buf.remaining()<64) {
+				flush(md, buf);
+			}
+			float size = u.getUnitSize();
+			// same as CollapseScanner.next()
+			boolean collapses = false;
+			if (u.isCollapsible()) {
+				if (max!=null && max.collapsesWith(u)) {
+					collapses = true;
+					if (max.getUnitSize()<size) {
+						max = u;
+					}
+				} else {
+					max = u;
+				}
+			} else {
+				max = null;
+			}
+			float lastSize = u.getLastUnitSize();
+			List<String> ids = u.getSupplementaryIDs();
+			boolean hasIds = ids!=null && !ids.isEmpty();
+			// the flags are followed by the sizes and the supplements, if they apply
+			buf.put((byte)((u.isBreakable()?1:0) | (u.isSkippable()?2:0) | (u.isCollapsible()?4:0)
+					| (collapses?8:0) | (lastSize!=size?16:0) | (hasIds?32:0)));
+			buf.putFloat(size);
+			if (lastSize!=size) {
+				buf.putFloat(lastSize);
+			}
+			if (hasIds) {
+				buf.putInt(ids.size());
+				for (String id : ids) {
+					byte[] b = id.getBytes(StandardCharsets.UTF_8);
+					SplitPointUnit s = supplements!=null?supplements.get(id):null;
+					if (buf.remaining()<b.length+12) {
+						flush(md, buf);
+					}
+					if (buf.remaining()<b.length+12) {
+						md.update(b);
+					} else {
+						buf.put(b);
+					}
+					buf.putInt(b.length);
+					// a missing supplement is distinguished from an empty one
+					buf.putFloat(s!=null?s.getUnitSize():-1);
+				}
+			}
+		}
+		flush(md, buf);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static void flush(MessageDigest md, ByteBuffer buf) {
+		buf.flip();
+		md.update(buf);
+		buf.clear();
+	}
+
+	/**
+	 * <p>Writes split point specifications in a compact binary format. Each
+	 * specification is written as a variable length integer, which takes one
+	 * byte for indexes up to 30 and two bytes for indexes up to 4094.</p>
+	 *
+	 * <p>The stream isn't closed.</p>
+	 *
+	 * @param specs the split point specifications
+	 * @param os the output stream
+	 * @throws IOException if an I/O error occurs
+	 * @see #read(InputStream)
+	 */
+	public static void write(List<SplitPointSpecification> specs, OutputStream os) throws IOException {
+		os.write(VERSION);
+		writeVarLong(specs.size(), os);
+		for (SplitPointSpecification spec : specs) {
+			switch (spec.getType()) {
+				case ALL:
+					writeVarLong(ALL, os);
+					break;
+				case NONE:
+					writeVarLong(NONE, os);
+					break;
+				case EMPTY:
+					writeVarLong(EMPTY, os);
+					break;
+				default:
+					writeVarLong(INDEX + ((long)spec.getIndex()<<2 | (spec.isHard()?2:0) | (spec.shouldTrimTrailing()?1:0)), os);
+			}
+		}
+	}
+
+	/**
+	 * Reads split point specifications written by {@link #write(List, OutputStream)}.
+	 * The stream isn't closed.
+	 * @param is the input stream
+	 * @return returns the split point specifications
+	 * @throws IOException if an I/O error occurs or if the data isn't in the expected format
+	 */
+	public static List<SplitPointSpecification> read(InputStream is) throws IOException {
+		int version = is.read();
+		if (version!=VERSION) {
+			throw new IOException("Unsupported version: " + version);
+		}
+		long size = readVarLong(is);
+		if (size>Integer.MAX_VALUE) {
+			throw new IOException("Too many specifications: " + size);
+		}
+		List<SplitPointSpecification> ret = new ArrayList<>((int)Math.min(size, 1024));
+		for (long i=0; i<size; i++) {
+			long code = readVarLong(is);
+			if (code==ALL) {
+				ret.add(SplitPointSpecification.all());
+			} else if (code==NONE) {
+				ret.add(SplitPointSpecification.none());
+			} else if (code==EMPTY) {
+				ret.add(SplitPointSpecification.empty());
+			} else {
+				long value = code-INDEX;
+				long index = value>>>2;
+				if (index>Integer.MAX_VALUE) {
+					throw new IOException("Index out of bounds: " + index);
+				}
+				ret.add(new SplitPointSpecification((int)index, (value&2)!=0, (value&1)!=0));
+			}
+		}
+		return ret;
+	}
+
+	private static void writeVarLong(long value, OutputStream os) throws IOException {
+		long v = value;
+		while ((v & ~0x7FL)!=0) {
+			os.write((int)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		os.write((int)v);
+	}
+
+	private static long readVarLong(InputStream is) throws IOException {
+		long ret = 0;
+		for (int shift=0; shift<64; shift+=7) {
+			int b = is.read();
+			if (b<0) {
+				throw new EOFException();
+			}
+			ret |= (long)(b & 0x7F)<<shift;
+			if ((b & 0x80)==0) {
+				return ret;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+
+}
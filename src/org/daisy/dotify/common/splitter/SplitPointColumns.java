@@ -0,0 +1,65 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides the attributes of the units of a data source, by index. This
+ * allows the units to be examined without accessing each unit object.
+ * A data source that provides columns must cover all of its units, and the
+ * values must be the same as those returned by the units themselves.</p>
+ *
+ * <p>Indexes in this interface are relative to the data source that
+ * provided the columns.</p>
+ *
+ * @see SplitPointDataSource#getColumns()
+ */
+public interface SplitPointColumns {
+
+	/**
+	 * Gets the number of units.
+	 * @return returns the number of units
+	 */
+	public int getUnitCount();
+
+	/**
+	 * Gets the value of {@link SplitPointUnit#isBreakable()} for the unit at the specified index.
+	 * @param index the index
+	 * @return returns true if the unit is breakable, false otherwise
+	 */
+	public boolean isBreakable(int index);
+
+	/**
+	 * Gets the value of {@link SplitPointUnit#isSkippable()} for the unit at the specified index.
+	 * @param index the index
+	 * @return returns true if the unit is skippable, false otherwise
+	 */
+	public boolean isSkippable(int index);
+
+	/**
+	 * Gets the value of {@link SplitPointUnit#isCollapsible()} for the unit at the specified index.
+	 * @param index the index
+	 * @return returns true if the unit is collapsible, false otherwise
+	 */
+	public boolean isCollapsible(int index);
+
+	/**
+	 * Returns true if {@link SplitPointUnit#getSupplementaryIDs()} for the unit at the
+	 * specified index is neither null nor empty.
+	 * @param index the index
+	 * @return returns true if the unit has supplementary IDs, false otherwise
+	 */
+	public boolean hasSupplementaryIDs(int index);
+
+	/**
+	 * Gets the value of {@link SplitPointUnit#getUnitSize()} for the unit at the specified index.
+	 * @param index the index
+	 * @return returns the size of the unit
+	 */
+	public float getUnitSize(int index);
+
+	/**
+	 * Gets the value of {@link SplitPointUnit#getLastUnitSize()} for the unit at the specified index.
+	 * @param index the index
+	 * @return returns the size of the unit when placed last
+	 */
+	public float getLastUnitSize(int index);
+
+}
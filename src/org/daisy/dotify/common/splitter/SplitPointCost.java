@@ -18,5 +18,28 @@ public interface SplitPointCost<T extends SplitPointUnit> {
 	 * @return returns the cost
 	 */
 	public double getCost(SplitPointDataSource<T, ?> units, int index, int limit);
+
+	/**
+	 * <p>Returns a lower bound for the cost of breaking after any of the units with 
+	 * an index less than or equal to the specified index. In other words, the value
+	 * must be less than or equal to <code>getCost(units, i, limit)</code> for all 
+	 * <code>i&lt;=index</code>.</p>
+	 * 
+	 * <p>Split point units are evaluated backwards from the limit and the search stops
+	 * when no earlier unit can have a lower cost than the best breakable unit found so far.
+	 * A cost function that increases as the index decreases should implement this method,
+	 * since only a few units must then be evaluated.</p>
+	 * 
+	 * <p>The default implementation returns negative infinity, which means that
+	 * all units are evaluated.</p>
+	 * 
+	 * @param units the units
+	 * @param index the index
+	 * @param limit the maximum length to consider
+	 * @return returns a lower bound for the cost of the units up to and including the index
+	 */
+	public default double getLowerBound(SplitPointDataSource<T, ?> units, int index, int limit) {
+		return Double.NEGATIVE_INFINITY;
+	}
 	
 }
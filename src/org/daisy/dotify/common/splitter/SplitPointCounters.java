@@ -0,0 +1,150 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Provides a split point listener that adds up the events that it receives.
+ * To get the totals for a document, use one instance per document, or
+ * call {@link #reset()} between documents. Instances are thread safe.
+ */
+public final class SplitPointCounters implements SplitPointListener {
+	private final LongAdder finds = new LongAdder();
+	private final LongAdder splits = new LongAdder();
+	private final LongAdder totalSizeUnits = new LongAdder();
+	private final LongAdder collapseUnits = new LongAdder();
+	private final LongAdder costEvaluations = new LongAdder();
+	private final LongAdder costEvaluationsSaved = new LongAdder();
+	private final LongAdder discardedUnits = new LongAdder();
+	private final LongAdder supplementLookups = new LongAdder();
+	private final LongAdder elapsedNanos = new LongAdder();
+
+	@Override
+	public void findCompleted(SplitPointEvent event) {
+		finds.increment();
+		add(event);
+	}
+
+	@Override
+	public void splitCompleted(SplitPointEvent event) {
+		splits.increment();
+		add(event);
+	}
+
+	private void add(SplitPointEvent event) {
+		totalSizeUnits.add(event.getTotalSizeUnits());
+		collapseUnits.add(event.getCollapseUnits());
+		costEvaluations.add(event.getCostEvaluations());
+		costEvaluationsSaved.add(event.getCostEvaluationsSaved());
+		discardedUnits.add(event.getDiscardedUnits());
+		supplementLookups.add(event.getSupplementLookups());
+		elapsedNanos.add(event.getElapsedNanos());
+	}
+
+	/**
+	 * Gets the number of find events.
+	 * @return returns the number of events
+	 */
+	public long getFinds() {
+		return finds.sum();
+	}
+
+	/**
+	 * Gets the number of split events.
+	 * @return returns the number of events
+	 */
+	public long getSplits() {
+		return splits.sum();
+	}
+
+	/**
+	 * Gets the total number of units examined when determining whether all units fit.
+	 * @return returns the number of units
+	 * @see SplitPointEvent#getTotalSizeUnits()
+	 */
+	public long getTotalSizeUnits() {
+		return totalSizeUnits.sum();
+	}
+
+	/**
+	 * Gets the total number of units examined when collapsing units.
+	 * @return returns the number of units
+	 * @see SplitPointEvent#getCollapseUnits()
+	 */
+	public long getCollapseUnits() {
+		return collapseUnits.sum();
+	}
+
+	/**
+	 * Gets the total number of cost evaluations.
+	 * @return returns the number of cost evaluations
+	 * @see SplitPointEvent#getCostEvaluations()
+	 */
+	public long getCostEvaluations() {
+		return costEvaluations.sum();
+	}
+
+	/**
+	 * Gets the total number of cost evaluations saved.
+	 * @return returns the number of cost evaluations saved
+	 * @see SplitPointEvent#getCostEvaluationsSaved()
+	 */
+	public long getCostEvaluationsSaved() {
+		return costEvaluationsSaved.sum();
+	}
+
+	/**
+	 * Gets the total number of units discarded when collapsing units.
+	 * @return returns the number of units
+	 * @see SplitPointEvent#getDiscardedUnits()
+	 */
+	public long getDiscardedUnits() {
+		return discardedUnits.sum();
+	}
+
+	/**
+	 * Gets the total number of supplement references examined.
+	 * @return returns the number of references
+	 * @see SplitPointEvent#getSupplementLookups()
+	 */
+	public long getSupplementLookups() {
+		return supplementLookups.sum();
+	}
+
+	/**
+	 * Gets the total time spent, in nanoseconds.
+	 * @return returns the elapsed time
+	 * @see SplitPointEvent#getElapsedNanos()
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos.sum();
+	}
+
+	/**
+	 * Resets all counters to zero. Events that are added concurrently
+	 * may or may not be included in the counters after the reset.
+	 */
+	public void reset() {
+		finds.reset();
+		splits.reset();
+		totalSizeUnits.reset();
+		collapseUnits.reset();
+		costEvaluations.reset();
+		costEvaluationsSaved.reset();
+		discardedUnits.reset();
+		supplementLookups.reset();
+		elapsedNanos.reset();
+	}
+
+	/**
+	 * Returns the counters in a form suitable for logging.
+	 */
+	@Override
+	public String toString() {
+		return "SplitPointCounters [finds=" + getFinds() + ", splits=" + getSplits()
+				+ ", totalSizeUnits=" + getTotalSizeUnits() + ", collapseUnits=" + getCollapseUnits()
+				+ ", costEvaluations=" + getCostEvaluations() + ", costEvaluationsSaved=" + getCostEvaluationsSaved()
+				+ ", discardedUnits=" + getDiscardedUnits()
+				+ ", supplementLookups=" + getSupplementLookups() + ", elapsedNanos=" + getElapsedNanos() + "]";
+	}
+
+}
@@ -1,8 +1,11 @@
 package org.daisy.dotify.common.splitter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * Provides split point data
@@ -26,6 +29,8 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	private final List<T> units;
 	private final Supplements<T> supplements;
 	private final int offset;
+	private final SizeIndex index;
+	private final UnitColumns columns;
 
 	/**
 	 * Creates a new instance with the specified units
@@ -72,12 +77,67 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	 * @param supplements the supplements
 	 */
 	public SplitPointDataList(List<T> units, Supplements<T> supplements) {
-		this(units, supplements, 0);
+		this(units, supplements, 0, null, null);
 	}
 
-	private SplitPointDataList(List<T> units, Supplements<T> supplements, int offset) {
+	/**
+	 * <p>Creates a new instance with the specified units and supplements. The
+	 * instance is indexed, which allows the size of the units to be computed
+	 * without iterating over them, see {@link #getSizeIndex()}.</p>
+	 * <p>Creating the index requires a pass over all units, therefore this is
+	 * primarily useful for data sources that are split many times. Note that
+	 * the list of units must not be modified after this call.</p>
+	 * @param units the units
+	 * @param supplements the supplements
+	 * @param <T> the type of split point units
+	 * @return returns a new indexed instance
+	 */
+	public static <T extends SplitPointUnit> SplitPointDataList<T> indexed(List<T> units, Supplements<T> supplements) {
+		return new SplitPointDataList<>(units, supplements, 0, SizeIndex.build(units), null);
+	}
+
+	/**
+	 * <p>Creates a new instance with the specified units and supplements. The
+	 * attributes of the units are copied into arrays, which allows the units 
+	 * to be examined without accessing the unit objects, see {@link #getColumns()}.
+	 * The instance is also indexed, see {@link #indexed(List, Supplements)}.</p>
+	 * <p>Creating the columns requires a pass over all units, therefore this is
+	 * primarily useful for long sequences of units that are split many times. 
+	 * Note that neither the list of units nor the units may be modified after 
+	 * this call.</p>
+	 * @param units the units
+	 * @param supplements the supplements
+	 * @param <T> the type of split point units
+	 * @return returns a new instance with columns
+	 */
+	public static <T extends SplitPointUnit> SplitPointDataList<T> columnar(List<T> units, Supplements<T> supplements) {
+		UnitColumns columns = UnitColumns.build(units, supplements);
+		return new SplitPointDataList<>(units, supplements, 0, SizeIndex.build(columns), columns);
+	}
+
+	/**
+	 * Creates a new instance with the specified units, which are the first units
+	 * of a data source with the specified columns. If the columns were created by
+	 * {@link #columnar(List, Supplements)}, the new instance shares them. The new
+	 * instance has no supplements.
+	 * @param units the units
+	 * @param columns the columns of the data source, may be null
+	 * @param <T> the type of split point units
+	 * @return returns a new instance
+	 */
+	static <T extends SplitPointUnit> SplitPointDataList<T> headOf(List<T> units, SplitPointColumns columns) {
+		if (columns instanceof UnitColumns) {
+			return new SplitPointDataList<>(units, null, 0, null, ((UnitColumns)columns).head(units.size()));
+		} else {
+			return new SplitPointDataList<>(units);
+		}
+	}
+
+	private SplitPointDataList(List<T> units, Supplements<T> supplements, int offset, SizeIndex index, UnitColumns columns) {
 		this.units = units;
 		this.offset = offset;
+		this.index = index;
+		this.columns = columns;
 		if (supplements==null) {
 			this.supplements = emptySupplements();
 		} else {
@@ -127,9 +187,47 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 	 * @throws IndexOutOfBoundsException if the index is beyond the end of the stream
 	 */
 	public SplitPointDataList<T> tail(int fromIndex) {
-		return new SplitPointDataList<T>(units, supplements, offset+fromIndex);
+		return new SplitPointDataList<T>(units, supplements, offset+fromIndex, 
+				index!=null?index.tail(fromIndex):null, columns!=null?columns.tail(fromIndex):null);
 	}
 	
+	/**
+	 * <p>Divides the remaining units into segments, where each unit that matches
+	 * the predicate starts a new segment. The first unit always starts a segment.
+	 * The segments have the same supplements as this instance, and are indexed or
+	 * have columns if this instance does, see {@link #indexed(List, Supplements)} 
+	 * and {@link #columnar(List, Supplements)}.</p>
+	 * <p>This is useful together with {@link ParallelPaginator}, if the units that
+	 * match the predicate always start a new page.</p>
+	 * @param boundary the predicate that matches the first unit of a segment
+	 * @return returns the segments, in order
+	 */
+	public List<SplitPointDataList<T>> segments(Predicate<? super T> boundary) {
+		List<T> remaining = getRemaining();
+		List<SplitPointDataList<T>> ret = new ArrayList<>();
+		int start = 0;
+		for (int i=1; i<remaining.size(); i++) {
+			if (boundary.test(remaining.get(i))) {
+				ret.add(segment(remaining.subList(start, i)));
+				start = i;
+			}
+		}
+		if (start<remaining.size()) {
+			ret.add(segment(remaining.subList(start, remaining.size())));
+		}
+		return ret;
+	}
+
+	private SplitPointDataList<T> segment(List<T> segment) {
+		if (columns!=null) {
+			return columnar(segment, supplements);
+		} else if (index!=null) {
+			return indexed(segment, supplements);
+		} else {
+			return new SplitPointDataList<>(segment, supplements);
+		}
+	}
+
 	@Override
 	public SplitResult<T, SplitPointDataList<T>> splitInRange(int atIndex) {
 		return new DefaultSplitResult<T, SplitPointDataList<T>>(head(atIndex), tail(atIndex));
@@ -145,6 +243,16 @@ public final class SplitPointDataList<T extends SplitPointUnit> implements Split
 		return emptyManager();
 	}
 
+	@Override
+	public Optional<SplitPointSizeIndex> getSizeIndex() {
+		return Optional.ofNullable(index);
+	}
+
+	@Override
+	public Optional<SplitPointColumns> getColumns() {
+		return Optional.ofNullable(columns);
+	}
+
 	@Override
 	public SplitPointDataList<T> getDataSource() {
 		return this;
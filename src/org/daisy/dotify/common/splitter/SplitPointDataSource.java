@@ -2,6 +2,7 @@ package org.daisy.dotify.common.splitter;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Provides split point data source. Data provided by via this interface
@@ -105,4 +106,27 @@ public interface SplitPointDataSource<T extends SplitPointUnit, U extends SplitP
 	 */
 	public Supplements<T> getSupplements();
 
+	/**
+	 * Gets a size index for this data source, if available. The index
+	 * allows the size of a sequence of units to be computed without
+	 * iterating over the units. The default implementation returns an
+	 * empty optional.
+	 * @return returns the size index, or an empty optional if this data 
+	 * 			source isn't indexed
+	 */
+	public default Optional<SplitPointSizeIndex> getSizeIndex() {
+		return Optional.empty();
+	}
+
+	/**
+	 * Gets the attributes of the units of this data source in columns, if
+	 * available. The columns allow the units to be examined without accessing
+	 * the unit objects. The default implementation returns an empty optional.
+	 * @return returns the columns, or an empty optional if this data source
+	 * 			doesn't provide columns
+	 */
+	public default Optional<SplitPointColumns> getColumns() {
+		return Optional.empty();
+	}
+
 }
@@ -0,0 +1,214 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * <p>Provides split point data that is read from an iterator as it is needed.
+ * Units are pulled from the iterator when the data source is probed beyond
+ * the units that have already been read, and units are released when they
+ * are split off from the data source. As a result, only the units between
+ * the start of the data source and the furthest unit that has been probed
+ * are kept in memory, which, when paginating, is approximately one page.</p>
+ *
+ * <p>Unlike other data sources, a split data source should be considered
+ * consumed. After {@link #split(int)} or {@link #splitInRange(int)}, only
+ * the tail of the result may be used. Using the original data source, or
+ * any other data source that starts before the tail, throws an
+ * {@link IllegalStateException}. Note that {@link #getRemaining()} and
+ * {@link #getSize(int)} read all remaining units, if needed.</p>
+ *
+ * <p>Instances are not thread safe.</p>
+ *
+ * @param <T> the type of split point units
+ */
+public final class SplitPointDataStream<T extends SplitPointUnit> implements SplitPointDataSource<T, SplitPointDataStream<T>> {
+	private final Buffer<T> buffer;
+	private final Supplements<T> supplements;
+	// the position of this data source in the buffer
+	private final int offset;
+
+	/**
+	 * Creates a new instance with the specified units.
+	 * @param units the units
+	 */
+	public SplitPointDataStream(Iterator<T> units) {
+		this(units, null);
+	}
+
+	/**
+	 * Creates a new instance with the specified units and supplements.
+	 * @param units the units
+	 * @param supplements the supplements
+	 */
+	public SplitPointDataStream(Iterator<T> units, Supplements<T> supplements) {
+		this(new Buffer<>(units), supplements, 0);
+	}
+
+	private SplitPointDataStream(Buffer<T> buffer, Supplements<T> supplements, int offset) {
+		this.buffer = buffer;
+		this.supplements = supplements!=null?supplements:id->null;
+		this.offset = offset;
+	}
+
+	/**
+	 * Creates a new instance with units that are supplied by the specified producer.
+	 * The producer is called until it returns null, which marks the end of the units.
+	 * @param producer the producer
+	 * @param supplements the supplements
+	 * @param <T> the type of split point units
+	 * @return returns a new instance
+	 */
+	public static <T extends SplitPointUnit> SplitPointDataStream<T> from(Supplier<T> producer, Supplements<T> supplements) {
+		return new SplitPointDataStream<>(new Iterator<T>() {
+			private T next = null;
+			private boolean done = false;
+
+			@Override
+			public boolean hasNext() {
+				if (next==null && !done) {
+					next = producer.get();
+					done = next==null;
+				}
+				return next!=null;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T ret = next;
+				next = null;
+				return ret;
+			}
+		}, supplements);
+	}
+
+	@Override
+	public T get(int index) {
+		if (index<0 || !buffer.has(offset, offset+index)) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		return buffer.get(offset+index);
+	}
+
+	@Override
+	public List<T> getRemaining() {
+		buffer.has(offset, Integer.MAX_VALUE);
+		return buffer.copy(offset, buffer.end());
+	}
+
+	@Override
+	public SplitPointDataStream<T> createEmpty() {
+		return new SplitPointDataStream<>(Collections.emptyIterator(), supplements);
+	}
+
+	@Override
+	public SplitResult<T, SplitPointDataStream<T>> splitInRange(int atIndex) {
+		if (atIndex<0 || atIndex>0 && !buffer.has(offset, offset+atIndex-1)) {
+			throw new IndexOutOfBoundsException("Index: " + atIndex);
+		}
+		List<T> head = buffer.copy(offset, offset+atIndex);
+		buffer.release(offset+atIndex);
+		return new DefaultSplitResult<>(head, new SplitPointDataStream<>(buffer, supplements, offset+atIndex));
+	}
+
+	@Override
+	public SplitPointDataStream<T> getDataSource() {
+		return this;
+	}
+
+	@Override
+	public boolean hasElementAt(int index) {
+		return index>=0 && buffer.has(offset, offset+index);
+	}
+
+	@Override
+	public int getSize(int limit) {
+		if (limit<=0) {
+			return 0;
+		}
+		buffer.has(offset, limit<Integer.MAX_VALUE-offset?offset+limit-1:Integer.MAX_VALUE);
+		return Math.min(buffer.end()-offset, limit);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !buffer.has(offset, offset);
+	}
+
+	@Override
+	public Supplements<T> getSupplements() {
+		return supplements;
+	}
+
+	/**
+	 * Gets the number of units that are currently kept in memory.
+	 * @return returns the number of units
+	 */
+	int getBufferedCount() {
+		return buffer.end()-buffer.base;
+	}
+
+	/**
+	 * Provides the units that have been read from the iterator and not yet released,
+	 * shared by all data sources created from the same iterator.
+	 */
+	private static class Buffer<T> {
+		private final Iterator<T> source;
+		private final List<T> units = new ArrayList<>();
+		// the position of units[0]
+		private int base = 0;
+
+		private Buffer(Iterator<T> source) {
+			this.source = source;
+		}
+
+		/**
+		 * Returns true if there is a unit at the specified position, reading
+		 * units from the iterator as needed.
+		 * @param from the position of the data source that is used
+		 * @param position the position
+		 * @return returns true if there is a unit at the position, false otherwise
+		 * @throws IllegalStateException if the data source has been split after the position
+		 */
+		private boolean has(int from, int position) {
+			if (from<base) {
+				throw new IllegalStateException("The data source has already been split.");
+			}
+			while (end()<=position && source.hasNext()) {
+				units.add(source.next());
+			}
+			return position<end();
+		}
+
+		private T get(int position) {
+			return units.get(position-base);
+		}
+
+		private int end() {
+			return base+units.size();
+		}
+
+		private List<T> copy(int from, int to) {
+			return new ArrayList<>(units.subList(from-base, to-base));
+		}
+
+		/**
+		 * Releases the units before the specified position.
+		 * @param position the position
+		 */
+		private void release(int position) {
+			if (position>base) {
+				units.subList(0, position-base).clear();
+				base = position;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * Provides a description of the work performed by a {@link SplitPointHandler}
+ * in one call. Units that have been measured in a previous call, and whose
+ * measurements are reused, are not counted.
+ *
+ * @see SplitPointListener
+ */
+public final class SplitPointEvent {
+	int totalSizeUnits = 0;
+	int collapseUnits = 0;
+	int costEvaluations = 0;
+	int costEvaluationsSaved = 0;
+	int discardedUnits = 0;
+	int supplementLookups = 0;
+	private final long startNanos;
+	private long elapsedNanos = 0;
+
+	private SplitPointEvent() {
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Starts a new event, if there is a listener.
+	 * @param listener the listener, may be null
+	 * @return returns a new event, or null if the listener is null
+	 */
+	static SplitPointEvent start(SplitPointListener listener) {
+		return listener!=null?new SplitPointEvent():null;
+	}
+
+	/**
+	 * Stops the clock of this event.
+	 * @return returns this event
+	 */
+	SplitPointEvent stop() {
+		elapsedNanos = System.nanoTime()-startNanos;
+		return this;
+	}
+
+	/**
+	 * Gets the number of units that were examined when determining whether
+	 * all units fit.
+	 * @return returns the number of units
+	 */
+	public int getTotalSizeUnits() {
+		return totalSizeUnits;
+	}
+
+	/**
+	 * Gets the number of units that were examined when determining the last
+	 * unit that fits, with collapsible units taken into account, and when
+	 * collapsing the units of the result.
+	 * @return returns the number of units
+	 */
+	public int getCollapseUnits() {
+		return collapseUnits;
+	}
+
+	/**
+	 * Gets the number of times that the cost function was evaluated.
+	 * @return returns the number of cost evaluations
+	 */
+	public int getCostEvaluations() {
+		return costEvaluations;
+	}
+
+	/**
+	 * Gets the number of times that the cost function didn't have to be evaluated,
+	 * because of the cost function's lower bound or because of a
+	 * {@link LookBackSplitOption}, compared to evaluating every unit up to the
+	 * split position.
+	 * @return returns the number of cost evaluations saved
+	 */
+	public int getCostEvaluationsSaved() {
+		return costEvaluationsSaved;
+	}
+
+	/**
+	 * Gets the number of units that were discarded because they collapsed
+	 * with a larger unit.
+	 * @return returns the number of units
+	 */
+	public int getDiscardedUnits() {
+		return discardedUnits;
+	}
+
+	/**
+	 * Gets the number of supplement references that were examined. The supplements
+	 * of a split point are resolved when they are first accessed, which isn't
+	 * included in the event.
+	 * @return returns the number of references
+	 */
+	public int getSupplementLookups() {
+		return supplementLookups;
+	}
+
+	/**
+	 * Gets the time spent, in nanoseconds.
+	 * @return returns the elapsed time
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "SplitPointEvent [totalSizeUnits=" + totalSizeUnits + ", collapseUnits=" + collapseUnits
+				+ ", costEvaluations=" + costEvaluations + ", costEvaluationsSaved=" + costEvaluationsSaved
+				+ ", discardedUnits=" + discardedUnits
+				+ ", supplementLookups=" + supplementLookups + ", elapsedNanos=" + elapsedNanos + "]";
+	}
+
+}
@@ -1,9 +1,10 @@
 package org.daisy.dotify.common.splitter;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.daisy.dotify.common.collection.SplitList;
 import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
@@ -19,14 +20,20 @@ import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
  */
 public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> {
 	private final List<T> EMPTY_LIST = Collections.emptyList();
-	private final SplitPointCost<T> defaultCost = new SplitPointCost<T>() {
-		@Override
-		public double getCost(SplitPointDataSource<T, ?> data, int index, int breakpoint) {
-			// 1. the smaller the result, the higher the cost
-			// 2. breakable units are always preferred over forced ones
-			return (data.get(index).isBreakable()?1:2)*breakpoint-index;
-		}
-	};
+	final SplitPointCost<T> defaultCost = new DefaultCost<>();
+	/**
+	 * The number of costs that are computed in one call to a {@link BatchSplitPointCost}.
+	 * The first block has the minimum size and the size is doubled for each block,
+	 * up to the maximum size.
+	 */
+	private static final int MIN_COST_BLOCK_SIZE = 8;
+	private static final int MAX_COST_BLOCK_SIZE = 64;
+	/**
+	 * The largest relative error per unit of a sum of unit sizes that is added up as
+	 * floats, compared to the same sum in a size index, with a margin.
+	 */
+	private static final double ROUNDING_ERROR = 0x1p-22;
+	private volatile SplitPointListener listener = null;
 	
 	/**
 	 * Splits the data at, or before, the supplied breakPoint according to the rules
@@ -98,20 +105,14 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @throws IllegalArgumentException if cost is null
 	 */
 	public SplitPoint<T, U> split(float breakPoint, U data, SplitPointCost<T> cost, SplitOption ... options) {
-		SplitPointSpecification spec = find(breakPoint, data, cost, options);
-		if (cost==null) {
-			throw new IllegalArgumentException("Null cost not allowed.");
-		}
-		if (spec.getType()==Type.EMPTY) {
-			// pretty simple...
-			return new SplitPoint<>(EMPTY_LIST, EMPTY_LIST, data.createEmpty(), EMPTY_LIST, false);
-		} else if (spec.getType()==Type.NONE) {
-			return emptyHead(data);
-		} else if (spec.getType()==Type.ALL) {
-			return finalizeBreakpoint(new SplitList<>(data.getRemaining(), EMPTY_LIST), data.createEmpty(), data.getSupplements(), false);
-		} else {
-			return makeBreakpoint(data, spec);
+		SplitPointListener l = listener;
+		SplitPointEvent event = SplitPointEvent.start(l);
+		SplitPointSpecification spec = find(breakPoint, data, data.getSizeIndex().orElse(null), cost, SplitOptions.parse(options), event);
+		SplitPoint<T, U> ret = split(spec, data, event);
+		if (event!=null) {
+			l.splitCompleted(event.stop());
 		}
+		return ret;
 	}
 	
 	/**
@@ -126,15 +127,25 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point result
 	 */
 	public SplitPoint<T, U> split(SplitPointSpecification spec, U data) {
+		SplitPointListener l = listener;
+		SplitPointEvent event = SplitPointEvent.start(l);
+		SplitPoint<T, U> ret = split(spec, data, event);
+		if (event!=null) {
+			l.splitCompleted(event.stop());
+		}
+		return ret;
+	}
+
+	private SplitPoint<T, U> split(SplitPointSpecification spec, U data, SplitPointEvent event) {
 		if (spec.getType()==Type.EMPTY) {
 			// pretty simple...
 			return new SplitPoint<>(EMPTY_LIST, EMPTY_LIST, data.createEmpty(), EMPTY_LIST, false);
 		} else if (spec.getType()==Type.NONE) {
 			return emptyHead(data);
 		} else if (spec.getType()==Type.ALL) {
-			return finalizeBreakpoint(new SplitList<>(data.getRemaining(), EMPTY_LIST), data.createEmpty(), data.getSupplements(), false);
+			return finalizeBreakpoint(data.getRemaining(), data.createEmpty(), data.getSupplements(), data.getColumns().orElse(null), false, false, event);
 		} else {
-			return makeBreakpoint(data, spec);
+			return makeBreakpoint(data, spec, event);
 		}
 	}
 
@@ -163,7 +174,24 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns a split point specification
 	 */
 	public SplitPointSpecification find(float breakPoint, U data, SplitPointCost<T> cost, SplitOption ... options) {
-		SplitOptions opts = SplitOptions.parse(options);
+		return find(breakPoint, data, data.getSizeIndex().orElse(null), cost, SplitOptions.parse(options));
+	}
+
+	SplitPointSpecification find(float breakPoint, U data, SplitPointSizeIndex index, SplitPointCost<T> cost, SplitOptions opts) {
+		SplitPointListener l = listener;
+		SplitPointEvent event = SplitPointEvent.start(l);
+		SplitPointSpecification ret = find(breakPoint, data, index, cost, opts, event);
+		if (event!=null) {
+			l.findCompleted(event.stop());
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds a split point, adding the work performed to the event.
+	 * @param event the event, or null if there is no listener
+	 */
+	SplitPointSpecification find(float breakPoint, U data, SplitPointSizeIndex index, SplitPointCost<T> cost, SplitOptions opts, SplitPointEvent event) {
 		if (cost==null) {
 			throw new IllegalArgumentException("Null cost not allowed.");
 		}
@@ -172,24 +200,145 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 			return SplitPointSpecification.empty();
 		} else if (breakPoint<=0) {
 			return SplitPointSpecification.none();
-		} else if (fits(data, breakPoint, opts.useLastUnitSize)) {
+		} else if (fits(data, index, breakPoint, opts.useLastUnitSize, event)) {
 			return SplitPointSpecification.all();
 		} else {
-			int startPos = findCollapse(data, new SizeStep<>(breakPoint, data.getSupplements(), opts.useLastUnitSize));
+			SizeStep<T> step = new SizeStep<>(breakPoint, data, opts.useLastUnitSize, index);
+			int startPos = findCollapse(data, step, event);
+			if (event!=null) {
+				event.supplementLookups += step.getSupplementLookups();
+			}
 			// If no units are returned here it's because even the first unit doesn't fit.
 			// Therefore, force will not help.
 			if (startPos<0) {
 				return SplitPointSpecification.none();
 			} else {
-				return findBreakpoint(data, opts.useForce, startPos, cost, opts.trimTrailing);
+				return findBreakpoint(data, opts.useForce, startPos, cost, opts.trimTrailing, opts.maxLookBack, event);
 			}
 		}		
 	}
 	
-	private static class SplitOptions {
+	/**
+	 * Finds the split point with the lowest cost, given that the last unit that fits has
+	 * already been determined using the supplied measurements. The data must not be empty
+	 * and the break point must be greater than zero.
+	 */
+	SplitPointSpecification find(float breakPoint, U data, SizeMeasurements<T> m, SplitPointCost<T> cost, SplitOptions opts, SplitPointEvent event) {
+		int startPos;
+		synchronized (m) {
+			if (m.fits(breakPoint, event)) {
+				return SplitPointSpecification.all();
+			}
+			startPos = m.lastUnitBefore(breakPoint, event);
+		}
+		// If no units are returned here it's because even the first unit doesn't fit.
+		// Therefore, force will not help.
+		if (startPos<0) {
+			return SplitPointSpecification.none();
+		} else {
+			return findBreakpoint(data, opts.useForce, startPos, cost, opts.trimTrailing, opts.maxLookBack, event);
+		}
+	}
+
+	/**
+	 * Finds a split point at, or before, each of the supplied break points according to
+	 * the rules in the data. This is the same as calling 
+	 * {@link #find(float, SplitPointDataSource, SplitOption...)} for each break point, 
+	 * except that the units are only measured once.
+	 * 
+	 * @param breakPoints the split points
+	 * @param data the data to split
+	 * @param options the split options
+	 * @return returns a list with one split point specification for each break point,
+	 * 		in the same order as the break points
+	 */
+	public List<SplitPointSpecification> find(float[] breakPoints, U data, SplitOption ... options) {
+		return find(breakPoints, data, defaultCost, options);
+	}
+
+	/**
+	 * <p>Finds a split point at, or before, each of the supplied break points according to
+	 * the rules in the data. This is the same as calling 
+	 * {@link #find(float, SplitPointDataSource, SplitPointCost, SplitOption...)} for each
+	 * break point, except that the units are only measured once. The size of each unit
+	 * is recorded as the units are measured, up to the unit that doesn't fit within the
+	 * largest break point. The search for the split point with the lowest cost is 
+	 * performed once for each last unit that fits.</p>
+	 * 
+	 * <p>Unlike a call with a single break point, the size index of the data source
+	 * isn't used.</p>
+	 * 
+	 * @param breakPoints the split points
+	 * @param data the data to split
+	 * @param cost the cost function used when determining the optimal <i>forced</i> split point. In other words,
+	 * 		 the cost function is only used if there are no breakable units available.
+	 * @param options the split options
+	 * @return returns a list with one split point specification for each break point,
+	 * 		in the same order as the break points
+	 * @throws IllegalArgumentException if cost is null
+	 */
+	public List<SplitPointSpecification> find(float[] breakPoints, U data, SplitPointCost<T> cost, SplitOption ... options) {
+		if (cost==null) {
+			throw new IllegalArgumentException("Null cost not allowed.");
+		}
+		SplitOptions opts = SplitOptions.parse(options);
+		SplitPointListener l = listener;
+		SplitPointEvent event = SplitPointEvent.start(l);
+		List<SplitPointSpecification> ret = new ArrayList<>(breakPoints.length);
+		SizeMeasurements<T> m = null;
+		// break points with the same last unit have the same result
+		Map<Integer, SplitPointSpecification> found = new HashMap<>();
+		for (float breakPoint : breakPoints) {
+			if (data.isEmpty()) {
+				ret.add(SplitPointSpecification.empty());
+			} else if (breakPoint<=0) {
+				ret.add(SplitPointSpecification.none());
+			} else {
+				if (m==null) {
+					m = getMeasurements(data, opts.useLastUnitSize);
+				}
+				int startPos;
+				synchronized (m) {
+					if (m.fits(breakPoint, event)) {
+						ret.add(SplitPointSpecification.all());
+						continue;
+					}
+					startPos = m.lastUnitBefore(breakPoint, event);
+				}
+				SplitPointSpecification spec;
+				if (startPos<0) {
+					spec = SplitPointSpecification.none();
+				} else {
+					spec = found.get(startPos);
+					if (spec==null) {
+						spec = findBreakpoint(data, opts.useForce, startPos, cost, opts.trimTrailing, opts.maxLookBack, event);
+						found.put(startPos, spec);
+					}
+				}
+				ret.add(spec);
+			}
+		}
+		if (event!=null) {
+			l.findCompleted(event.stop());
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the measurements to use for the specified data source.
+	 * @param data the data source
+	 * @param useLastUnitSize true if the last unit size should be used for the last unit
+	 * @return returns the measurements
+	 */
+	SizeMeasurements<T> getMeasurements(U data, boolean useLastUnitSize) {
+		return new SizeMeasurements<>(data, useLastUnitSize);
+	}
+
+	static class SplitOptions {
 		boolean useForce = false;
 		boolean trimTrailing = true;
 		boolean useLastUnitSize = true;
+		int maxLookBack = Integer.MAX_VALUE;
 		static SplitOptions parse(SplitOption ... opts) {
 			SplitOptions result = new SplitOptions();
 			for (SplitOption option : opts) {
@@ -199,6 +348,8 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 					result.trimTrailing = false;
 				} else if (option==StandardSplitOption.NO_LAST_UNIT_SIZE) {
 					result.useLastUnitSize = false; 
+				} else if (option instanceof LookBackSplitOption) {
+					result.maxLookBack = ((LookBackSplitOption)option).getMaxUnits();
 				} else if (option == null) {
                    //no-op
 				} else {
@@ -211,29 +362,33 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	}
 	
 	private SplitPoint<T, U> emptyHead(U data) {
-		return finalizeBreakpoint(new SplitList<>(EMPTY_LIST, EMPTY_LIST), data, data.getSupplements(), false);
+		return new SplitPoint<>(EMPTY_LIST, EMPTY_LIST, data, EMPTY_LIST, false);
 	}
 	
-	private SplitPointSpecification findBreakpoint(U data, boolean force, int startPos, SplitPointCost<T> cost, boolean trimTrailing) {
+	SplitPointSpecification findBreakpoint(U data, boolean force, int startPos, SplitPointCost<T> cost, boolean trimTrailing, int maxLookBack, SplitPointEvent event) {
 		Supplements<T> map = data.getSupplements();
 		int strPos = forwardSkippable(data, startPos);
 		// check next unit to see if it can be removed.
 		if (!data.hasElementAt(strPos+1)) { // last unit?
 			return SplitPointSpecification.all();
 		} else {
-			return findBreakpointFromPosition(data, strPos, map, force, cost, trimTrailing);
+			return findBreakpointFromPosition(data, strPos, map, force, cost, trimTrailing, maxLookBack, event);
 		}
 	}
 
-	private SplitPoint<T, U> makeBreakpoint(U data, SplitPointSpecification spec) {
+	private SplitPoint<T, U> makeBreakpoint(U data, SplitPointSpecification spec, SplitPointEvent event) {
 		Supplements<T> map = data.getSupplements();
 		SplitResult<T, U> split = data.split(spec.getIndex());
-		return finalizeBreakpointFull(split, map, spec.isHard(), spec.shouldTrimTrailing());
+		return finalizeBreakpoint(split.head(), split.tail(), map, data.getColumns().orElse(null), spec.isHard(), spec.shouldTrimTrailing(), event);
 	}
 	
-	private SplitPointSpecification findBreakpointFromPosition(U data, int strPos, Supplements<T> map, boolean force, SplitPointCost<T> cost, boolean trimTrailing) {
+	private SplitPointSpecification findBreakpointFromPosition(U data, int strPos, Supplements<T> map, boolean force, SplitPointCost<T> cost, boolean trimTrailing, int maxLookBack, SplitPointEvent event) {
 		// back up
-		BreakPointScannerResult result=findBreakpointBefore(data, strPos, cost);
+		BreakPointScannerResult result=findBreakpointBefore(data, strPos, cost, maxLookBack);
+		if (event!=null) {
+			event.costEvaluations += result.evaluated;
+			event.costEvaluationsSaved += strPos+1-result.evaluated;
+		}
 		boolean hard = false;
 		int tailStart;
 		if (result.bestBreakable!=result.bestSplitPoint) { // no breakable found, break hard 
@@ -249,20 +404,19 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 		return new SplitPointSpecification(tailStart, hard, trimTrailing);
 	}
 
-	private SplitPoint<T, U> finalizeBreakpointFull(SplitResult<T, U> result, Supplements<T> map, boolean hard, boolean trimTrailing) {
-		if (trimTrailing) {
-			return finalizeBreakpoint(trimTrailing(result.head()), result.tail(), map, hard);
-		} else {
-			return finalizeBreakpoint(new SplitList<>(result.head(), EMPTY_LIST), result.tail(), map, hard);
-		}
-	}
-
-	private SplitPoint<T, U> finalizeBreakpoint(SplitList<T> head, U tail, Supplements<T> map, boolean hard) {
-		TrimStep<T> trimmed = new TrimStep<>(map);
-		findCollapse(new SplitPointDataList<T>(head.getFirstPart()), trimmed);
-		List<T> discarded = trimmed.getDiscarded();
-		discarded.addAll(head.getSecondPart());
-		return new SplitPoint<>(trimmed.getResult(), trimmed.getSupplements(), tail, discarded, hard);
+	/**
+	 * Creates a split point with the specified head, without copying the units of the head.
+	 * @param head the units before the split point
+	 * @param columns the columns of the data source that the head was taken from, or null
+	 * @param trimTrailing true if trailing skippable units should be discarded
+	 */
+	private SplitPoint<T, U> finalizeBreakpoint(List<T> head, U tail, Supplements<T> map, SplitPointColumns columns, boolean hard, boolean trimTrailing, SplitPointEvent event) {
+		int end = trimTrailing?findTrailing(head):head.size();
+		SplitPointDataList<T> headData = SplitPointDataList.headOf(end<head.size()?head.subList(0, end):head, columns);
+		DiscardStep<T> step = new DiscardStep<>();
+		findCollapse(headData, step, event);
+		HeadList<T> ret = new HeadList<>(headData, head, map, step.getDiscarded(), step.getCount());
+		return new SplitPoint<>(ret, ret.getSupplements(), tail, ret.getDiscarded(), hard, true);
 	}
 
 	/**
@@ -321,85 +475,69 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns the index of the first non-skippable unit
 	 */
 	public static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> int findLeading(U in) {
+		SplitPointColumns columns = DataSourceColumns.of(in);
 		int i;
 		for (i = 0; in.hasElementAt(i); i++) {
-			if (!in.get(i).isSkippable()) {
+			if (!columns.isSkippable(i)) {
 				break;
 			}
 		};
 		return i;
 	}
 
-	static <T extends SplitPointUnit> T maxSize(T u1, T u2) {
-		return (u1.getUnitSize()>=u2.getUnitSize()?u1:u2); 
-	}
-	
-	static <T extends SplitPointUnit> SplitList<T> trimTrailing(List<T> in) {
+	/**
+	 * Finds trailing skippable units in the supplied list.
+	 * @param in the list to search
+	 * @return returns the index of the first trailing skippable unit, or the
+	 * 		size of the list if there are none
+	 */
+	static <T extends SplitPointUnit> int findTrailing(List<T> in) {
 		int i;
 		for (i = in.size()-1; i>=0; i--) {
 			if (!in.get(i).isSkippable()) {
 				break;
 			}
 		}
-		return SplitList.split(in, i+1);
+		return i+1;
 	}
 
 	/**
 	 * Finds the index for the last unit that fits into the given space
 	 * @param data
-	 * @param impl
+	 * @param impl the step, created for the same data
 	 * @return returns the index for the last unit
 	 */
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> int findCollapse(U data, StepForward<T> impl) {
-		int units = -1;
-		T maxCollapsable = null;
-		for (int i=0; data.hasElementAt(i); i++) {
-			T c = data.get(i);
-			units++;
-			if (c.isCollapsible()) {
-				if (maxCollapsable!=null) {
-					if (maxCollapsable.collapsesWith(c)) {
-						if (maxSize(maxCollapsable, c)==c) {
-							//new one is now max, add the previous to collapsed
-							impl.addDiscarded(maxCollapsable);
-							maxCollapsable = c;
-						} else {
-							//old one is max, add the new one to collapsed
-							impl.addDiscarded(c);
-						}
-					} else {
-						impl.addUnit(maxCollapsable);
-						maxCollapsable = c;
-					}
-				} else {
-					maxCollapsable = c;
-				}
-			} else {
-				if (maxCollapsable!=null) {
-					impl.addUnit(maxCollapsable);
-					maxCollapsable = null;
-				}
-				impl.addUnit(c);
-			}
-			if (impl.overflows(maxCollapsable)) { //time to exit
-				units--;
-				return units;
+		return findCollapse(data, impl, null);
+	}
+
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> int findCollapse(U data, StepForward<T> impl, SplitPointEvent event) {
+		CollapseScanner<T> scanner = new CollapseScanner<>(data, impl);
+		while (scanner.next()) {
+			if (impl.overflows(scanner.getPending())) { //time to exit
+				report(scanner, event);
+				return scanner.getPosition()-1;
 			}
 		}
-		if (maxCollapsable!=null) {
-			impl.addUnit(maxCollapsable);
-			maxCollapsable = null;
+		scanner.finish();
+		report(scanner, event);
+		return scanner.getPosition();
+	}
+
+	private static void report(CollapseScanner<?> scanner, SplitPointEvent event) {
+		if (event!=null) {
+			event.collapseUnits += scanner.getPosition()+1;
+			event.discardedUnits += scanner.getDiscardedCount();
 		}
-		return units;
 	}
 
 	static int forwardSkippable(SplitPointDataSource<? extends SplitPointUnit, ? extends SplitPointDataSource<?, ?>> data, final int pos) {
-		SplitPointUnit c;
+		SplitPointColumns columns = DataSourceColumns.of(data);
 		int ret = pos;
-		if (data.hasElementAt(ret) && !(c=data.get(ret)).isBreakable()) {
+		if (data.hasElementAt(ret) && !columns.isBreakable(ret)) {
 			ret++;
-			while (data.hasElementAt(ret) && (c=data.get(ret)).isSkippable()) {
-				if (c.isBreakable()) {
+			while (data.hasElementAt(ret) && columns.isSkippable(ret)) {
+				if (columns.isBreakable(ret)) {
 					return ret;
 				} else {
 					ret++;
@@ -417,28 +555,145 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	}
 
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> BreakPointScannerResult findBreakpointBefore(U data, int strPos, SplitPointCost<T> cost) {
-		BreakPointScannerResult res = new BreakPointScannerResult();
-		res.bestBreakable = -1;
-		res.bestSplitPoint = strPos;
-		double currentCost = Double.MAX_VALUE;
-		double currentBreakableCost = Double.MAX_VALUE;
-		for (int index=0; index<=strPos; index++) {
-			double c = cost.getCost(data, index, strPos);
-			if (c<currentCost) { // this should always be true for the first unit
-				res.bestSplitPoint = index;
-				currentCost = c;
+		return findBreakpointBefore(data, strPos, cost, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the split point with the lowest cost, and the breakable split point with 
+	 * the lowest cost, at or before the specified position. If several units have the 
+	 * same cost, the first one is used. The units are evaluated backwards, until 
+	 * the lower bound of the cost function shows that none of the remaining units 
+	 * can have a lower cost than the best breakable unit. A {@link BatchSplitPointCost}
+	 * is evaluated in blocks, and the lower bound is only checked before each block.
+	 * @param data the data
+	 * @param strPos the position to start from
+	 * @param cost the cost function
+	 * @param maxLookBack the maximum number of units to evaluate
+	 * @return returns the result
+	 */
+	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> BreakPointScannerResult findBreakpointBefore(U data, int strPos, SplitPointCost<T> cost, int maxLookBack) {
+		SplitPointColumns columns = DataSourceColumns.of(data);
+		BreakPointScannerResult res = new BreakPointScannerResult(columns, strPos);
+		int first = Math.max(0, strPos-maxLookBack+1);
+		if (cost instanceof BatchSplitPointCost) {
+			BatchSplitPointCost<T> batch = (BatchSplitPointCost<T>)cost;
+			// the default cost uses the columns that have already been resolved for this call
+			DefaultCost<T> defaultCost = cost instanceof DefaultCost?(DefaultCost<T>)cost:null;
+			double[] costs = new double[Math.min(MAX_COST_BLOCK_SIZE, strPos-first+1)];
+			// the last index of the current block
+			int last = strPos;
+			// start with a small block, in case the scan stops early
+			int size = MIN_COST_BLOCK_SIZE;
+			while (last>=first && !res.isComplete(cost.getLowerBound(data, last, strPos))) {
+				int block = Math.max(first, last-Math.min(size, costs.length)+1);
+				size*=2;
+				if (defaultCost!=null) {
+					defaultCost.getCosts(columns, block, last+1, strPos, costs);
+				} else {
+					batch.getCosts(data, block, last+1, strPos, costs);
+				}
+				for (int index=last; index>=block; index--) {
+					res.update(index, costs[index-block]);
+				}
+				res.evaluated += last-block+1;
+				last = block-1;
 			}
-			if (c<currentBreakableCost && data.get(index).isBreakable()) {
-				res.bestBreakable = index;
-				currentBreakableCost = c;
+		} else {
+			for (int index=strPos; index>=first && !res.isComplete(cost.getLowerBound(data, index, strPos)); index--) {
+				res.update(index, cost.getCost(data, index, strPos));
+				res.evaluated++;
 			}
 		}
 		return res;
 	}
 	
+	/**
+	 * Provides the default cost function.
+	 * 1. the smaller the result, the higher the cost
+	 * 2. breakable units are always preferred over forced ones
+	 */
+	static class DefaultCost<T extends SplitPointUnit> implements BatchSplitPointCost<T> {
+
+		@Override
+		public double getCost(SplitPointDataSource<T, ?> data, int index, int breakpoint) {
+			return (data.get(index).isBreakable()?1:2)*breakpoint-index;
+		}
+
+		@Override
+		public void getCosts(SplitPointDataSource<T, ?> data, int from, int to, int breakpoint, double[] out) {
+			getCosts(DataSourceColumns.of(data), from, to, breakpoint, out);
+		}
+
+		void getCosts(SplitPointColumns columns, int from, int to, int breakpoint, double[] out) {
+			int len = to-from;
+			for (int i=0; i<len; i++) {
+				out[i] = columns.isBreakable(from+i)?1:2;
+			}
+			// kept separate from the loop above, so that it can be vectorized
+			for (int i=0; i<len; i++) {
+				out[i] = out[i]*breakpoint-(from+i);
+			}
+		}
+
+		@Override
+		public double getLowerBound(SplitPointDataSource<T, ?> data, int index, int breakpoint) {
+			return breakpoint-index;
+		}
+	}
+	
 	private static class BreakPointScannerResult {
-		int bestBreakable;
+		private final SplitPointColumns columns;
+		int bestBreakable = -1;
 		int bestSplitPoint;
+		int evaluated = 0;
+		private double currentCost = Double.MAX_VALUE;
+		private double currentBreakableCost = Double.MAX_VALUE;
+
+		private BreakPointScannerResult(SplitPointColumns columns, int strPos) {
+			this.columns = columns;
+			this.bestSplitPoint = strPos;
+		}
+
+		/**
+		 * Returns true if none of the remaining units can replace the best 
+		 * breakable unit, given the lower bound for their costs.
+		 */
+		private boolean isComplete(double lowerBound) {
+			return bestBreakable>=0 && lowerBound>currentBreakableCost;
+		}
+
+		/**
+		 * Updates the result with the cost of a unit. Since units are evaluated 
+		 * backwards, an equal cost means that the unit is preferred.
+		 */
+		private void update(int index, double c) {
+			if (c<Double.MAX_VALUE && c<=currentCost) {
+				bestSplitPoint = index;
+				currentCost = c;
+			}
+			if (c<Double.MAX_VALUE && c<=currentBreakableCost && columns.isBreakable(index)) {
+				bestBreakable = index;
+				currentBreakableCost = c;
+			}
+		}
+	}
+
+	/**
+	 * Sets a listener that is notified about the work performed by this handler
+	 * in each call, see {@link SplitPointListener}. When no listener is set, the
+	 * work isn't recorded.
+	 * @param listener the listener, or null to remove the current listener
+	 */
+	public void setListener(SplitPointListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets the listener of this handler.
+	 * @return returns the listener, or null if no listener is set
+	 */
+	public SplitPointListener getListener() {
+		return listener;
 	}
 	
 	/**
@@ -449,7 +704,11 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns the size 
 	 */
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> boolean fits(U data, float limit, boolean useLastUnitSize) {
-		return totalSize(data, limit, useLastUnitSize)<=limit;
+		return fits(data, data.getSizeIndex().orElse(null), limit, useLastUnitSize, null);
+	}
+
+	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> boolean fits(U data, SplitPointSizeIndex index, float limit, boolean useLastUnitSize, SplitPointEvent event) {
+		return totalSize(data, index, limit, useLastUnitSize, event)<=limit;
 	}
 	/**
 	 * If the total size is less than the limit, the size is returned, otherwise a value greater
@@ -460,35 +719,39 @@ public class SplitPointHandler<T extends SplitPointUnit, U extends SplitPointDat
 	 * @return returns the size 
 	 */
 	static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> float totalSize(U data, float limit, boolean useLastUnitSize) {
+		return totalSize(data, data.getSizeIndex().orElse(null), limit, useLastUnitSize, null);
+	}
+
+	private static <T extends SplitPointUnit, U extends SplitPointDataSource<T, U>> float totalSize(U data, SplitPointSizeIndex index, float limit, boolean useLastUnitSize, SplitPointEvent event) {
+		if (index!=null) {
+			// The index is only used to find out that the units don't fit. Since the sizes
+			// are added up as floats below, the sum in the index is reduced by more than the
+			// rounding error of the float sum, so that the result is the same.
+			int count = index.getUnitCount();
+			double size = index.getSizeBefore(data.hasElementAt(count)?count:Math.max(0, count-1));
+			double min = size*(1-count*ROUNDING_ERROR);
+			if (min>limit) {
+				return (float)min;
+			}
+		}
+		SplitPointColumns columns = DataSourceColumns.of(data);
+		SupplementTracker<T> supplements = SupplementTracker.create(data, columns);
 		float ret = 0;
-		Set<String> ids = new HashSet<>();
-		Supplements<T> map = data.getSupplements();
-		boolean hasSupplements = false;
+		int i;
 		// we check up to the limit and beyond by one element, to make sure that we check enough units
-		for (int i=0; data.hasElementAt(i) && ret<=limit; i++) {
-			T unit = data.get(i);
-			List<String> suppIds = unit.getSupplementaryIDs();
-			if (suppIds!=null) {
-				for (String id : suppIds) {
-					if (ids.add(id)) { //id didn't already exist in the list
-						T item = map.get(id);
-						if (item!=null) {
-							if (!hasSupplements) {
-								hasSupplements = true;
-								ret += map.getOverhead();
-							}
-							ret += item.getUnitSize();
-						}
-					}
-				}
-			}
+		for (i=0; data.hasElementAt(i) && ret<=limit; i++) {
+			ret = supplements.add(i, ret);
 			//last unit?
 			if (useLastUnitSize && !data.hasElementAt(i+1)) {
-				ret += unit.getLastUnitSize();
+				ret += columns.getLastUnitSize(i);
 			} else {
-				ret += unit.getUnitSize();
+				ret += columns.getUnitSize(i);
 			}
 		}
+		if (event!=null) {
+			event.totalSizeUnits += i;
+			event.supplementLookups += supplements.lookups;
+		}
 		return ret;
 	}
 
@@ -0,0 +1,32 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides a listener for the work performed by a {@link SplitPointHandler},
+ * for example to find out why some data is slow to split. See
+ * {@link SplitPointCounters} for an implementation that adds up the events.</p>
+ *
+ * <p>The listener is called on the thread that called the handler, and the
+ * time spent in the listener isn't included in the event. If no listener is
+ * set, no events are created.</p>
+ */
+public interface SplitPointListener {
+
+	/**
+	 * Called when a split point has been found, without splitting the data.
+	 * A call that finds split points for several break points is reported
+	 * as one event. The default implementation does nothing.
+	 * @param event the event
+	 */
+	public default void findCompleted(SplitPointEvent event) {
+	}
+
+	/**
+	 * Called when data has been split. If the split point was found in the same
+	 * call, the event includes the work of finding it and no find event is
+	 * reported. The default implementation does nothing.
+	 * @param event the event
+	 */
+	public default void splitCompleted(SplitPointEvent event) {
+	}
+
+}
@@ -0,0 +1,54 @@
+package org.daisy.dotify.common.splitter;
+
+/**
+ * <p>Provides cumulative size information about the units of a data source.
+ * An index allows the size of a sequence of units to be computed without
+ * iterating over the units.</p>
+ * 
+ * <p>Indexes in this interface are relative to the data source that
+ * provided the index.</p>
+ * 
+ * @see SplitPointDataSource#getSizeIndex()
+ */
+public interface SplitPointSizeIndex {
+
+	/**
+	 * Gets the number of units covered by the index. An index
+	 * may cover only the first units of a data source.
+	 * @return returns the number of units
+	 */
+	public int getUnitCount();
+
+	/**
+	 * Gets the sum of {@link SplitPointUnit#getUnitSize()} for all units
+	 * before the specified index.
+	 * @param index the index, exclusive
+	 * @return returns the size of the units before the index
+	 * @throws IndexOutOfBoundsException if the index is less than 0 or
+	 * 			greater than {@link #getUnitCount()}
+	 */
+	public double getSizeBefore(int index);
+
+	/**
+	 * <p>Finds the first unit, at or after the specified index, that cannot be
+	 * measured using {@link #getSizeBefore(int)} alone.</p>
+	 * 
+	 * <p>This is a unit that is collapsible, that has supplementary IDs or
+	 * that has a last unit size greater than its unit size.</p>
+	 * 
+	 * @param fromIndex the index to start from, inclusive
+	 * @return returns the index of the unit, or {@link #getUnitCount()} if there
+	 * 			is no such unit among the units covered by the index
+	 */
+	public int nextIrregularUnit(int fromIndex);
+
+	/**
+	 * Finds the first unit, at or after the specified index, that has
+	 * supplementary IDs.
+	 * @param fromIndex the index to start from, inclusive
+	 * @return returns the index of the unit, or {@link #getUnitCount()} if there
+	 * 			is no such unit among the units covered by the index
+	 */
+	public int nextSupplementaryUnit(int fromIndex);
+
+}
@@ -1,7 +1,9 @@
 package org.daisy.dotify.common.splitter;
 
 /**
- * Provides a package interface for iterating over a list of units
+ * Provides a package interface for iterating over a list of units. Units
+ * are identified by their index in the data source that the implementation
+ * was created for.
  * @author Joel Håkansson
  *
  * @param <T>
@@ -10,20 +12,35 @@ interface StepForward<T extends SplitPointUnit> {
 	/**
 	 * Performed when a unit should be included.
 	 * 
-	 * @param unit the unit to include
+	 * @param index the index of the unit to include
 	 */
-	void addUnit(T unit);
+	void addUnit(int index);
 	/**
 	 * Checks whether the inclusion of the unit would overflow
 	 *  
-	 * @param buffer the unit to test
+	 * @param buffer the index of the unit to test, or -1 to test the 
+	 * 			units included so far
 	 * @return returns true, if inclusion overflows, false otherwise
 	 */
-	boolean overflows(T buffer);
+	boolean overflows(int buffer);
 	/**
 	 * Performed when a unit is discarded.
 	 * 
-	 * @param unit the unit that is discarded
+	 * @param index the index of the unit that is discarded
 	 */
-	void addDiscarded(T unit);
-}
\ No newline at end of file
+	void addDiscarded(int index);
+	/**
+	 * Includes the units starting at the specified index in bulk, without
+	 * examining whether each of them collapses or has supplements, if
+	 * possible. This method is only called when
+	 * no collapsible unit is pending. The default implementation doesn't
+	 * include any units.
+	 * 
+	 * @param index the index of the next unit to include
+	 * @return returns the index of the next unit to include, after the
+	 * 			included units
+	 */
+	default int skip(int index) {
+		return index;
+	}
+}
@@ -0,0 +1,231 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps track of the supplements referenced by the units that have been
+ * added to a result. Each supplement is only counted once. If the data
+ * source uses {@link IndexedSupplements}, supplements are tracked by number,
+ * otherwise by identifier.
+ *
+ * @param <T> the type of units
+ */
+abstract class SupplementTracker<T extends SplitPointUnit> {
+	final SplitPointDataSource<T, ?> data;
+	final SplitPointColumns columns;
+	/**
+	 * True if at least one supplement has been added.
+	 */
+	boolean hasSupplements = false;
+	/**
+	 * The number of supplement references that have been examined.
+	 */
+	int lookups = 0;
+
+	private SupplementTracker(SplitPointDataSource<T, ?> data, SplitPointColumns columns) {
+		this.data = data;
+		this.columns = columns;
+	}
+
+	/**
+	 * Creates a new tracker for the specified data source.
+	 * @param data the data source
+	 * @param columns the columns of the data source
+	 * @param <T> the type of units
+	 * @return returns a new tracker
+	 */
+	static <T extends SplitPointUnit> SupplementTracker<T> create(SplitPointDataSource<T, ?> data, SplitPointColumns columns) {
+		return create(data, data.getSupplements(), columns);
+	}
+
+	/**
+	 * Creates a new tracker for the specified data source, using the specified
+	 * supplements instead of the supplements of the data source.
+	 * @param data the data source
+	 * @param map the supplements
+	 * @param columns the columns of the data source
+	 * @param <T> the type of units
+	 * @return returns a new tracker
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends SplitPointUnit> SupplementTracker<T> create(SplitPointDataSource<T, ?> data, Supplements<T> map, SplitPointColumns columns) {
+		if (map instanceof IndexedSupplements) {
+			return new IndexTracker<>(data, (IndexedSupplements<T>)map, columns);
+		} else {
+			return new IdTracker<>(data, map, columns);
+		}
+	}
+
+	/**
+	 * Adds the supplements of the unit at the specified index, that haven't already
+	 * been added, to the size.
+	 * @param index the index of the unit
+	 * @param size the size
+	 * @return returns the new size
+	 */
+	abstract float add(int index, float size);
+
+	/**
+	 * Adds the supplements of the unit at the specified index, that haven't already
+	 * been added, to the list.
+	 * @param index the index of the unit
+	 * @param result the list
+	 */
+	abstract void add(int index, List<T> result);
+
+	/**
+	 * Adds the size of the supplements of the unit at the specified index, that haven't
+	 * already been added, to the size, without adding the supplements. Note that supplements
+	 * that are referenced more than once by the unit are counted more than once.
+	 * @param index the index of the unit
+	 * @param size the size
+	 * @return returns the new size
+	 */
+	abstract float peek(int index, float size);
+
+	private static class IdTracker<T extends SplitPointUnit> extends SupplementTracker<T> {
+		private final Supplements<T> map;
+		private final Set<String> ids = new HashSet<>();
+
+		private IdTracker(SplitPointDataSource<T, ?> data, Supplements<T> map, SplitPointColumns columns) {
+			super(data, columns);
+			this.map = map;
+		}
+
+		@Override
+		float add(int index, float size) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return size;
+			}
+			List<String> refs = data.get(index).getSupplementaryIDs();
+			lookups += refs.size();
+			for (String id : refs) {
+				if (ids.add(id)) { //id didn't already exist in the list
+					T item = map.get(id);
+					if (item!=null) {
+						if (!hasSupplements) {
+							hasSupplements = true;
+							size+=map.getOverhead();
+						}
+						size+=item.getUnitSize();
+					}
+				}
+			}
+			return size;
+		}
+
+		@Override
+		void add(int index, List<T> result) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return;
+			}
+			List<String> refs = data.get(index).getSupplementaryIDs();
+			lookups += refs.size();
+			for (String id : refs) {
+				if (ids.add(id)) { //id didn't already exist in the list
+					T item = map.get(id);
+					if (item!=null) {
+						result.add(item);
+					}
+				}
+			}
+		}
+
+		@Override
+		float peek(int index, float size) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return size;
+			}
+			boolean hasAddedOverhead = hasSupplements;
+			List<String> refs = data.get(index).getSupplementaryIDs();
+			lookups += refs.size();
+			for (String id : refs) {
+				if (!ids.contains(id)) { //id didn't already exist in the list
+					T item = map.get(id);
+					if (item!=null) {
+						if (!hasAddedOverhead) {
+							hasAddedOverhead = true;
+							size+=map.getOverhead();
+						}
+						size+=item.getUnitSize();
+					}
+				}
+			}
+			return size;
+		}
+	}
+
+	private static class IndexTracker<T extends SplitPointUnit> extends SupplementTracker<T> {
+		private final IndexedSupplements<T> map;
+		private final UnitColumns resolved;
+		private final BitSet added = new BitSet();
+
+		private IndexTracker(SplitPointDataSource<T, ?> data, IndexedSupplements<T> map, SplitPointColumns columns) {
+			super(data, columns);
+			this.map = map;
+			this.resolved = columns instanceof UnitColumns && ((UnitColumns)columns).isResolvedWith(map)?(UnitColumns)columns:null;
+		}
+
+		private int[] indexes(int index) {
+			return resolved!=null?resolved.getSupplementIndexes(index):map.indexesOf(data.get(index).getSupplementaryIDs());
+		}
+
+		@Override
+		float add(int index, float size) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return size;
+			}
+			int[] refs = indexes(index);
+			lookups += refs.length;
+			for (int s : refs) {
+				if (!added.get(s)) {
+					added.set(s);
+					if (!hasSupplements) {
+						hasSupplements = true;
+						size+=map.getOverhead();
+					}
+					size+=map.getUnitSize(s);
+				}
+			}
+			return size;
+		}
+
+		@Override
+		void add(int index, List<T> result) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return;
+			}
+			int[] refs = indexes(index);
+			lookups += refs.length;
+			for (int s : refs) {
+				if (!added.get(s)) {
+					added.set(s);
+					result.add(map.get(s));
+				}
+			}
+		}
+
+		@Override
+		float peek(int index, float size) {
+			if (!columns.hasSupplementaryIDs(index)) {
+				return size;
+			}
+			boolean hasAddedOverhead = hasSupplements;
+			int[] refs = indexes(index);
+			lookups += refs.length;
+			for (int s : refs) {
+				if (!added.get(s)) {
+					if (!hasAddedOverhead) {
+						hasAddedOverhead = true;
+						size+=map.getOverhead();
+					}
+					size+=map.getUnitSize(s);
+				}
+			}
+			return size;
+		}
+	}
+}
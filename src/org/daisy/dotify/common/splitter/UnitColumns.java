@@ -0,0 +1,214 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.List;
+
+/**
+ * Provides split point columns backed by arrays. The boolean attributes
+ * are packed into one byte per unit. If the columns are built with
+ * {@link IndexedSupplements}, the supplementary IDs of each unit are also
+ * resolved to supplement numbers. Tails of the columns share the arrays
+ * with the original.
+ *
+ * <p>The columns also contain the collapse groups of the units. A collapse
+ * group is a sequence of collapsible units that a {@link CollapseScanner} reduces
+ * to a single unit, the largest one. Within a group, the scanner only has to
+ * examine the units where the largest unit changes.</p>
+ */
+final class UnitColumns implements SplitPointColumns {
+	private static final byte BREAKABLE = 1;
+	private static final byte SKIPPABLE = 2;
+	private static final byte COLLAPSIBLE = 4;
+	private static final byte SUPPLEMENTS = 8;
+	private static final byte GROUP_START = 16;
+	private final byte[] flags;
+	private final float[] unitSize;
+	private final float[] lastUnitSize;
+	private final IndexedSupplements<?> supplements;
+	private final int[][] supplementIndexes;
+	// for each unit where the largest unit of a collapse group changes, the next such
+	// unit in the same group or the end of the group, null if there are no collapsible units
+	private final int[] nextChange;
+	private final int offset;
+	private final int end;
+
+	private UnitColumns(byte[] flags, float[] unitSize, float[] lastUnitSize, IndexedSupplements<?> supplements, int[][] supplementIndexes, int[] nextChange, int offset, int end) {
+		this.flags = flags;
+		this.unitSize = unitSize;
+		this.lastUnitSize = lastUnitSize;
+		this.supplements = supplements;
+		this.supplementIndexes = supplementIndexes;
+		this.nextChange = nextChange;
+		this.offset = offset;
+		this.end = end;
+	}
+
+	static UnitColumns build(List<? extends SplitPointUnit> units) {
+		return build(units, null);
+	}
+
+	/**
+	 * Builds columns for the specified units.
+	 * @param units the units
+	 * @param supplements the supplements, may be null
+	 * @return returns new columns
+	 */
+	static UnitColumns build(List<? extends SplitPointUnit> units, Supplements<?> supplements) {
+		int size = units.size();
+		byte[] flags = new byte[size];
+		float[] unitSize = new float[size];
+		float[] lastUnitSize = new float[size];
+		IndexedSupplements<?> indexed = supplements instanceof IndexedSupplements?(IndexedSupplements<?>)supplements:null;
+		int[][] supplementIndexes = indexed!=null?new int[size][]:null;
+		int[] nextChange = null;
+		// the largest unit of the current collapse group, and where it became the largest
+		SplitPointUnit max = null;
+		int change = -1;
+		int i = 0;
+		for (SplitPointUnit unit : units) {
+			flags[i] = (byte)((unit.isBreakable()?BREAKABLE:0)
+					| (unit.isSkippable()?SKIPPABLE:0)
+					| (unit.isCollapsible()?COLLAPSIBLE:0)
+					| (SizeIndex.hasSupplements(unit)?SUPPLEMENTS:0));
+			unitSize[i] = unit.getUnitSize();
+			lastUnitSize[i] = unit.getLastUnitSize();
+			if (indexed!=null && (flags[i]&SUPPLEMENTS)!=0) {
+				supplementIndexes[i] = indexed.indexesOf(unit.getSupplementaryIDs());
+			}
+			// same as CollapseScanner.next()
+			if ((flags[i]&COLLAPSIBLE)!=0) {
+				if (nextChange==null) {
+					nextChange = new int[size];
+				}
+				if (max!=null && max.collapsesWith(unit)) {
+					if (unitSize[change]<unitSize[i]) {
+						nextChange[change] = i;
+						change = i;
+						max = unit;
+					}
+				} else {
+					if (change>=0) {
+						nextChange[change] = i;
+					}
+					flags[i] |= GROUP_START;
+					change = i;
+					max = unit;
+				}
+			} else if (change>=0) {
+				nextChange[change] = i;
+				change = -1;
+				max = null;
+			}
+			i++;
+		}
+		if (change>=0) {
+			nextChange[change] = size;
+		}
+		return new UnitColumns(flags, unitSize, lastUnitSize, indexed, supplementIndexes, nextChange, 0, size);
+	}
+
+	/**
+	 * Gets the columns for the units starting at the specified index.
+	 * @param fromIndex the index, relative to these columns
+	 * @return returns new columns
+	 */
+	UnitColumns tail(int fromIndex) {
+		if (fromIndex==0) {
+			return this;
+		}
+		return new UnitColumns(flags, unitSize, lastUnitSize, supplements, supplementIndexes, nextChange, offset+fromIndex, end);
+	}
+
+	/**
+	 * Gets the columns for the units before the specified index.
+	 * @param toIndex the index, relative to these columns, exclusive
+	 * @return returns new columns
+	 */
+	UnitColumns head(int toIndex) {
+		if (offset+toIndex==end) {
+			return this;
+		}
+		return new UnitColumns(flags, unitSize, lastUnitSize, supplements, supplementIndexes, nextChange, offset, offset+toIndex);
+	}
+
+	/**
+	 * Returns true if the unit at the specified index starts a collapse group
+	 * in the original columns. A unit that is collapsible, but that doesn't start
+	 * a group, collapses with the largest preceding unit of the group.
+	 * @param index the index
+	 * @return returns true if the unit starts a collapse group, false otherwise
+	 */
+	boolean isGroupStart(int index) {
+		return (flags[offset+index]&GROUP_START)!=0;
+	}
+
+	/**
+	 * Gets the next unit where the largest unit of the collapse group changes. All
+	 * units between the specified unit and the returned index collapse with the 
+	 * specified unit, and aren't larger.
+	 * @param index the index of the largest unit so far, which must be the start 
+	 * 		of a collapse group or a unit returned by this method
+	 * @return returns the index of the next unit that is larger, or the index
+	 * 		of the first unit after the group, possibly beyond the last unit of 
+	 * 		these columns
+	 */
+	int getNextChange(int index) {
+		return nextChange[offset+index]-offset;
+	}
+
+	/**
+	 * Returns true if the supplementary IDs of the units have been resolved
+	 * using the specified supplements.
+	 * @param supplements the supplements
+	 * @return returns true if the IDs have been resolved, false otherwise
+	 */
+	boolean isResolvedWith(Supplements<?> supplements) {
+		return this.supplements!=null && this.supplements==supplements;
+	}
+
+	/**
+	 * Gets the supplement numbers of the unit at the specified index. This
+	 * is only available if the IDs have been resolved, see {@link #isResolvedWith(Supplements)}.
+	 * @param index the index
+	 * @return returns the supplement numbers, in the same order as the IDs, or
+	 * 		null if the unit has no supplementary IDs
+	 */
+	int[] getSupplementIndexes(int index) {
+		return supplementIndexes[offset+index];
+	}
+
+	@Override
+	public int getUnitCount() {
+		return end-offset;
+	}
+
+	@Override
+	public boolean isBreakable(int index) {
+		return (flags[offset+index]&BREAKABLE)!=0;
+	}
+
+	@Override
+	public boolean isSkippable(int index) {
+		return (flags[offset+index]&SKIPPABLE)!=0;
+	}
+
+	@Override
+	public boolean isCollapsible(int index) {
+		return (flags[offset+index]&COLLAPSIBLE)!=0;
+	}
+
+	@Override
+	public boolean hasSupplementaryIDs(int index) {
+		return (flags[offset+index]&SUPPLEMENTS)!=0;
+	}
+
+	@Override
+	public float getUnitSize(int index) {
+		return unitSize[offset+index];
+	}
+
+	@Override
+	public float getLastUnitSize(int index) {
+		return lastUnitSize[offset+index];
+	}
+
+}
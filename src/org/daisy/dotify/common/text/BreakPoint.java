@@ -14,6 +14,7 @@ public class BreakPoint {
 		int result = 1;
 		result = prime * result + (hardBreak ? 1231 : 1237);
 		result = prime * result + ((head == null) ? 0 : head.hashCode());
+		String tail = getTail();
 		result = prime * result + ((tail == null) ? 0 : tail.hashCode());
 		return result;
 	}
@@ -40,18 +41,20 @@ public class BreakPoint {
 		} else if (!head.equals(other.head)) {
 			return false;
 		}
+		String tail = getTail();
 		if (tail == null) {
-			if (other.tail != null) {
+			if (other.getTail() != null) {
 				return false;
 			}
-		} else if (!tail.equals(other.tail)) {
+		} else if (!tail.equals(other.getTail())) {
 			return false;
 		}
 		return true;
 	}
 
 	private final String head;
-	private final String tail;
+	private final CharSequence tailChars;
+	private String tail;
 	private final boolean hardBreak;
 
 	/**
@@ -61,8 +64,20 @@ public class BreakPoint {
 	 * @param hardBreak set to true if a break point could not be achieved with respect for break point boundaries 
 	 */
 	public BreakPoint(String head, String tail, boolean hardBreak) {
+		this(head, (CharSequence)tail, hardBreak);
+	}
+
+	/**
+	 * Create a new BreakPoint with a tail that is only copied into
+	 * a String if it is requested.
+	 * @param head the part of the original String that fits within the target break point 
+	 * @param tail the part of the original String that is left
+	 * @param hardBreak set to true if a break point could not be achieved with respect for break point boundaries 
+	 */
+	BreakPoint(String head, CharSequence tail, boolean hardBreak) {
 		this.head = head;
-		this.tail = tail;
+		this.tailChars = tail;
+		this.tail = (tail instanceof String) ? (String)tail : null;
 		this.hardBreak = hardBreak;
 	}
 	
@@ -79,8 +94,20 @@ public class BreakPoint {
 	 * @return returns the tail part of the BreakPoint String
 	 */
 	public String getTail() {
+		if (tail == null && tailChars != null) {
+			tail = tailChars.toString();
+		}
 		return tail;
 	}
+
+	/**
+	 * Get the tail part of the BreakPoint as a character sequence. Unlike
+	 * {@link #getTail()}, this does not require the tail to be copied.
+	 * @return returns the tail part of the BreakPoint
+	 */
+	public CharSequence getTailSequence() {
+		return tailChars;
+	}
 	
 	/**
 	 * Test if this BreakPoint was achieved by breaking on a character other 
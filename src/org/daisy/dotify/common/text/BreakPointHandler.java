@@ -1,10 +1,10 @@
 package org.daisy.dotify.common.text;
 
+import java.nio.CharBuffer;
 import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.regex.Pattern;
 
 
 /**
@@ -25,18 +25,25 @@ public class BreakPointHandler {
 	private static final char ZERO_WIDTH_SPACE = '\u200b';
 	private static final char DASH = '-';
 	private static final char SPACE = ' ';
-	private static final Pattern LEADING_WHITESPACE = Pattern.compile("\\A[\\s\u200b]+");
-	private static final Pattern TRAILING_WHITESPACE = Pattern.compile("[\\s\u200b]+\\z");
 	private final NavigableMap<Integer, NonStandardHyphenationInfo> meta;
+	/**
+	 * The state is a cursor into the text. The text is only replaced
+	 * if a non-standard hyphenation rule is applied.
+	 */
 	private static class State {
-		private String charsStr;
+		private String text;
+		// the start of the remaining text
+		private int pos;
+		// the position in the original input that corresponds to pos
 		private int offset;
-		private State(String charsStr, int offset) {
-			this.charsStr = charsStr;
+		private State(String text, int offset) {
+			this.text = text;
+			this.pos = 0;
 			this.offset = offset;
 		}
 		private State(State template) {
-			this.charsStr = template.charsStr;
+			this.text = template.text;
+			this.pos = template.pos;
 			this.offset = template.offset;
 		}
 		State copy() {
@@ -171,39 +178,31 @@ public class BreakPointHandler {
 	 * @return returns the next break point
 	 */
 	public BreakPoint nextRow(int breakPoint, boolean force, boolean ignoreHyphens) {
-		if (state.charsStr.length()==0) {
+		int length = state.text.length()-state.pos;
+		if (length==0) {
 			// pretty simple...
 			return new BreakPoint("", "", false);
 		}
 
-		assert state.charsStr.length()==state.charsStr.codePointCount(0, state.charsStr.length());
-		if (state.charsStr.length()<=breakPoint) {
-			return finalizeBreakpointTrimTail(state.charsStr, "", false);
+		assert length==state.text.codePointCount(state.pos, state.text.length());
+		if (length<=breakPoint) {
+			return finalizeBreakpointTrimTail(finalizeResult(state.text, state.pos, state.text.length()), state.text.length(), false);
 		} else if (breakPoint<=0) {
-			return finalizeBreakpointTrimTail("", state.charsStr, false);
+			return finalizeBreakpointTrimTail("", state.pos, false);
 		} else {
 			return findBreakpoint(breakPoint, force, ignoreHyphens);
 		}
 	}
 	
 	private BreakPoint findBreakpoint(int breakPoint, boolean force, boolean ignoreHyphens) {
-		int strPos = findBreakpointPosition(state.charsStr, breakPoint);
-		assert strPos<state.charsStr.length();
+		int strPos = findBreakpointPosition(state.text, state.pos, breakPoint);
+		assert strPos<state.text.length();
 
-		/*if (strPos>=charsStr.length()-1) {
-			head = charsStr.substring(0, strPos);
-			System.out.println(head);
-			tailStart = strPos;
-		} else */
 		// check next character to see if it can be removed.
-		if (strPos==state.charsStr.length()-1) {
-			String head = state.charsStr.substring(0, strPos+1);
-			int tailStart = strPos+1;
-			return finalizeBreakpointFull(head, tailStart, false);
-		} else if (state.charsStr.charAt(strPos + 1) == SPACE || state.charsStr.charAt(strPos + 1) == ZERO_WIDTH_SPACE) {
-			String head = state.charsStr.substring(0, strPos+2); // strPos+1
-			int tailStart = strPos+2;
-			return finalizeBreakpointFull(head, tailStart, false);
+		if (strPos==state.text.length()-1) {
+			return finalizeBreakpointFull(strPos+1, strPos+1, false);
+		} else if (state.text.charAt(strPos + 1) == SPACE || state.text.charAt(strPos + 1) == ZERO_WIDTH_SPACE) {
+			return finalizeBreakpointFull(strPos+2, strPos+2, false);
 		} else {
 			return newBreakpointFromPosition(strPos, breakPoint, force, ignoreHyphens);
 		}
@@ -212,69 +211,72 @@ public class BreakPointHandler {
 	private BreakPoint newBreakpointFromPosition(int strPos, int breakPoint, boolean force, boolean ignoreHyphens) {
 		// back up
 		int i=findBreakpointBefore(strPos, ignoreHyphens);
-		String head;
-		boolean hard = false;
-		int tailStart;
-		if (i<0) { // no breakpoint found, break hard 
+		String text = state.text;
+		int pos = state.pos;
+		if (i<pos) { // no breakpoint found, break hard 
 			if (force) {
 				if (ignoreHyphens) {
 					// Try again without ignoring hyphens
 					BreakPoint s = newBreakpointFromPosition(strPos, breakPoint, force, false);
 					// Even if the string was broken at a hyphenation point, it's a hard break in this case 
-					return new BreakPoint(s.getHead(), s.getTail(), true);
+					return new BreakPoint(s.getHead(), s.getTailSequence(), true);
 				}
-				hard = true;
-				head = state.charsStr.substring(0, strPos+1);
-				tailStart = strPos+1;
+				return finalizeBreakpointFull(strPos+1, strPos+1, true);
 			} else {
-				head = "";
-				tailStart = 0;
+				return finalizeBreakpointFull(pos, pos, false);
 			}
-		} else if (state.charsStr.charAt(i)==SPACE) { // don't ignore space at breakpoint
-			head = state.charsStr.substring(0, i+1); //i
-			tailStart = i+1;
-		} else if (state.charsStr.charAt(i)==SOFT_HYPHEN) { // convert soft hyphen to hard hyphen 
-			head = state.charsStr.substring(0, i) + DASH;
-			tailStart = i+1;
-		}  else if (state.charsStr.charAt(i)==ZERO_WIDTH_SPACE) { // ignore zero width space 
-			head = state.charsStr.substring(0, i);
-			tailStart = i+1;
-		} else if (state.charsStr.charAt(i)==DASH && state.charsStr.length()>1 && state.charsStr.charAt(i-1)==SPACE) {
+		} else if (text.charAt(i)==SPACE) { // don't ignore space at breakpoint
+			return finalizeBreakpointFull(i+1, i+1, false);
+		} else if (text.charAt(i)==SOFT_HYPHEN) { // convert soft hyphen to hard hyphen 
+			return finalizeBreakpointTrimTail(finalizeResult(text, pos, i) + DASH, i+1, false);
+		}  else if (text.charAt(i)==ZERO_WIDTH_SPACE) { // ignore zero width space 
+			return finalizeBreakpointFull(i, i+1, false);
+		} else if (text.charAt(i)==DASH && i>pos && text.charAt(i-1)==SPACE) {
 			// if hyphen is preceded by space, back up one more
-			head = state.charsStr.substring(0, i);
-			tailStart = i;
+			return finalizeBreakpointFull(i, i, false);
 		} else {
-			head = state.charsStr.substring(0, i+1);
-			tailStart = i+1;
+			return finalizeBreakpointFull(i+1, i+1, false);
 		}
-		return finalizeBreakpointFull(head, tailStart, hard);
-	}
-	
-	private BreakPoint finalizeBreakpointFull(String head, int tailStart, boolean hard) {
-		String tail = getTail(tailStart);
-
-		head = TRAILING_WHITESPACE.matcher(head).replaceAll("");
-		
-		return finalizeBreakpointTrimTail(head, tail, hard);
 	}
 	
-	private String getTail(int tailStart) {
-		if (state.charsStr.length()>tailStart) {
-			String tail = state.charsStr.substring(tailStart);
-			assert (tail.length()<=state.charsStr.length());
-			return tail;
-		} else {
-			return "";
+	/**
+	 * Finalizes a break point where the head is the text from the current position 
+	 * up to the specified index, with trailing whitespace removed.
+	 * @param headEnd the end of the head, exclusive
+	 * @param tailStart the start of the tail
+	 * @param hard true if the break point is a hard break
+	 * @return returns a new break point
+	 */
+	private BreakPoint finalizeBreakpointFull(int headEnd, int tailStart, boolean hard) {
+		while (headEnd>state.pos && isWhitespace(state.text.charAt(headEnd-1))) {
+			headEnd--;
 		}
+		return finalizeBreakpointTrimTail(finalizeResult(state.text, state.pos, headEnd), tailStart, hard);
 	}
 	
-	private BreakPoint finalizeBreakpointTrimTail(String head, String tail, boolean hard) {
+	private BreakPoint finalizeBreakpointTrimTail(String head, int tailStart, boolean hard) {
 		//trim leading whitespace in tail
-		tail = LEADING_WHITESPACE.matcher(tail).replaceAll("");
-		head = finalizeResult(head);
-		state.offset = state.charsStr.length() - tail.length();
-		state.charsStr = tail;
-		return new BreakPoint(head, tail, hard);
+		while (tailStart<state.text.length() && isWhitespace(state.text.charAt(tailStart))) {
+			tailStart++;
+		}
+		state.offset += tailStart - state.pos;
+		state.pos = tailStart;
+		return new BreakPoint(head, CharBuffer.wrap(state.text, tailStart, state.text.length()), hard);
+	}
+
+	/**
+	 * Returns true if the character is removed when it is leading or trailing a row.
+	 * This corresponds to the regular expression <code>[\s\u200b]</code>.
+	 * @param c the character
+	 * @return returns true if the character is whitespace, false otherwise
+	 */
+	private static boolean isWhitespace(char c) {
+		switch (c) {
+			case ' ': case '\t': case '\n': case '\u000b': case '\f': case '\r': case ZERO_WIDTH_SPACE:
+				return true;
+			default:
+				return false;
+		}
 	}
 
 	/**
@@ -282,10 +284,16 @@ public class BreakPointHandler {
 	 * @return returns the number of remaining characters
 	 */
 	public int countRemaining() {
-		if (state.charsStr==null) {
-			return 0;
+		int ret = 0;
+		for (int i=state.pos; i<state.text.length(); i++) {
+			switch (state.text.charAt(i)) {
+				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
+					break;
+				default:
+					ret++;
+			}
 		}
-		return getRemaining().length();
+		return ret;
 	}
 	
 	/**
@@ -293,23 +301,24 @@ public class BreakPointHandler {
 	 * @return returns the remaining characters
 	 */
 	public String getRemaining() {
-		return finalizeResult(state.charsStr);
+		return finalizeResult(state.text, state.pos, state.text.length());
 	}
 	
 	/**
 	 * Finds the breakpoint position in the input string by counting
 	 * all characters, excluding soft hyphen and zero width space.
 	 *  
-	 * @param charsStr
-	 * @param breakPoint
+	 * @param charsStr the string
+	 * @param start the start position
+	 * @param breakPoint the break point
 	 * @return returns the breakpoint poisition
 	 */
-	private static int findBreakpointPosition(String charsStr, int breakPoint) {
-		int strPos = -1;
+	private static int findBreakpointPosition(String charsStr, int start, int breakPoint) {
+		int strPos = start-1;
 		int len = 0;
-		for (char c : charsStr.toCharArray()) {
+		for (int i=start; i<charsStr.length(); i++) {
 			strPos++;
-			switch (c) {
+			switch (charsStr.charAt(i)) {
 				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
 					break;
 				default:
@@ -324,29 +333,35 @@ public class BreakPointHandler {
 	
 	/**
 	 * Finds the break point closest before the starting position.
-	 * @param charsStr
-	 * @param strPos
-	 * @return returns the break point, or -1 if none is found
+	 * @param strPos the starting position
+	 * @param ignoreHyphens ignore hyphenation points inside words
+	 * @return returns the break point, or a position before the current 
+	 * 		position if none is found
 	 */
 	private int findBreakpointBefore(int strPos, boolean ignoreHyphens) {
 		int i = strPos;
-whileLoop: while (i>=0) {
-			switch (state.charsStr.charAt(i)) {
+whileLoop: while (i>=state.pos) {
+			switch (state.text.charAt(i)) {
 				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
 					if (ignoreHyphens) {
 						break;
 					}
 					boolean done = true;
 					if (meta!=null) {
-						Entry<Integer, NonStandardHyphenationInfo> entry = meta.floorEntry(i+state.offset);
-						if (entry!=null) {
-							int head = NonStandardHyphenationInfo.getHeadLength(state.charsStr, entry.getKey()-state.offset);
-							if ((entry.getKey()+head)>i+state.offset) { // the closest entry is applicable
+						Entry<Integer, NonStandardHyphenationInfo> entry = meta.floorEntry(i-state.pos+state.offset);
+						// rules that start before the current position don't apply
+						if (entry!=null && entry.getKey()>=state.offset) {
+							int start = entry.getKey()-state.offset+state.pos;
+							int head = NonStandardHyphenationInfo.getHeadLength(state.text, start);
+							if ((start+head)>i) { // the closest entry is applicable
 								if (i+head<=strPos) { // the closest entry fits
 									NonStandardHyphenationInfo rule = entry.getValue();
 									//patch string
-									state.charsStr = rule.apply(state.charsStr, entry.getKey()-state.offset);
-									i = entry.getKey() - state.offset + head;
+									String patched = rule.apply(state.text, start);
+									// positions after the patch are shifted
+									state.offset -= patched.length()-state.text.length();
+									state.text = patched;
+									i = start + head;
 								} else { //find another breakpoint
 									done = false;
 								}
@@ -370,9 +385,10 @@ whileLoop: while (i>=0) {
 		return i;
 	}
 	
-	private String finalizeResult(String str) {
-		StringBuilder sb = new StringBuilder();
-		for (char c : str.toCharArray()) {
+	private static String finalizeResult(String str, int start, int end) {
+		StringBuilder sb = new StringBuilder(end-start);
+		for (int i=start; i<end; i++) {
+			char c = str.charAt(i);
 			switch (c) {
 				case SOFT_HYPHEN: case ZERO_WIDTH_SPACE:
 					// remove from output
@@ -382,15 +398,13 @@ whileLoop: while (i>=0) {
 			}
 		}
 		return sb.toString();
-		/*
-		return str.replaceAll(""+SOFT_HYPHEN, "").replaceAll(""+ZERO_WIDTH_SPACE, "");*/
 	}
 	/**
 	 * Does this BreakPointHandler has any text left to break into rows 
 	 * @return returns true if this BreakPointHandler has any text left to break into rows
 	 */
 	public boolean hasNext() {
-		return (state.charsStr!=null && state.charsStr.length()>0);
+		return state.pos<state.text.length();
 	}
 
 }
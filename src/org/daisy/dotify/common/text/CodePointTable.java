@@ -0,0 +1,160 @@
+package org.daisy.dotify.common.text;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Provides an immutable code point to string lookup table. Code points
+ * below {@link #DENSE_LIMIT} are stored in an array indexed by code point,
+ * other code points are stored in an open addressing hash table with
+ * primitive keys. Lookups don't box the code point.
+ * 
+ * A bit set of the characters in the basic multilingual plane that have a
+ * substitution makes it possible to skip characters without a lookup, see
+ * {@link #mayHaveSubstitution(char)}.
+ */
+final class CodePointTable {
+	/**
+	 * Code points below this limit are stored in the dense array. The limit
+	 * includes the Latin, Greek, Cyrillic and other alphabetic blocks as well
+	 * as general punctuation.
+	 */
+	static final int DENSE_LIMIT = 0x3000;
+	private static final int NO_KEY = -1;
+	private final String[] dense;
+	private final int[] keys;
+	private final String[] values;
+	private final int mask;
+	private final int size;
+	private final long[] bmp;
+	private final boolean supplementary;
+
+	private CodePointTable(String[] dense, int[] keys, String[] values, int size, long[] bmp, boolean supplementary) {
+		this.dense = dense;
+		this.bmp = bmp;
+		this.supplementary = supplementary;
+		this.keys = keys;
+		this.values = values;
+		this.mask = keys.length-1;
+		this.size = size;
+	}
+
+	/**
+	 * Creates a new table with the entries of the specified map. Entries
+	 * with a null or empty value are not included, since they do not
+	 * result in a substitution.
+	 * @param map the map
+	 * @return returns a new table
+	 * @throws IllegalArgumentException if a key isn't a valid code point
+	 */
+	static CodePointTable compile(Map<Integer, String> map) {
+		int maxDense = -1;
+		int sparse = 0;
+		for (Map.Entry<Integer, String> e : map.entrySet()) {
+			if (!isIncluded(e)) {
+				continue;
+			}
+			int cp = e.getKey();
+			if (cp<DENSE_LIMIT) {
+				maxDense = Math.max(maxDense, cp);
+			} else {
+				sparse++;
+			}
+		}
+		String[] dense = new String[maxDense+1];
+		// keep the load factor at or below 0.5
+		int capacity = Integer.highestOneBit(Math.max(1, sparse)*2-1)<<1;
+		int[] keys = new int[capacity];
+		Arrays.fill(keys, NO_KEY);
+		String[] values = new String[capacity];
+		long[] bmp = new long[(Character.MAX_VALUE+1)>>6];
+		boolean supplementary = false;
+		int size = 0;
+		for (Map.Entry<Integer, String> e : map.entrySet()) {
+			if (!isIncluded(e)) {
+				continue;
+			}
+			int cp = e.getKey();
+			if (cp<=Character.MAX_VALUE) {
+				bmp[cp>>6] |= 1L<<cp;
+			} else {
+				supplementary = true;
+			}
+			if (cp<DENSE_LIMIT) {
+				dense[cp] = e.getValue();
+			} else {
+				int i = hash(cp) & (capacity-1);
+				while (keys[i]!=NO_KEY) {
+					i = (i+1) & (capacity-1);
+				}
+				keys[i] = cp;
+				values[i] = e.getValue();
+			}
+			size++;
+		}
+		return new CodePointTable(dense, keys, values, size, bmp, supplementary);
+	}
+
+	private static boolean isIncluded(Map.Entry<Integer, String> e) {
+		return e.getKey()!=null && Character.isValidCodePoint(e.getKey()) 
+				&& e.getValue()!=null && !e.getValue().isEmpty();
+	}
+
+	private static int hash(int cp) {
+		int h = cp * 0x9E3779B9;
+		return h ^ (h>>>16);
+	}
+
+	/**
+	 * Gets the substitution for the specified code point.
+	 * @param codePoint the code point
+	 * @return returns the substitution, or null if the code point has no substitution
+	 */
+	String get(int codePoint) {
+		if (codePoint<dense.length) {
+			return codePoint<0?null:dense[codePoint];
+		} else if (codePoint<DENSE_LIMIT) {
+			return null;
+		}
+		int i = hash(codePoint) & mask;
+		int k;
+		while ((k = keys[i])!=NO_KEY) {
+			if (k==codePoint) {
+				return values[i];
+			}
+			i = (i+1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if a code point starting with the specified char may have
+	 * a substitution. If this method returns false, the code point
+	 * doesn't have a substitution.
+	 * @param c the char
+	 * @return returns false if the code point starting with the char 
+	 * 		doesn't have a substitution, true otherwise
+	 */
+	boolean mayHaveSubstitution(char c) {
+		return (bmp[c>>6] & (1L<<c))!=0 || (supplementary && Character.isHighSurrogate(c));
+	}
+
+	/**
+	 * Gets the number of substitutions in this table.
+	 * @return returns the number of substitutions
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets an estimate of the memory used by the lookup arrays of this table,
+	 * in bytes. The substitution strings, which are shared with the map the
+	 * table was compiled from, are not included. The estimate assumes
+	 * 4 byte references and 16 byte array headers.
+	 * @return returns the estimated footprint
+	 */
+	long getFootprint() {
+		return 16 + 4L*dense.length + 16 + 4L*keys.length + 16 + 4L*values.length + 16 + 8L*bmp.length;
+	}
+}
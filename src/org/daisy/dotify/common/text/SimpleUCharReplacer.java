@@ -2,11 +2,15 @@ package org.daisy.dotify.common.text;
 
 import java.io.IOException;
 import java.net.URL;
-import java.text.Normalizer;
+import java.util.AbstractCollection;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * <p>
@@ -60,6 +64,12 @@ import java.util.Set;
  * codepoints from a string.
  * </p>
  * 
+ * <p>
+ * Lookups are made in a table that is compiled from the map's contents when
+ * it is first needed and discarded when the map is modified, directly or
+ * through one of its collection views.
+ * </p>
+ * 
  * <ul><li>see [1] http://java.sun.com/j2se/1.5.0/docs/api/java/util/Properties.html</li>
  * <li>see [2] http://java.sun.com/dtd/properties.dtd</li></ul>
  * 
@@ -72,6 +82,7 @@ public class SimpleUCharReplacer extends HashMap<Integer, String> {
 	 * 
 	 */
 	private static final long serialVersionUID = -3238811228931823883L;
+	private transient volatile CodePointTable table;
 
 	/**
 	 * Creates a new instance.
@@ -96,36 +107,278 @@ public class SimpleUCharReplacer extends HashMap<Integer, String> {
 
 	/**
 	 * Replaces characters in the input according to this object's current configuration.
+	 * If no characters are replaced, the input is returned.
 	 * @param input the input
 	 * @return returns a modified string
 	 */
 	public CharSequence replace(String input) {
-		int codePoint;
-
-		StringBuilder sb = new StringBuilder(input.length());
-
-		// Java 1.6 SDK version
-		Normalizer.normalize(input, Normalizer.Form.NFC);
-
-		//Java 1.5 SDK version
+		CodePointTable t = getTable();
+		StringBuilder sb = null;
+		// the start of the characters that haven't been copied yet
+		int start = 0;
 		// iterate over each code point in the input string
 		for (int offset = 0; offset < input.length();) {
-			codePoint = input.codePointAt(offset);
-			CharSequence substitution = get(codePoint);
-			if (null != substitution && substitution.length() > 0) {
+			if (!t.mayHaveSubstitution(input.charAt(offset))) {
+				offset++;
+				continue;
+			}
+			int codePoint = input.codePointAt(offset);
+			int next = offset + Character.charCount(codePoint);
+			String substitution = t.get(codePoint);
+			if (null != substitution) {
 				// a replacement occurred
-				sb.append(substitution);
-			} else {
-				// a replacement didn't occur
-				sb.appendCodePoint(codePoint);
+				if (sb == null) {
+					sb = new StringBuilder(input.length() + 16);
+				}
+				sb.append(input, start, offset).append(substitution);
+				start = next;
 			}
-			offset += Character.charCount(codePoint);
+			offset = next;
 		}
-		 
-
+		if (sb == null) {
+			return input;
+		}
+		sb.append(input, start, input.length());
 		return sb;
 	}
 
+	/**
+	 * Gets the lookup table for the current contents of this map.
+	 * @return returns the lookup table
+	 */
+	CodePointTable getTable() {
+		CodePointTable t = table;
+		if (t==null) {
+			t = CodePointTable.compile(this);
+			table = t;
+		}
+		return t;
+	}
+
+	private void invalidate() {
+		table = null;
+	}
+
+	@Override
+	public String put(Integer key, String value) {
+		invalidate();
+		return super.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends Integer, ? extends String> m) {
+		invalidate();
+		super.putAll(m);
+	}
+
+	@Override
+	public String remove(Object key) {
+		invalidate();
+		return super.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		invalidate();
+		super.clear();
+	}
+
+	@Override
+	public String putIfAbsent(Integer key, String value) {
+		invalidate();
+		return super.putIfAbsent(key, value);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		invalidate();
+		return super.remove(key, value);
+	}
+
+	@Override
+	public boolean replace(Integer key, String oldValue, String newValue) {
+		invalidate();
+		return super.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public String replace(Integer key, String value) {
+		invalidate();
+		return super.replace(key, value);
+	}
+
+	@Override
+	public String computeIfAbsent(Integer key, Function<? super Integer, ? extends String> mappingFunction) {
+		invalidate();
+		return super.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public String computeIfPresent(Integer key, BiFunction<? super Integer, ? super String, ? extends String> remappingFunction) {
+		invalidate();
+		return super.computeIfPresent(key, remappingFunction);
+	}
+
+	@Override
+	public String compute(Integer key, BiFunction<? super Integer, ? super String, ? extends String> remappingFunction) {
+		invalidate();
+		return super.compute(key, remappingFunction);
+	}
+
+	@Override
+	public String merge(Integer key, String value, BiFunction<? super String, ? super String, ? extends String> remappingFunction) {
+		invalidate();
+		return super.merge(key, value, remappingFunction);
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super Integer, ? super String, ? extends String> function) {
+		invalidate();
+		super.replaceAll(function);
+	}
+
+	@Override
+	public Set<Integer> keySet() {
+		return new SetView<>(super.keySet());
+	}
+
+	@Override
+	public Collection<String> values() {
+		return new CollectionView<>(super.values());
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, String>> entrySet() {
+		return new EntrySetView(super.entrySet());
+	}
+
+	/**
+	 * Provides a collection view that discards the lookup table when
+	 * the collection is modified.
+	 */
+	private class CollectionView<E> extends AbstractCollection<E> {
+		final Collection<E> view;
+
+		CollectionView(Collection<E> view) {
+			this.view = view;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			Iterator<E> it = view.iterator();
+			return new Iterator<E>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public E next() {
+					return wrap(it.next());
+				}
+
+				@Override
+				public void remove() {
+					invalidate();
+					it.remove();
+				}
+			};
+		}
+
+		E wrap(E e) {
+			return e;
+		}
+
+		@Override
+		public int size() {
+			return view.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return view.contains(o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			invalidate();
+			return view.remove(o);
+		}
+
+		@Override
+		public void clear() {
+			invalidate();
+			view.clear();
+		}
+	}
+
+	/**
+	 * Provides a set view that discards the lookup table when the set is modified.
+	 */
+	private class SetView<E> extends CollectionView<E> implements Set<E> {
+
+		SetView(Set<E> view) {
+			super(view);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return view.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			return view.hashCode();
+		}
+	}
+
+	/**
+	 * Provides an entry set view that also discards the lookup table when the
+	 * value of an entry is set.
+	 */
+	private class EntrySetView extends SetView<Map.Entry<Integer, String>> {
+
+		EntrySetView(Set<Map.Entry<Integer, String>> view) {
+			super(view);
+		}
+
+		@Override
+		Map.Entry<Integer, String> wrap(Map.Entry<Integer, String> e) {
+			return new Map.Entry<Integer, String>() {
+				@Override
+				public Integer getKey() {
+					return e.getKey();
+				}
+
+				@Override
+				public String getValue() {
+					return e.getValue();
+				}
+
+				@Override
+				public String setValue(String value) {
+					invalidate();
+					return e.setValue(value);
+				}
+
+				@Override
+				public boolean equals(Object o) {
+					return e.equals(o);
+				}
+
+				@Override
+				public int hashCode() {
+					return e.hashCode();
+				}
+
+				@Override
+				public String toString() {
+					return e.toString();
+				}
+			};
+		}
+	}
+
 	/**
 	 * Loads a table using the Properties class.
 	 */
@@ -68,6 +68,16 @@ public class CachingURIResolver implements URIResolver {
         }        
         reader.setEntityResolver(new EntityResolverCache());
     }    
+
+    /**
+     * Creates a new uri resolver with the specified reader. The reader must be namespace
+     * aware. The reader's entity resolver is replaced.
+     * @param reader the reader
+     */
+    CachingURIResolver(XMLReader reader) {
+        this.reader = reader;
+        reader.setEntityResolver(new EntityResolverCache());
+    }
     
     @Override
 	public Source resolve(String href, String base) throws TransformerException {
@@ -0,0 +1,110 @@
+package org.daisy.dotify.common.xml;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Provides a thread safe, bounded pool of namespace aware SAX parsers. Creating
+ * a parser factory and a parser is expensive compared to parsing a small file,
+ * so parsers are reused.
+ *
+ * <p>A parser that is acquired from the pool must be returned using
+ * {@link #release(SAXParser)} when it is no longer in use. The parser is reset
+ * before it is returned to the pool, so that handlers and properties set by one
+ * user are not seen by the next. If the pool is full, or if the parser cannot be
+ * reset, the parser is discarded.</p>
+ */
+final class ParserPool {
+	private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+	private static ParserPool defaultPool = null;
+	private final SAXParserFactory factory;
+	private final BlockingQueue<SAXParser> pool;
+
+	/**
+	 * Creates a new pool.
+	 * @param factory the factory to use when the pool is empty. The factory
+	 * is made namespace aware.
+	 * @param capacity the maximum number of idle parsers in the pool
+	 */
+	ParserPool(SAXParserFactory factory, int capacity) {
+		factory.setNamespaceAware(true);
+		this.factory = factory;
+		this.pool = new ArrayBlockingQueue<>(capacity);
+	}
+
+	/**
+	 * Gets the default pool. The default pool keeps at most two parsers
+	 * per available processor.
+	 * @return returns the default pool
+	 */
+	static synchronized ParserPool getDefault() {
+		if (defaultPool==null) {
+			defaultPool = new ParserPool(SAXParserFactory.newInstance(), 2*Runtime.getRuntime().availableProcessors());
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * Gets a parser from the pool, or creates a new parser if the pool is empty.
+	 * @return returns a parser
+	 * @throws XMLToolsException if a parser cannot be created
+	 */
+	SAXParser acquire() throws XMLToolsException {
+		SAXParser ret = pool.poll();
+		if (ret!=null) {
+			return ret;
+		}
+		try {
+			// factories are not required to be thread safe
+			synchronized (factory) {
+				return factory.newSAXParser();
+			}
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new XMLToolsException("Failed to set up XML parser.", e);
+		}
+	}
+
+	/**
+	 * Resets the parser and returns it to the pool.
+	 * @param parser the parser, may be null
+	 */
+	void release(SAXParser parser) {
+		if (parser==null) {
+			return;
+		}
+		try {
+			parser.reset();
+			XMLReader reader = parser.getXMLReader();
+			reader.setContentHandler(null);
+			reader.setDTDHandler(null);
+			reader.setEntityResolver(null);
+			reader.setErrorHandler(null);
+			try {
+				reader.setProperty(LEXICAL_HANDLER, null);
+			} catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+				// the property isn't used
+			}
+		} catch (SAXException | RuntimeException e) {
+			// don't reuse a parser that could not be reset
+			return;
+		}
+		pool.offer(parser);
+	}
+
+	/**
+	 * Gets the number of idle parsers in the pool.
+	 * @return returns the number of idle parsers
+	 */
+	int size() {
+		return pool.size();
+	}
+}
@@ -0,0 +1,130 @@
+package org.daisy.dotify.common.xml;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Provides a size bounded cache of compiled stylesheets. Entries are keyed by
+ * the stylesheet's system id and the least recently used entry is evicted when
+ * the cache is full. If the system id refers to a file, an entry is only used
+ * if the file hasn't been modified since the stylesheet was compiled.
+ *
+ * <p>Only stream sources without an input stream or reader are cached, since
+ * the contents of other sources isn't determined by the system id alone.
+ * Other sources are compiled every time and are not counted as hits or
+ * misses.</p>
+ */
+final class TemplatesCache {
+	private final Map<String, CachedTemplates> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private static class CachedTemplates {
+		private final long lastModified;
+		private final Templates templates;
+		private CachedTemplates(long lastModified, Templates templates) {
+			this.lastModified = lastModified;
+			this.templates = templates;
+		}
+	}
+
+	/**
+	 * Creates a new cache with the specified maximum size.
+	 * @param maxSize the maximum number of compiled stylesheets
+	 * @throws IllegalArgumentException if the maximum size is less than one
+	 */
+	TemplatesCache(int maxSize) {
+		if (maxSize<1) {
+			throw new IllegalArgumentException("Cache size must be at least one: " + maxSize);
+		}
+		this.entries = new LinkedHashMap<String, CachedTemplates>(16, 0.75f, true) {
+			private static final long serialVersionUID = 6203787325575009893L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedTemplates> eldest) {
+				return size()>maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Gets the compiled stylesheet for the specified source, compiling it
+	 * with the factory if it isn't in the cache.
+	 * @param xslt the stylesheet
+	 * @param factory the factory
+	 * @return returns the compiled stylesheet
+	 * @throws TransformerConfigurationException if the stylesheet cannot be compiled
+	 */
+	Templates get(Source xslt, TransformerFactory factory) throws TransformerConfigurationException {
+		if (!isCacheable(xslt)) {
+			return factory.newTemplates(xslt);
+		}
+		String systemId = xslt.getSystemId();
+		long lastModified = lastModified(systemId);
+		CachedTemplates e;
+		synchronized (entries) {
+			e = entries.get(systemId);
+		}
+		if (e!=null && e.lastModified==lastModified) {
+			hits.incrementAndGet();
+			return e.templates;
+		}
+		misses.incrementAndGet();
+		Templates ret = factory.newTemplates(xslt);
+		synchronized (entries) {
+			entries.put(systemId, new CachedTemplates(lastModified, ret));
+		}
+		return ret;
+	}
+
+	private static boolean isCacheable(Source xslt) {
+		if (xslt instanceof StreamSource) {
+			StreamSource ss = (StreamSource)xslt;
+			return ss.getInputStream()==null && ss.getReader()==null
+					&& ss.getSystemId()!=null && !ss.getSystemId().isEmpty();
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the last modified time of the resource with the specified system id,
+	 * if it is a file. Otherwise, the resource is assumed not to change.
+	 * @param systemId the system id
+	 * @return the last modified time, or zero if it isn't known
+	 */
+	private static long lastModified(String systemId) {
+		try {
+			URI uri = new URI(systemId);
+			if ("file".equals(uri.getScheme())) {
+				return new File(uri).lastModified();
+			}
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			// not a file
+		}
+		return 0;
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
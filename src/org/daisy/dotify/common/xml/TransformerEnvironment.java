@@ -7,6 +7,7 @@ import java.util.function.Function;
 
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
@@ -21,6 +22,7 @@ public final class TransformerEnvironment<T extends Throwable> {
 	private final TransformerFactory factory;
 	private final Function<? super Throwable, T> throwableProcessor;
 	private final Map<String, Object> params;
+	private final TemplatesCache templates;
 
 	/**
 	 * Provides a builder for a {@link TransformerEnvironment}.
@@ -28,6 +30,7 @@ public final class TransformerEnvironment<T extends Throwable> {
 	public static class Builder {
 		private TransformerFactory factory = null;
 		private Map<String, Object> params = Collections.emptyMap();
+		private int templatesCacheSize = 0;
 		
 		private Builder() {
 		}
@@ -52,6 +55,25 @@ public final class TransformerEnvironment<T extends Throwable> {
 			return this;
 		}
 		
+		/**
+		 * Sets the maximum number of compiled stylesheets to keep in this environment.
+		 * Stylesheets are identified by system id and, if the system id refers to a 
+		 * file, the last modified time of the file. When the cache is full, the least 
+		 * recently used stylesheet is removed. Stylesheets are only cached if they are 
+		 * read from their system id. By default, stylesheets are not cached.
+		 * @param size the maximum number of compiled stylesheets, or zero to disable 
+		 * 		caching
+		 * @return this builder
+		 * @throws IllegalArgumentException if size is negative
+		 */
+		public Builder templatesCacheSize(int size) {
+			if (size<0) {
+				throw new IllegalArgumentException("Negative size: " + size);
+			}
+			this.templatesCacheSize = size;
+			return this;
+		}
+		
 		/**
 		 * Builds a new environment using the current configuration of this builder.
 		 * @return a new {@link TransformerEnvironment}
@@ -90,6 +112,7 @@ public final class TransformerEnvironment<T extends Throwable> {
 		this.throwableProcessor = throwableProcessor;
 		this.params = builder.params;
 		this.factory = Optional.ofNullable(builder.factory).orElse(TransformerFactory.newInstance());
+		this.templates = builder.templatesCacheSize>0?new TemplatesCache(builder.templatesCacheSize):null;
 	}
 	
 	/**
@@ -103,12 +126,50 @@ public final class TransformerEnvironment<T extends Throwable> {
 	
 	Transformer newTransformer(Source xslt) throws T {
 		try {
+			if (templates!=null) {
+				return templates.get(xslt, factory).newTransformer();
+			}
 			return factory.newTransformer(xslt);
 		} catch (TransformerConfigurationException e) {
 			throw toThrowable(e);
 		}
 	}
 	
+	/**
+	 * Gets the number of times that a compiled stylesheet was found in the cache.
+	 * @return the number of cache hits, or zero if caching is disabled
+	 */
+	public long getTemplatesCacheHits() {
+		return templates!=null?templates.getHits():0;
+	}
+
+	/**
+	 * Gets the number of times that a stylesheet that could be cached had to be compiled.
+	 * @return the number of cache misses, or zero if caching is disabled
+	 */
+	public long getTemplatesCacheMisses() {
+		return templates!=null?templates.getMisses():0;
+	}
+	
+	Templates newTemplates(Source xslt) throws T {
+		try {
+			if (templates!=null) {
+				return templates.get(xslt, factory);
+			}
+			return factory.newTemplates(xslt);
+		} catch (TransformerConfigurationException e) {
+			throw toThrowable(e);
+		}
+	}
+
+	Transformer newTransformer(Templates xslt) throws T {
+		try {
+			return xslt.newTransformer();
+		} catch (TransformerConfigurationException e) {
+			throw toThrowable(e);
+		}
+	}
+	
 	Map<String, Object> getParameters() {
 		return params;
 	}
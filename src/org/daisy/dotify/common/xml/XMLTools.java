@@ -11,17 +11,24 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -386,25 +393,128 @@ public class XMLTools {
 	 * @throws T if the transformation is unsuccessful
 	 */
 	public static <T extends Exception> void transform(Source source, Result result, Source xslt, TransformerEnvironment<T> env) throws T {
-		Transformer transformer = env.newTransformer(xslt);
+		transform(source, result, env.newTransformer(xslt), env, false);
+	}
+
+	/**
+	 * <p>Transforms several xml documents with the same xslt. The xslt is compiled once
+	 * and the transformations are run in the common fork join pool.</p>
+	 * @param batch a list of transformations, each with the source as key and the result as value.
+	 * 		Sources and results can be of any type supported by {@link #transform(Object, Object, Object, TransformerEnvironment)}. 
+	 * @param xslt the xslt
+	 * @param env the transformer environment
+	 * @param <T> the type of exception thrown
+	 * @throws T if the xslt cannot be compiled or if at least one transformation is unsuccessful
+	 * @see #transform(List, Object, TransformerEnvironment, Executor)
+	 */
+	public static <T extends Exception> void transform(List<? extends Map.Entry<?, ?>> batch, Object xslt, TransformerEnvironment<T> env) throws T {
+		transform(batch, xslt, env, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * <p>Transforms several xml documents with the same xslt. The xslt is compiled once
+	 * and the transformations are run using the specified executor. Each thread uses
+	 * its own transformer.</p>
+	 * 
+	 * <p>All transformations are attempted, even if some of them are unsuccessful. 
+	 * The exception for the first unsuccessful transformation in the batch is thrown
+	 * after all transformations have completed. Exceptions for other unsuccessful 
+	 * transformations are added to it as suppressed exceptions.</p>
+	 * 
+	 * @param batch a list of transformations, each with the source as key and the result as value.
+	 * 		Sources and results can be of any type supported by {@link #transform(Object, Object, Object, TransformerEnvironment)}. 
+	 * @param xslt the xslt
+	 * @param env the transformer environment
+	 * @param executor the executor
+	 * @param <T> the type of exception thrown
+	 * @throws T if the xslt cannot be compiled or if at least one transformation is unsuccessful
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Exception> void transform(List<? extends Map.Entry<?, ?>> batch, Object xslt, TransformerEnvironment<T> env, Executor executor) throws T {
+		Templates templates = env.newTemplates(env.asSource(xslt));
+		// the transformers are only kept for the duration of this call
+		Map<Thread, Transformer> transformers = new ConcurrentHashMap<>();
+		List<T> errors = new ArrayList<>(Collections.nCopies(batch.size(), null));
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		for (int i=0; i<batch.size(); i++) {
+			int index = i;
+			Map.Entry<?, ?> e = batch.get(i);
+			tasks.add(CompletableFuture.runAsync(()-> {
+				try {
+					Transformer transformer = transformers.get(Thread.currentThread());
+					if (transformer==null) {
+						transformer = env.newTransformer(templates);
+						transformers.put(Thread.currentThread(), transformer);
+					} else {
+						transformer.reset();
+					}
+					transform(env.asSource(e.getKey()), env.asResult(e.getValue()), transformer, env, true);
+				} catch (RuntimeException ex) {
+					errors.set(index, env.toThrowable(ex));
+				} catch (Exception ex) {
+					// the only checked exceptions that are thrown have already been processed
+					errors.set(index, (T)ex);
+				}
+			}, executor));
+		}
+		try {
+			CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw env.toThrowable(e.getCause());
+		}
+		T first = null;
+		for (T t : errors) {
+			if (t==null) {
+				continue;
+			} else if (first==null) {
+				first = t;
+			} else {
+				first.addSuppressed(t);
+			}
+		}
+		if (first!=null) {
+			throw first;
+		}
+	}
 
+	/**
+	 * Transforms the xml using the specified transformer.
+	 * @param source the source xml
+	 * @param result the result xml
+	 * @param transformer the transformer
+	 * @param env the transformer environment
+	 * @param strict true if all errors should be thrown, false if only errors
+	 * 		reported by the transformer should be thrown
+	 * @throws T if the transformation is unsuccessful
+	 */
+	private static <T extends Exception> void transform(Source source, Result result, Transformer transformer, TransformerEnvironment<T> env, boolean strict) throws T {
 		for (String name : env.getParameters().keySet()) {
 			transformer.setParameter(name, env.getParameters().get(name));
 		}
 		
-		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+		ParserPool parsers = ParserPool.getDefault();
+		SAXParser resolverParser = null;
 		try {
-			transformer.setURIResolver(new CachingURIResolver(parserFactory));
-		} catch (XMLToolsException e) {
+			resolverParser = parsers.acquire();
+			transformer.setURIResolver(new CachingURIResolver(resolverParser.getXMLReader()));
+		} catch (XMLToolsException | SAXException e) {
+			if (strict) {
+				parsers.release(resolverParser);
+				throw env.toThrowable(e);
+			}
 			env.toThrowable(e);
 		}
         //Create a SAXSource, hook up an entityresolver
         if(source.getSystemId()!=null && source.getSystemId().length()>0) {
+			SAXParser parser = null;
         	try {
 				if (source instanceof SAXSource) {
 					transformer.transform(setEntityResolver((SAXSource) source), result);
 				} else {
-					SAXParser parser = parserFactory.newSAXParser();
+					parser = parsers.acquire();
 					parser.getXMLReader().setFeature("http://xml.org/sax/features/validation", false);
 					try (InputStream is = new URLCache().openStream(new URI(source.getSystemId()).toURL())) {
 						InputSource isource = new InputSource(is);
@@ -417,10 +527,17 @@ public class XMLTools {
         	} catch (TransformerException e) {
     			throw env.toThrowable(e);
     		} catch (Exception e) {
+    			if (strict) {
+    				throw env.toThrowable(e);
+    			}
     			//TODO: really catch everything?
 				e.printStackTrace();
+			} finally {
+				parsers.release(parser);
+				parsers.release(resolverParser);
 			}
 		} else {
+			parsers.release(resolverParser);
 			throw env.toThrowable(new XMLToolsException("No system id on source, see https://github.com/brailleapps/dotify.common/issues/4."));
 		}
 	}
@@ -534,16 +651,8 @@ public class XMLTools {
 	 * @throws XMLToolsException if a parser cannot be configured or if parsing fails
 	 */
 	public static final XMLInfo parseXML(InputSource source, boolean peek) throws XMLToolsException {
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		factory.setNamespaceAware(true);
-		SAXParser saxParser = null;
-		try {
-			saxParser = factory.newSAXParser();
-		} catch (ParserConfigurationException e) {
-			throw new XMLToolsException("Failed to set up XML parser.", e);
-		} catch (SAXException e) {
-			throw new XMLToolsException("Failed to set up XML parser.", e);
-		}
+		ParserPool parsers = ParserPool.getDefault();
+		SAXParser saxParser = parsers.acquire();
 		XMLHandler dh = new XMLHandler(peek);
 		try {
 	        XMLReader reader = saxParser.getXMLReader();
@@ -556,13 +665,15 @@ public class XMLTools {
 	            reader.setErrorHandler(dh);
 	            reader.setDTDHandler(dh);
 	        }
-			saxParser.getXMLReader().parse(source);
+			reader.parse(source);
 		} catch (StopParsing e) {
 			//thrown if peek is true
 		} catch (SAXException e) {
 			return null;
 		} catch (IOException e) {
 			throw new XMLToolsException(e);
+		} finally {
+			parsers.release(saxParser);
 		}
 		return dh.root;
 	}
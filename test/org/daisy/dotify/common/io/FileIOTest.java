@@ -7,11 +7,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 @SuppressWarnings("javadoc")
@@ -51,4 +54,47 @@ public class FileIOTest {
 		assertEquals(-1, FileIO.diff(new FileInputStream(in), new FileInputStream(out)));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testDiffLarge() throws IOException {
+		byte[] buf1 = new byte[200000];
+		new Random(1).nextBytes(buf1);
+		for (int pos : new int[]{0, 7, 8, 65535, 65536, 65543, 199999}) {
+			byte[] buf2 = buf1.clone();
+			buf2[pos]++;
+			assertEquals(pos, FileIO.diff(new ByteArrayInputStream(buf1), new ByteArrayInputStream(buf2)));
+		}
+		assertEquals(-1, FileIO.diff(new ByteArrayInputStream(buf1), new ByteArrayInputStream(buf1.clone())));
+	}
+
+	@Test
+	public void testDiffPrefix() throws IOException {
+		byte[] buf1 = new byte[70000];
+		new Random(1).nextBytes(buf1);
+		byte[] buf2 = Arrays.copyOf(buf1, 65536);
+		assertEquals(65536, FileIO.diff(new ByteArrayInputStream(buf1), new ByteArrayInputStream(buf2)));
+		assertEquals(65536, FileIO.diff(new ByteArrayInputStream(buf2), new ByteArrayInputStream(buf1)));
+		assertEquals(0, FileIO.diff(new ByteArrayInputStream(buf1), new ByteArrayInputStream(new byte[0])));
+		assertEquals(-1, FileIO.diff(new ByteArrayInputStream(new byte[0]), new ByteArrayInputStream(new byte[0])));
+	}
+
+	@Test
+	public void testCopyAndDiffFiles() throws IOException {
+		File in = File.createTempFile(this.getClass().getName(), ".tmp");
+		in.deleteOnExit();
+		File out = File.createTempFile(this.getClass().getName(), ".tmp");
+		out.deleteOnExit();
+		byte[] buf = new byte[200000];
+		new Random(1).nextBytes(buf);
+		Files.write(in.toPath(), buf);
+		FileIO.copy(new FileInputStream(in), new FileOutputStream(out));
+		assertArrayEquals(buf, Files.readAllBytes(out.toPath()));
+		assertEquals(-1, FileIO.diff(in, out));
+		buf[100001]++;
+		Files.write(out.toPath(), Arrays.copyOf(buf, 150000));
+		assertEquals(100001, FileIO.diff(in, out));
+		assertEquals(100001, FileIO.diff(new FileInputStream(in), new FileInputStream(out)));
+		Files.write(out.toPath(), Arrays.copyOf(buf, 100000));
+		assertEquals(100000, FileIO.diff(in, out));
+	}
+
+}
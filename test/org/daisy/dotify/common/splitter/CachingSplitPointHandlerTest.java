@@ -0,0 +1,92 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class CachingSplitPointHandlerTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	@Test
+	public void testSameAsHandler() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cached = new CachingSplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, RandomFlow.supplements());
+					List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = new ArrayList<>();
+					SplitPointDataList<DummySplitPoint> tail = data;
+					while (!tail.isEmpty()) {
+						// trial splits, smaller and larger than the actual split
+						for (float trial : new float[]{height-0.5f, height+3, height/2, height, height+1.5f}) {
+							RandomFlow.assertSameSpec("Height " + trial, bph.find(trial, tail, options), cached.find(trial, tail, options));
+						}
+						SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = cached.split(cached.find(height, tail, options), tail);
+						actual.add(sp);
+						if (sp.getHead().isEmpty() && sp.getDiscarded().isEmpty()) {
+							break;
+						}
+						tail = SplitPointHandler.<DummySplitPoint, SplitPointDataList<DummySplitPoint>>trimLeading(sp.getTail()).getTail();
+					}
+					RandomFlow.assertSamePages(RandomFlow.paginate(bph, data, height, options), actual);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cached = new CachingSplitPointHandler<>(1);
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Arrays.asList(c, c, t, c, t, c, c, t));
+		assertEquals(3, cached.find(3, data).getIndex());
+		assertEquals(5, cached.find(6, data).getIndex());
+		assertEquals(3, cached.find(4, data).getIndex());
+		assertEquals(2, cached.getCacheHits());
+		assertEquals(1, cached.getCacheMisses());
+		// a different data source evicts the first one
+		SplitPointDataList<DummySplitPoint> tail = data.tail(3);
+		assertEquals(2, cached.find(3, tail).getIndex());
+		assertEquals(5, cached.find(6, data).getIndex());
+		assertEquals(2, cached.getCacheHits());
+		assertEquals(3, cached.getCacheMisses());
+		// the split method uses the cache as well
+		assertEquals(Arrays.asList(c, c, t, c, t), cached.split(6, data).getHead());
+		assertEquals(3, cached.getCacheHits());
+	}
+
+	@Test
+	public void testOptionsAreCachedSeparately() {
+		DummySplitPoint s = new DummySplitPoint.Builder().breakable(true).skippable(false).size(2).minSize(1).build();
+		CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cached = new CachingSplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Arrays.asList(t, t, s));
+		assertEquals(SplitPointSpecification.Type.ALL, cached.find(3, data).getType());
+		assertEquals(2, cached.find(3, data, StandardSplitOption.NO_LAST_UNIT_SIZE).getIndex());
+		assertEquals(0, cached.getCacheHits());
+		assertEquals(2, cached.getCacheMisses());
+	}
+
+	@Test
+	public void testMultiFind() {
+		CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> cached = new CachingSplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Arrays.asList(c, c, t, c, t, c, c, t));
+		List<SplitPointSpecification> specs = cached.find(new float[]{6, 3}, data);
+		assertEquals(5, specs.get(0).getIndex());
+		assertEquals(3, specs.get(1).getIndex());
+		assertEquals(3, cached.find(4, data).getIndex());
+		assertEquals(1, cached.getCacheHits());
+		assertEquals(1, cached.getCacheMisses());
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testCacheSize() {
+		new CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>(0);
+	}
+}
@@ -0,0 +1,157 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class IncrementalPaginatorTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	private static <U extends SplitPointDataSource<DummySplitPoint, U>> List<SplitPoint<DummySplitPoint, U>> paginate(U data, float height, SplitOption ... options) {
+		return paginate(data, new float[]{height}, options);
+	}
+
+	private static <U extends SplitPointDataSource<DummySplitPoint, U>> List<SplitPoint<DummySplitPoint, U>> paginate(U data, float[] breakPoints, SplitOption ... options) {
+		Paginator<DummySplitPoint, U> p = Paginator.builder(data).options(options).trimLeading(true).build();
+		List<SplitPoint<DummySplitPoint, U>> ret = new ArrayList<>();
+		while (p.hasNext()) {
+			SplitPoint<DummySplitPoint, U> sp = p.next(breakPoints[Math.min(ret.size(), breakPoints.length-1)]);
+			ret.add(sp);
+			if (sp.getHead().isEmpty() && sp.getDiscarded().isEmpty()) {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testSameAsPaginator() {
+		for (long seed=0; seed<10; seed++) {
+			Random r = new Random(seed);
+			List<DummySplitPoint> units = new ArrayList<>(RandomFlow.create(1000, seed));
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{10, 25}) {
+					IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(SplitPointDataList.columnar(units, RandomFlow.supplements()))
+							.options(options)
+							.trimLeading(true)
+							.build();
+					p.paginate(height);
+					List<DummySplitPoint> edited = new ArrayList<>(units);
+					// several edits of the same pagination
+					for (int k=0; k<5; k++) {
+						int index = r.nextInt(edited.size());
+						int removed = Math.min(r.nextInt(5), edited.size()-index);
+						List<DummySplitPoint> added = RandomFlow.create(r.nextInt(5), r.nextLong());
+						edited.subList(index, index+removed).clear();
+						edited.addAll(index, added);
+						String msg = seed + " " + height + " " + k;
+						SplitPointDataList<DummySplitPoint> data = SplitPointDataList.columnar(new ArrayList<>(edited), RandomFlow.supplements());
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = paginate(data, height, options);
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = p.update(data, index, removed, added.size());
+						RandomFlow.assertSamePages(expected, actual);
+						assertTrue(msg, p.getFoundPages()<=expected.size());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameAsPaginatorWithBreakPoints() {
+		float[] breakPoints = new float[]{6, 9, 6, 9, 6, 14};
+		for (long seed=0; seed<100; seed++) {
+			Random r = new Random(seed);
+			List<DummySplitPoint> units = new ArrayList<>(RandomFlow.create(400, seed));
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(SplitPointDataList.columnar(units, RandomFlow.supplements()))
+						.options(options)
+						.trimLeading(true)
+						.build();
+				p.paginate(breakPoints);
+				// an insertion, which may change the number of pages before the pages are the same again
+				int index = r.nextInt(units.size());
+				List<DummySplitPoint> added = RandomFlow.create(1+r.nextInt(5), r.nextLong());
+				List<DummySplitPoint> edited = new ArrayList<>(units);
+				edited.addAll(index, added);
+				SplitPointDataList<DummySplitPoint> data = SplitPointDataList.columnar(edited, RandomFlow.supplements());
+				List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = paginate(data, breakPoints, options);
+				List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = p.update(data, index, 0, added.size());
+				assertEquals(String.valueOf(seed), expected.size(), actual.size());
+				RandomFlow.assertSamePages(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testReusesPages() {
+		List<DummySplitPoint> units = new ArrayList<>(Collections.nCopies(1000, t));
+		IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(new SplitPointDataList<>(units)).build();
+		assertEquals(100, p.paginate(10).size());
+		assertEquals(100, p.getFoundPages());
+		// a unit on the 51st page is replaced
+		units.set(505, t);
+		assertEquals(100, p.update(new SplitPointDataList<>(units), 505, 1, 1).size());
+		assertEquals(1, p.getFoundPages());
+		// pages can only be broken after every tenth unit, and after the third unit of the 52nd page
+		for (int i=0; i<1000; i++) {
+			units.set(i, i%10==9 || i==512?t:c);
+		}
+		assertEquals(100, p.paginate(10).size());
+		// a unit that can be broken after is inserted on the 51st page, which changes the
+		// following pages until the 53rd page starts at the same unit as before
+		units.add(505, t);
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = p.update(new SplitPointDataList<>(units), 505, 0, 1);
+		RandomFlow.assertSamePages(paginate(new SplitPointDataList<>(units), 10), pages);
+		assertEquals(101, pages.size());
+		assertEquals(3, p.getFoundPages());
+	}
+
+	@Test
+	public void testBreakPoints() {
+		List<DummySplitPoint> units = new ArrayList<>(Collections.nCopies(20, t));
+		IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(new SplitPointDataList<>(units)).build();
+		p.paginate(2, 4, 6);
+		units.remove(0);
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = p.update(new SplitPointDataList<>(units), 0, 1, 0);
+		List<Integer> sizes = new ArrayList<>();
+		for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : pages) {
+			sizes.add(sp.getHead().size());
+		}
+		assertEquals(Arrays.asList(2, 4, 6, 6, 1), sizes);
+	}
+
+	@Test
+	public void testBreakPointsAfterInsertedPages() {
+		float[] breakPoints = new float[]{6, 9, 6, 9, 6, 14};
+		List<DummySplitPoint> units = new ArrayList<>(Collections.nCopies(100, t));
+		IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(new SplitPointDataList<>(units)).build();
+		p.paginate(breakPoints);
+		// two pages are inserted, so that the first page of the previous pagination
+		// becomes the third page, which has the same break point
+		units.addAll(0, Collections.nCopies(15, t));
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = p.update(new SplitPointDataList<>(units), 0, 0, 15);
+		RandomFlow.assertSamePages(paginate(new SplitPointDataList<>(units), breakPoints), pages);
+	}
+
+	@Test (expected=IllegalStateException.class)
+	public void testNotPaginated() {
+		IncrementalPaginator.builder(new SplitPointDataList<>(t, t)).build().update(new SplitPointDataList<>(t), 0, 1, 0);
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testEditOutsideOfData() {
+		IncrementalPaginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = IncrementalPaginator.builder(new SplitPointDataList<>(t, t)).build();
+		p.paginate(1);
+		p.update(new SplitPointDataList<>(t, t), 1, 2, 1);
+	}
+
+}
@@ -0,0 +1,39 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class IndexedSupplementsTest {
+
+	@Test
+	public void testIndexes() {
+		DummySplitPoint a = new DummySplitPoint.Builder().size(1).build();
+		DummySplitPoint b = new DummySplitPoint.Builder().size(2).build();
+		DummySplitPoint c = new DummySplitPoint.Builder().size(3).build();
+		IndexedSupplements<DummySplitPoint> supps = IndexedSupplements.<DummySplitPoint>builder()
+				.put("b", b).put("a", a).put("b", c).overhead(2).build();
+		assertEquals(2, supps.size());
+		assertEquals(0, supps.indexOf("b"));
+		assertEquals(1, supps.indexOf("a"));
+		assertEquals(-1, supps.indexOf("c"));
+		assertEquals(c, supps.get("b"));
+		assertEquals(c, supps.get(0));
+		assertNull(supps.get("c"));
+		assertEquals(3, supps.getUnitSize(0), 0);
+		assertEquals(1, supps.getUnitSize(1), 0);
+		assertEquals(2, supps.getOverhead(), 0);
+		assertArrayEquals(new int[]{1, 0}, supps.indexesOf(Arrays.asList("a", "c", "b")));
+		assertArrayEquals(new int[0], supps.indexesOf(null));
+	}
+
+	@Test (expected=NullPointerException.class)
+	public void testNullUnit() {
+		IndexedSupplements.<DummySplitPoint>builder().put("a", null);
+	}
+}
@@ -0,0 +1,167 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class OptimalPaginatorTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+	// the square of the unused space on the page, in units
+	private final SplitPointCost<DummySplitPoint> squared = (units, index, limit)->
+		units.get(index).isBreakable()?(limit-index)*(limit-index):Double.MAX_VALUE;
+
+	@Test
+	public void testSameAsBruteForce() {
+		Random r = new Random(0);
+		for (int k=0; k<200; k++) {
+			int size = 5+r.nextInt(20);
+			float[] heights = r.nextBoolean()?new float[]{2+r.nextInt(4)}:new float[]{2+r.nextInt(4), 2+r.nextInt(4), 2+r.nextInt(4)};
+			boolean[] breakable = new boolean[size];
+			List<DummySplitPoint> units = new ArrayList<>();
+			for (int i=0; i<size; i++) {
+				breakable[i] = r.nextInt(3)>0;
+				units.add(breakable[i]?t:c);
+			}
+			String msg = units + " " + Arrays.toString(heights);
+			List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = OptimalPaginator.builder(new SplitPointDataList<>(units))
+					.cost(squared)
+					.build()
+					.paginate(heights);
+			double expected = bruteForce(breakable, 0, 0, heights);
+			if (expected<Double.MAX_VALUE) {
+				assertEquals(msg, expected, cost(pages, heights), 0);
+				List<DummySplitPoint> actual = new ArrayList<>();
+				for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : pages) {
+					actual.addAll(sp.getHead());
+				}
+				assertEquals(msg, units, actual);
+				// never worse than the paginator
+				Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(units)).cost(squared).build();
+				List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> greedy = new ArrayList<>();
+				for (int i=0; p.hasNext(); i++) {
+					SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = p.next(heights[Math.min(i, heights.length-1)]);
+					greedy.add(sp);
+					if (sp.getHead().isEmpty()) {
+						break;
+					}
+				}
+				if (greedy.get(greedy.size()-1).getTail().isEmpty()) {
+					assertTrue(msg, cost(pages, heights)<=cost(greedy, heights));
+				}
+			} else {
+				// the last page has an empty head
+				assertTrue(msg, pages.get(pages.size()-1).getHead().isEmpty());
+			}
+		}
+	}
+
+	/**
+	 * Finds the lowest total cost by trying every combination of breakable units.
+	 */
+	private static double bruteForce(boolean[] breakable, int position, int page, float[] heights) {
+		int h = (int)heights[Math.min(page, heights.length-1)];
+		if (breakable.length-position<=h) {
+			return 0;
+		}
+		double ret = Double.MAX_VALUE;
+		int limit = h-1;
+		for (int i=0; i<=limit; i++) {
+			if (breakable[position+i]) {
+				double next = bruteForce(breakable, position+i+1, page+1, heights);
+				if (next<Double.MAX_VALUE) {
+					ret = Math.min(ret, (limit-i)*(limit-i)+next);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Computes the total cost of the pages, given that all units have size 1.
+	 */
+	private static double cost(List<? extends SplitPoint<DummySplitPoint, ?>> pages, float[] heights) {
+		double ret = 0;
+		for (int i=0; i<pages.size()-1; i++) {
+			double unused = heights[Math.min(i, heights.length-1)]-pages.get(i).getHead().size();
+			ret += unused*unused;
+		}
+		return ret;
+	}
+
+	@Test
+	public void testBetterThanPaginator() {
+		// the paginator uses the full first page, which leaves a single unit on the second page
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, t, c, t, t, c, c, c, c);
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(data).cost(squared).build();
+		List<Integer> greedy = new ArrayList<>();
+		while (p.hasNext()) {
+			greedy.add(p.next(4).getHead().size());
+		}
+		// the cost is 0+9
+		assertEquals(Arrays.asList(4, 1, 4), greedy);
+		List<Integer> optimal = new ArrayList<>();
+		for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : OptimalPaginator.builder(data).cost(squared).build().paginate(4)) {
+			optimal.add(sp.getHead().size());
+		}
+		// the cost is 4+1
+		assertEquals(Arrays.asList(2, 3, 4), optimal);
+	}
+
+	@Test
+	public void testBreakPoints() {
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(t, t, t, t, t, t, t, t, t);
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = OptimalPaginator.builder(data).build().paginate(2, 4, 3);
+		assertEquals(3, pages.size());
+		assertEquals(2, pages.get(0).getHead().size());
+		assertEquals(4, pages.get(1).getHead().size());
+		assertEquals(3, pages.get(2).getHead().size());
+		assertTrue(pages.get(2).getTail().isEmpty());
+	}
+
+	@Test
+	public void testAllUnitsIncluded() {
+		for (long seed=0; seed<10; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{10, 25}) {
+					List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = OptimalPaginator.builder(new SplitPointDataList<>(units, RandomFlow.supplements()))
+							.options(options)
+							.trimLeading(true)
+							.build()
+							.paginate(height, height*1.5f);
+					int count = 0;
+					for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : pages) {
+						count += sp.getHead().size() + sp.getDiscarded().size();
+					}
+					assertEquals(units.size(), count);
+					assertTrue(pages.get(pages.size()-1).getTail().isEmpty());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnitDoesNotFit() {
+		DummySplitPoint large = new DummySplitPoint.Builder().breakable(true).size(5).build();
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = OptimalPaginator.builder(new SplitPointDataList<>(t, t, large, t)).build().paginate(2);
+		assertEquals(2, pages.size());
+		assertEquals(Arrays.asList(t, t), pages.get(0).getHead());
+		assertEquals(Collections.emptyList(), pages.get(1).getHead());
+		assertEquals(Arrays.asList(large, t), pages.get(1).getTail().getRemaining());
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testNoBreakPoints() {
+		OptimalPaginator.builder(new SplitPointDataList<>(t, t)).build().paginate();
+	}
+
+}
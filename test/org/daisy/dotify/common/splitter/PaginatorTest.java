@@ -0,0 +1,120 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class PaginatorTest {
+	DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+	DummySplitPoint e = new DummySplitPoint.Builder().breakable(true).skippable(true).size(1).build();
+
+	@Test
+	public void testNext_01() {
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(c, c, t, c, c, t, c, c)).build();
+		assertTrue(p.hasNext());
+		assertEquals(Arrays.asList(c, c, t), p.next(4).getHead());
+		assertEquals(Arrays.asList(c, c, t), p.next(4).getHead());
+		assertEquals(Arrays.asList(c, c), p.next(4).getHead());
+		assertFalse(p.hasNext());
+		assertEquals(Collections.emptyList(), p.next(4).getHead());
+	}
+
+	@Test
+	public void testTrimLeading_01() {
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(e, c, c, e, e, c, e))
+				.trimLeading(true)
+				.build();
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = p.next(3);
+		assertEquals(Arrays.asList(c, c), sp.getHead());
+		assertEquals(Arrays.asList(e, e), sp.getDiscarded());
+		sp = p.next(3);
+		assertEquals(Arrays.asList(c, e), sp.getHead());
+		assertEquals(Arrays.asList(e), sp.getDiscarded());
+		assertFalse(p.hasNext());
+	}
+
+	@Test
+	public void testFind_01() {
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(e, c, t, c, t))
+				.trimLeading(true)
+				.build();
+		SplitPointSpecification spec = p.find(3);
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = new SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().split(spec, p.getRemaining());
+		assertEquals(Arrays.asList(c, t), sp.getHead());
+		assertEquals(Arrays.asList(c, t), sp.getTail().getRemaining());
+		// the leading unit is returned with the next split point
+		assertEquals(Arrays.asList(e), p.next(3).getDiscarded());
+	}
+
+	@Test
+	public void testIterator_01() {
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(c, t, c, c, t, c, c, c, t, c))
+				.build();
+		Iterator<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> it = p.iterator(Arrays.asList(2f, 3f, 4f, 5f).iterator());
+		List<List<DummySplitPoint>> heads = new ArrayList<>();
+		while (it.hasNext()) {
+			heads.add(it.next().getHead());
+		}
+		assertEquals(Arrays.asList(Arrays.asList(c, t), Arrays.asList(c, c, t), Arrays.asList(c, c, c, t), Arrays.asList(c)), heads);
+	}
+
+	@Test
+	public void testSameAsHandler() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					for (SplitPointDataList<DummySplitPoint> data : Arrays.asList(
+							new SplitPointDataList<>(units, RandomFlow.supplements()),
+							SplitPointDataList.indexed(units, RandomFlow.supplements()),
+							SplitPointDataList.columnar(units, RandomFlow.supplements()))) {
+						Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(data)
+								.options(options)
+								.trimLeading(true)
+								.build();
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = paginate(bph, data, height, options);
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = new ArrayList<>();
+						for (int i=0; i<expected.size(); i++) {
+							actual.add(p.next(height));
+						}
+						assertEquals(expected.get(expected.size()-1).getTail().isEmpty(), !p.hasNext());
+						RandomFlow.assertSamePages(expected, actual);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Paginates the data using the handler, with the removed leading units 
+	 * placed first in the discarded units of each split point. 
+	 */
+	private static List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> paginate(SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph, SplitPointDataList<DummySplitPoint> data, float height, SplitOption ... options) {
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> ret = new ArrayList<>();
+		SplitPointDataList<DummySplitPoint> tail = data;
+		while (!tail.isEmpty()) {
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> leading = SplitPointHandler.trimLeading(tail);
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = bph.split(height, leading.getTail(), options);
+			List<DummySplitPoint> discarded = new ArrayList<>(leading.getDiscarded());
+			discarded.addAll(sp.getDiscarded());
+			ret.add(new SplitPoint<>(sp.getHead(), sp.getSupplements(), sp.getTail(), discarded, sp.isHardBreak()));
+			if (sp.getHead().isEmpty() && discarded.isEmpty()) {
+				break;
+			}
+			tail = sp.getTail();
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.daisy.dotify.common.splitter.SplitPointSpecification.Type;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ParallelPaginatorTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	@Test
+	public void testSameAsSequential() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (long seed=0; seed<10; seed++) {
+				List<DummySplitPoint> units = RandomFlow.create(2000, seed);
+				// every unit with supplements starts a new segment
+				List<SplitPointDataList<DummySplitPoint>> segments = new SplitPointDataList<>(units, RandomFlow.supplements()).segments(u->!u.getSupplementaryIDs().isEmpty());
+				assertTrue(segments.size()>10);
+				for (SplitOption[] options : RandomFlow.OPTIONS) {
+					for (float height : new float[]{1, 5.5f, 25}) {
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = new ArrayList<>();
+						for (SplitPointDataList<DummySplitPoint> segment : segments) {
+							Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(segment)
+									.options(options)
+									.trimLeading(true)
+									.build();
+							while (p.hasNext()) {
+								SplitPointSpecification spec = p.find(height);
+								expected.add(p.next(spec));
+								if (spec.getType()==Type.NONE) {
+									break;
+								}
+							}
+						}
+						List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> actual = ParallelPaginator.builder(segments)
+								.options(options)
+								.trimLeading(true)
+								.executor(executor)
+								.build()
+								.paginate(height);
+						RandomFlow.assertSamePages(expected, actual);
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnitDoesNotFit() {
+		DummySplitPoint large = new DummySplitPoint.Builder().breakable(true).size(5).build();
+		List<SplitPointDataList<DummySplitPoint>> segments = Arrays.asList(
+				new SplitPointDataList<>(t, large, t),
+				new SplitPointDataList<>(c, t, c, t));
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> pages = ParallelPaginator.builder(segments).build().paginate(2);
+		assertEquals(4, pages.size());
+		assertEquals(Arrays.asList(t), pages.get(0).getHead());
+		assertEquals(Collections.emptyList(), pages.get(1).getHead());
+		assertEquals(Arrays.asList(large, t), pages.get(1).getTail().getRemaining());
+		assertEquals(Arrays.asList(c, t), pages.get(2).getHead());
+		assertEquals(Arrays.asList(c, t), pages.get(3).getHead());
+	}
+
+	@Test
+	public void testCounters() {
+		SplitPointCounters counters = new SplitPointCounters();
+		List<SplitPointDataList<DummySplitPoint>> segments = Arrays.asList(
+				new SplitPointDataList<>(c, t, c, t),
+				new SplitPointDataList<>(c, t, c, t));
+		assertEquals(4, ParallelPaginator.builder(segments).listener(counters).build().paginate(2).size());
+		assertEquals(4, counters.getSplits());
+	}
+
+	@Test (expected=IllegalStateException.class)
+	public void testException() {
+		List<SplitPointDataList<DummySplitPoint>> segments = Arrays.asList(
+				new SplitPointDataList<>(c, t, c, t),
+				new SplitPointDataList<>(c, c, c, t));
+		ParallelPaginator.builder(segments)
+				.cost((units, index, limit)->{
+					throw new IllegalStateException();
+				})
+				.executor(Runnable::run)
+				.build()
+				.paginate(2);
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class PartitionerTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	private static List<Integer> sizes(List<? extends SplitPoint<DummySplitPoint, ?>> parts) {
+		List<Integer> ret = new ArrayList<>();
+		for (SplitPoint<DummySplitPoint, ?> sp : parts) {
+			ret.add(sp.getHead().size());
+		}
+		return ret;
+	}
+
+	private SplitPointDataList<DummySplitPoint> breakable(int size) {
+		return new SplitPointDataList<>(Collections.nCopies(size, t));
+	}
+
+	@Test
+	public void testEqualParts() {
+		assertEquals(Arrays.asList(3, 3, 3), sizes(Partitioner.builder(breakable(9)).build().partition(3)));
+		assertEquals(Arrays.asList(3, 3, 4), sizes(Partitioner.builder(breakable(10)).build().partition(3)));
+		assertEquals(Arrays.asList(10), sizes(Partitioner.builder(breakable(10)).build().partition(1)));
+		// can't be divided further
+		assertEquals(Arrays.asList(1, 1), sizes(Partitioner.builder(breakable(2)).build().partition(3)));
+	}
+
+	@Test
+	public void testBreakableUnits() {
+		// the only breakable units are at 2, 5 and 6
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, c, t, c, c, t, t, c, c, c, c);
+		assertEquals(Arrays.asList(6, 5), sizes(Partitioner.builder(data).build().partition(2)));
+		assertEquals(Arrays.asList(3, 4, 4), sizes(Partitioner.builder(data).build().partition(3)));
+	}
+
+	@Test
+	public void testMinSize() {
+		assertEquals(Arrays.asList(4, 4, 2), sizes(Partitioner.builder(breakable(10)).minSize(4).build().partition(3)));
+	}
+
+	@Test
+	public void testMaxSize() {
+		assertEquals(Arrays.asList(4, 4, 2), sizes(Partitioner.builder(breakable(10)).maxSize(4).build().partition(2)));
+		assertEquals(Arrays.asList(3, 3, 4), sizes(Partitioner.builder(breakable(10)).maxSize(4).build().partition(3)));
+	}
+
+	@Test
+	public void testUnitDoesNotFit() {
+		DummySplitPoint large = new DummySplitPoint.Builder().breakable(true).size(5).build();
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> parts = Partitioner.builder(new SplitPointDataList<>(t, t, large, t)).maxSize(2).build().partition(2);
+		assertEquals(2, parts.size());
+		assertEquals(Arrays.asList(t, t), parts.get(0).getHead());
+		assertEquals(Collections.emptyList(), parts.get(1).getHead());
+		assertEquals(Arrays.asList(large, t), parts.get(1).getTail().getRemaining());
+	}
+
+	@Test
+	public void testCollapsibleUnitsBetweenParts() {
+		DummySplitPoint u1 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(3).build();
+		DummySplitPoint u2 = new DummySplitPoint.Builder().breakable(true).skippable(false).collapsable(true).size(2).build();
+		DummySplitPoint u3 = new DummySplitPoint.Builder().breakable(false).skippable(false).collapsable(true).size(1).build();
+		DummySplitPoint u4 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(2).build();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(u1, u2, u3, u1, u4);
+		List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> parts = Partitioner.builder(data).maxSize(5).build().partition(2);
+		// u3 collapses into u2 if they are in the same part, but not otherwise
+		assertEquals(Arrays.asList(2, 2, 1), sizes(parts));
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : parts) {
+			assertEquals(SplitPointSpecification.Type.ALL, bph.find(5, new SplitPointDataList<>(sp.getHead())).getType());
+		}
+	}
+
+	@Test
+	public void testRandomFlows() {
+		for (long seed=0; seed<10; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(1000, seed);
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, RandomFlow.supplements());
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (int k : new int[]{1, 3, 7}) {
+					List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> parts = Partitioner.builder(data)
+							.options(options)
+							.trimLeading(true)
+							.build()
+							.partition(k);
+					String msg = seed + " " + k;
+					assertEquals(msg, k, parts.size());
+					int count = 0;
+					float max = 0;
+					float total = 0;
+					for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : parts) {
+						count += sp.getHead().size() + sp.getDiscarded().size();
+						float size = SplitPointHandler.totalSize(new SplitPointDataList<>(sp.getHead(), RandomFlow.supplements()), Float.MAX_VALUE, true);
+						max = Math.max(max, size);
+						total += size;
+					}
+					assertEquals(msg, units.size(), count);
+					assertTrue(msg, parts.get(parts.size()-1).getTail().isEmpty());
+					// the largest part is close to the average
+					assertTrue(msg, max<=1.1*total/k);
+				}
+			}
+		}
+	}
+
+	@Test (expected=IllegalArgumentException.class)
+	public void testNoParts() {
+		Partitioner.builder(breakable(2)).build().partition(0);
+	}
+
+}
@@ -0,0 +1,190 @@
+package org.daisy.dotify.common.splitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Provides random flows of units for comparing different ways of
+ * splitting the same data.
+ */
+class RandomFlow {
+	static final int SUPPLEMENT_COUNT = 10;
+	private static final List<DummySplitPoint> SUPPLEMENTS = new ArrayList<>();
+	static {
+		for (int i=0; i<SUPPLEMENT_COUNT; i++) {
+			SUPPLEMENTS.add(new DummySplitPoint.Builder().breakable(true).size(1+i%3).build());
+		}
+	}
+
+	private RandomFlow() {}
+
+	/**
+	 * Creates a random flow containing breakable, skippable and collapsible units, units with
+	 * a different last unit size and units with supplements.
+	 * @param size the number of units
+	 * @param seed the random seed
+	 * @return returns a list of units
+	 */
+	static List<DummySplitPoint> create(int size, long seed) {
+		Random r = new Random(seed);
+		List<DummySplitPoint> ret = new ArrayList<>();
+		for (int i=0; i<size; i++) {
+			DummySplitPoint.Builder b = new DummySplitPoint.Builder().size(1+r.nextInt(2)*0.5f);
+			int type = r.nextInt(20);
+			if (type<2) {
+				b.breakable(true).skippable(true).collapsable(true).size(r.nextInt(3)).minSize(0);
+			} else if (type<4) {
+				b.breakable(true).skippable(true);
+			} else if (type<5) {
+				b.breakable(r.nextBoolean()).supplementID("s" + r.nextInt(SUPPLEMENT_COUNT));
+				if (r.nextBoolean()) {
+					b.supplementID("s" + r.nextInt(SUPPLEMENT_COUNT+2));
+				}
+			} else if (type<6) {
+				b.breakable(true).minSize(0.5f);
+			} else {
+				b.breakable(r.nextInt(3)>0);
+			}
+			ret.add(b.build());
+		}
+		return ret;
+	}
+
+	/**
+	 * Creates a random flow of breakable units with sizes that can't be represented
+	 * exactly as floats, so that the result of adding them up depends on the order.
+	 * @param size the number of units
+	 * @param seed the random seed
+	 * @return returns a list of units
+	 */
+	static List<DummySplitPoint> createNonDyadic(int size, long seed) {
+		float[] sizes = new float[]{0.1f, 0.2f, 0.3f, 0.7f, 1.1f, 0.35f};
+		Random r = new Random(seed);
+		List<DummySplitPoint> ret = new ArrayList<>();
+		for (int i=0; i<size; i++) {
+			DummySplitPoint.Builder b = new DummySplitPoint.Builder().size(sizes[r.nextInt(sizes.length)]);
+			int type = r.nextInt(20);
+			if (type<2) {
+				b.breakable(true).skippable(true).collapsable(true).minSize(0);
+			} else if (type<3) {
+				b.breakable(true).supplementID("s" + r.nextInt(SUPPLEMENT_COUNT));
+			} else {
+				b.breakable(r.nextInt(4)>0);
+			}
+			ret.add(b.build());
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the supplements referenced by the flows.
+	 * @return returns the supplements
+	 */
+	static Supplements<DummySplitPoint> supplements() {
+		return new Supplements<DummySplitPoint>() {
+			@Override
+			public DummySplitPoint get(String id) {
+				int i = Integer.parseInt(id.substring(1));
+				return i<SUPPLEMENTS.size()?SUPPLEMENTS.get(i):null;
+			}
+
+			@Override
+			public double getOverhead() {
+				return 0.5;
+			}
+		};
+	}
+
+	/**
+	 * Gets the supplements referenced by the flows, as indexed supplements. The
+	 * supplements are numbered in reverse order.
+	 * @return returns the supplements
+	 */
+	static IndexedSupplements<DummySplitPoint> indexedSupplements() {
+		IndexedSupplements.Builder<DummySplitPoint> builder = IndexedSupplements.<DummySplitPoint>builder().overhead(0.5);
+		for (int i=SUPPLEMENT_COUNT-1; i>=0; i--) {
+			builder.put("s" + i, SUPPLEMENTS.get(i));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Paginates the data, trimming leading skippable units on each page. Pagination
+	 * stops if a page is empty, since this means that the next unit doesn't fit.
+	 * @param bph the handler
+	 * @param data the data
+	 * @param height the page height
+	 * @param options the split options
+	 * @return returns the split points
+	 */
+	static <U extends SplitPointDataSource<DummySplitPoint, U>> List<SplitPoint<DummySplitPoint, U>> paginate(SplitPointHandler<DummySplitPoint, U> bph, U data, float height, SplitOption ... options) {
+		return paginate(bph, data, height, bph.defaultCost, options);
+	}
+
+	/**
+	 * Paginates the data using the specified cost function.
+	 * @param bph the handler
+	 * @param data the data
+	 * @param height the page height
+	 * @param cost the cost function
+	 * @param options the split options
+	 * @return returns the split points
+	 * @see #paginate(SplitPointHandler, SplitPointDataSource, float, SplitOption...)
+	 */
+	static <U extends SplitPointDataSource<DummySplitPoint, U>> List<SplitPoint<DummySplitPoint, U>> paginate(SplitPointHandler<DummySplitPoint, U> bph, U data, float height, SplitPointCost<DummySplitPoint> cost, SplitOption ... options) {
+		List<SplitPoint<DummySplitPoint, U>> ret = new ArrayList<>();
+		U tail = data;
+		while (!tail.isEmpty()) {
+			SplitPoint<DummySplitPoint, U> sp = bph.split(height, tail, cost, options);
+			ret.add(sp);
+			if (sp.getHead().isEmpty() && sp.getDiscarded().isEmpty()) {
+				break;
+			}
+			tail = SplitPointHandler.<DummySplitPoint, U>trimLeading(sp.getTail()).getTail();
+		}
+		return ret;
+	}
+
+	/**
+	 * Asserts that the results contain the same pages.
+	 * @param expected the expected pages
+	 * @param actual the actual pages
+	 */
+	static void assertSamePages(List<? extends SplitPoint<DummySplitPoint, ?>> expected, List<? extends SplitPoint<DummySplitPoint, ?>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			SplitPoint<DummySplitPoint, ?> e = expected.get(i);
+			SplitPoint<DummySplitPoint, ?> a = actual.get(i);
+			String msg = "Page " + i;
+			assertEquals(msg, e.getHead(), a.getHead());
+			assertEquals(msg, e.getSupplements(), a.getSupplements());
+			assertEquals(msg, e.getDiscarded(), a.getDiscarded());
+			assertEquals(msg, e.isHardBreak(), a.isHardBreak());
+		}
+	}
+	
+	/**
+	 * Asserts that the specifications are the same.
+	 * @param msg the message
+	 * @param expected the expected specification
+	 * @param actual the actual specification
+	 */
+	static void assertSameSpec(String msg, SplitPointSpecification expected, SplitPointSpecification actual) {
+		assertEquals(msg, expected.getType(), actual.getType());
+		if (expected.getType()==SplitPointSpecification.Type.INDEX) {
+			assertEquals(msg, expected.getIndex(), actual.getIndex());
+			assertEquals(msg, expected.isHard(), actual.isHard());
+			assertEquals(msg, expected.shouldTrimTrailing(), actual.shouldTrimTrailing());
+		}
+	}
+
+	static final List<SplitOption[]> OPTIONS = Arrays.asList(
+			new SplitOption[]{StandardSplitOption.ALLOW_FORCE},
+			new SplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.NO_LAST_UNIT_SIZE},
+			new SplitOption[]{StandardSplitOption.ALLOW_FORCE, StandardSplitOption.RETAIN_TRAILING}
+	);
+}
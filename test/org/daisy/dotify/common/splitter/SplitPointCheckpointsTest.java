@@ -0,0 +1,177 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SuppressWarnings("javadoc")
+public class SplitPointCheckpointsTest {
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static <U extends SplitPointDataSource<DummySplitPoint, U>> List<SplitPoint<DummySplitPoint, U>> paginate(U data, float height, SplitOption ... options) {
+		Paginator<DummySplitPoint, U> p = Paginator.builder(data).options(options).trimLeading(true).build();
+		List<SplitPoint<DummySplitPoint, U>> ret = new ArrayList<>();
+		while (p.hasNext()) {
+			SplitPoint<DummySplitPoint, U> sp = p.next(height);
+			ret.add(sp);
+			if (sp.getHead().isEmpty() && sp.getDiscarded().isEmpty()) {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testWriteRead() throws IOException {
+		List<SplitPointSpecification> specs = Arrays.asList(
+				SplitPointSpecification.all(),
+				SplitPointSpecification.none(),
+				SplitPointSpecification.empty(),
+				new SplitPointSpecification(0, false, true),
+				new SplitPointSpecification(25, true, false),
+				new SplitPointSpecification(Integer.MAX_VALUE, true, true));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SplitPointCheckpoints.write(specs, os);
+		List<SplitPointSpecification> actual = SplitPointCheckpoints.read(new ByteArrayInputStream(os.toByteArray()));
+		assertEquals(specs.size(), actual.size());
+		for (int i=0; i<specs.size(); i++) {
+			RandomFlow.assertSameSpec("Specification " + i, specs.get(i), actual.get(i));
+		}
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SplitPointCheckpoints.write(Collections.nCopies(100, new SplitPointSpecification(30, true, true)), os);
+		// the version, the number of specifications and one byte for each specification
+		assertEquals(102, os.size());
+	}
+
+	@Test (expected=IOException.class)
+	public void testReadTruncated() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		SplitPointCheckpoints.write(Collections.nCopies(10, new SplitPointSpecification(1000, true, true)), os);
+		SplitPointCheckpoints.read(new ByteArrayInputStream(Arrays.copyOf(os.toByteArray(), 10)));
+	}
+
+	@Test
+	public void testPaginate() throws IOException {
+		File dir = new File(folder.getRoot(), "checkpoints");
+		SplitPointCheckpoints checkpoints = new SplitPointCheckpoints(dir);
+		for (long seed=0; seed<10; seed++) {
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(RandomFlow.create(1000, seed), RandomFlow.supplements());
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = paginate(data, 10, options);
+				String key = SplitPointCheckpoints.key(data, true, 10, options);
+				assertNull(checkpoints.get(key));
+				RandomFlow.assertSamePages(expected, checkpoints.paginate(data, true, 10, options));
+				assertEquals(expected.size(), checkpoints.get(key).size());
+				// the same data, from the checkpoint
+				RandomFlow.assertSamePages(expected, checkpoints.paginate(data, true, 10, options));
+			}
+		}
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		SplitPointCheckpoints checkpoints = new SplitPointCheckpoints(folder.getRoot());
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Collections.nCopies(10, t));
+		// a checkpoint that differs from the pagination shows that it is used
+		checkpoints.put(SplitPointCheckpoints.key(data, false, 4), Arrays.asList(
+				new SplitPointSpecification(2, false, true),
+				new SplitPointSpecification(3, false, true),
+				SplitPointSpecification.all()));
+		List<Integer> sizes = new ArrayList<>();
+		for (SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp : checkpoints.paginate(data, false, 4)) {
+			sizes.add(sp.getHead().size());
+		}
+		assertEquals(Arrays.asList(2, 3, 5), sizes);
+	}
+
+	@Test
+	public void testCheckpointDoesNotMatch() throws IOException {
+		SplitPointCheckpoints checkpoints = new SplitPointCheckpoints(folder.getRoot());
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Collections.nCopies(10, t));
+		String key = SplitPointCheckpoints.key(data, false, 4);
+		// doesn't cover all units
+		checkpoints.put(key, Arrays.asList(new SplitPointSpecification(2, false, true)));
+		RandomFlow.assertSamePages(paginate(data, 4), checkpoints.paginate(data, false, 4));
+		assertEquals(3, checkpoints.get(key).size());
+	}
+
+	@Test
+	public void testUnreadableCheckpoint() throws IOException {
+		SplitPointCheckpoints checkpoints = new SplitPointCheckpoints(folder.getRoot());
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(Collections.nCopies(10, t));
+		String key = SplitPointCheckpoints.key(data, false, 4);
+		Files.write(new File(folder.getRoot(), key).toPath(), new byte[]{1, 5, 0});
+		assertNull(checkpoints.get(key));
+		RandomFlow.assertSamePages(paginate(data, 4), checkpoints.paginate(data, false, 4));
+		assertNotNull(checkpoints.get(key));
+	}
+
+	@Test
+	public void testKey() {
+		DummySplitPoint other = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		DummySplitPoint larger = new DummySplitPoint.Builder().breakable(true).skippable(false).size(2).build();
+		String key = SplitPointCheckpoints.key(new SplitPointDataList<>(t, t), false, 4);
+		// units with the same properties
+		assertEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, other), false, 4));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, larger), false, 4));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t), false, 4));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, t), true, 4));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, t), false, 5));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, t), false, 4, StandardSplitOption.ALLOW_FORCE));
+		assertNotEquals(key, SplitPointCheckpoints.key(new SplitPointDataList<>(t, t), false, 4, LookBackSplitOption.maxUnits(3)));
+	}
+
+	@Test
+	public void testKeyCollapse() throws IOException {
+		// adjacent margins collapse in both flows, but the third margin only collapses
+		// with the largest margin in the second flow
+		List<DummySplitPoint> units1 = Arrays.asList(t, new Margin(1, 2), new Margin(2, 1), new Margin(3, 1), t, t);
+		List<DummySplitPoint> units2 = Arrays.asList(t, new Margin(1, 2), new Margin(2, 1), new Margin(2, 1), t, t);
+		String key1 = SplitPointCheckpoints.key(new SplitPointDataList<>(units1), true, 4);
+		String key2 = SplitPointCheckpoints.key(new SplitPointDataList<>(units2), true, 4);
+		assertNotEquals(key1, key2);
+		SplitPointCheckpoints checkpoints = new SplitPointCheckpoints(folder.getRoot());
+		checkpoints.paginate(new SplitPointDataList<>(units1), true, 4);
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units2);
+		RandomFlow.assertSamePages(paginate(data, 4), checkpoints.paginate(data, true, 4));
+	}
+
+	/**
+	 * A collapsible unit that only collapses with margins of the same or an adjacent level.
+	 */
+	private static class Margin extends DummySplitPoint {
+		private final int level;
+
+		private Margin(int level, float size) {
+			super(new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(size).minSize(0));
+			this.level = level;
+		}
+
+		@Override
+		public boolean collapsesWith(Object obj) {
+			return obj instanceof Margin && Math.abs(((Margin)obj).level-level)<=1;
+		}
+	}
+
+}
@@ -5,6 +5,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 @SuppressWarnings("javadoc")
@@ -77,4 +80,73 @@ public class SplitPointDataListTest {
 		assertEquals(2, res.tail().getRemaining().size());
 	}
 
+	@Test
+	public void testSizeIndex() {
+		DummySplitPoint a = new DummySplitPoint.Builder().size(1).build();
+		DummySplitPoint b = new DummySplitPoint.Builder().size(2).collapsable(true).build();
+		DummySplitPoint c = new DummySplitPoint.Builder().size(3).supplementID("s1").build();
+		SplitPointDataList<DummySplitPoint> m = SplitPointDataList.indexed(Arrays.asList(a, b, a, c, a), null);
+		assertFalse(new SplitPointDataList<>(a, b).getSizeIndex().isPresent());
+		SplitPointSizeIndex index = m.getSizeIndex().get();
+		assertEquals(5, index.getUnitCount());
+		assertEquals(0, index.getSizeBefore(0), 0);
+		assertEquals(7, index.getSizeBefore(4), 0);
+		assertEquals(8, index.getSizeBefore(5), 0);
+		assertEquals(1, index.nextIrregularUnit(0));
+		assertEquals(3, index.nextIrregularUnit(2));
+		assertEquals(5, index.nextIrregularUnit(4));
+		assertEquals(3, index.nextSupplementaryUnit(0));
+		SplitPointSizeIndex tail = m.tail(2).getSizeIndex().get();
+		assertEquals(3, tail.getUnitCount());
+		assertEquals(4, tail.getSizeBefore(2), 0);
+		assertEquals(1, tail.nextIrregularUnit(0));
+		assertEquals(3, tail.nextSupplementaryUnit(2));
+		assertEquals(1, m.split(4).tail().getSizeIndex().get().getUnitCount());
+	}
+
+	@Test
+	public void testColumns() {
+		DummySplitPoint a = new DummySplitPoint.Builder().size(1).breakable(true).build();
+		DummySplitPoint b = new DummySplitPoint.Builder().size(2).minSize(1.5f).skippable(true).collapsable(true).build();
+		DummySplitPoint c = new DummySplitPoint.Builder().size(3).supplementID("s1").build();
+		SplitPointDataList<DummySplitPoint> m = SplitPointDataList.columnar(Arrays.asList(a, b, a, c, a), null);
+		assertFalse(new SplitPointDataList<>(a, b).getColumns().isPresent());
+		assertTrue(m.getSizeIndex().isPresent());
+		SplitPointColumns columns = m.getColumns().get();
+		assertEquals(5, columns.getUnitCount());
+		assertTrue(columns.isBreakable(0));
+		assertFalse(columns.isSkippable(0));
+		assertFalse(columns.isBreakable(1));
+		assertTrue(columns.isSkippable(1));
+		assertTrue(columns.isCollapsible(1));
+		assertFalse(columns.hasSupplementaryIDs(1));
+		assertTrue(columns.hasSupplementaryIDs(3));
+		assertEquals(2, columns.getUnitSize(1), 0);
+		assertEquals(1.5, columns.getLastUnitSize(1), 0);
+		SplitPointColumns tail = m.tail(3).getColumns().get();
+		assertEquals(2, tail.getUnitCount());
+		assertTrue(tail.hasSupplementaryIDs(0));
+		assertEquals(1, tail.getUnitSize(1), 0);
+		assertEquals(1, m.split(4).tail().getColumns().get().getUnitCount());
+		assertEquals(c, m.tail(3).get(0));
+	}
+
+	@Test
+	public void testSegments() {
+		DummySplitPoint a = new DummySplitPoint.Builder().size(1).breakable(true).build();
+		DummySplitPoint b = new DummySplitPoint.Builder().size(2).breakable(true).build();
+		Supplements<DummySplitPoint> supps = RandomFlow.supplements();
+		List<SplitPointDataList<DummySplitPoint>> segments = SplitPointDataList.columnar(Arrays.asList(b, a, b, b, a, a, b), supps).tail(1).segments(u->u==b);
+		assertEquals(4, segments.size());
+		assertEquals(Arrays.asList(a), segments.get(0).getRemaining());
+		assertEquals(Arrays.asList(b), segments.get(1).getRemaining());
+		assertEquals(Arrays.asList(b, a, a), segments.get(2).getRemaining());
+		assertEquals(Arrays.asList(b), segments.get(3).getRemaining());
+		assertEquals(supps, segments.get(2).getSupplements());
+		assertTrue(segments.get(2).getColumns().isPresent());
+		assertFalse(new SplitPointDataList<>(a, b).segments(u->u==b).get(0).getSizeIndex().isPresent());
+		assertEquals(1, new SplitPointDataList<>(b, a).segments(u->u==b).size());
+		assertTrue(new SplitPointDataList<DummySplitPoint>().segments(u->true).isEmpty());
+	}
+
 }
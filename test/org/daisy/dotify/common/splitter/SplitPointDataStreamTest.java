@@ -0,0 +1,133 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitPointDataStreamTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	@Test
+	public void testEmpty() {
+		SplitPointDataStream<DummySplitPoint> m = new SplitPointDataStream<>(Collections.emptyIterator());
+		assertTrue(m.isEmpty());
+		assertFalse(m.hasElementAt(0));
+		assertEquals(0, m.getSize(10));
+		assertEquals(Collections.emptyList(), m.getRemaining());
+	}
+
+	@Test
+	public void testSize() {
+		SplitPointDataStream<DummySplitPoint> m = new SplitPointDataStream<>(Arrays.asList(c, t, c).iterator());
+		assertEquals(0, m.getSize(0));
+		assertEquals(2, m.getSize(2));
+		assertEquals(2, m.getBufferedCount());
+		assertEquals(3, m.getSize(10));
+		assertEquals(3, m.getSize(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testReadsOnDemand() {
+		Iterator<DummySplitPoint> units = Arrays.asList(c, t, c, t).iterator();
+		SplitPointDataStream<DummySplitPoint> m = new SplitPointDataStream<>(units);
+		assertEquals(0, m.getBufferedCount());
+		assertEquals(t, m.get(1));
+		assertEquals(2, m.getBufferedCount());
+		assertTrue(m.hasElementAt(3));
+		assertFalse(m.hasElementAt(4));
+		assertFalse(units.hasNext());
+	}
+
+	@Test
+	public void testSplitReleasesHead() {
+		SplitPointDataStream<DummySplitPoint> m = new SplitPointDataStream<>(Arrays.asList(c, t, c, t).iterator());
+		SplitResult<DummySplitPoint, SplitPointDataStream<DummySplitPoint>> res = m.split(2);
+		assertEquals(Arrays.asList(c, t), res.head());
+		assertEquals(Arrays.asList(c, t), res.tail().getRemaining());
+		assertEquals(2, res.tail().getBufferedCount());
+		assertEquals(Arrays.asList(c, t), res.tail().split(5).head());
+	}
+
+	@Test (expected=IllegalStateException.class)
+	public void testSplitConsumes() {
+		SplitPointDataStream<DummySplitPoint> m = new SplitPointDataStream<>(Arrays.asList(c, t, c, t).iterator());
+		m.split(2);
+		m.get(0);
+	}
+
+	@Test (expected=IndexOutOfBoundsException.class)
+	public void testGetBeyondEnd() {
+		new SplitPointDataStream<>(Arrays.asList(c, t).iterator()).get(2);
+	}
+
+	@Test
+	public void testFromSupplier() {
+		Iterator<DummySplitPoint> units = Arrays.asList(c, t, c).iterator();
+		SplitPointDataStream<DummySplitPoint> m = SplitPointDataStream.from(()->units.hasNext()?units.next():null, null);
+		assertEquals(Arrays.asList(c, t, c), m.getRemaining());
+	}
+
+	@Test
+	public void testSamePagesAsList() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointHandler<DummySplitPoint, SplitPointDataStream<DummySplitPoint>> sph = new SplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					RandomFlow.assertSamePages(
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options),
+							RandomFlow.paginate(sph, new SplitPointDataStream<>(units.iterator(), RandomFlow.supplements()), height, options)
+					);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBufferIsBounded() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataStream<DummySplitPoint>> sph = new SplitPointHandler<>();
+		SplitPointDataStream<DummySplitPoint> tail = new SplitPointDataStream<>(RandomFlow.create(20000, 1).iterator(), RandomFlow.supplements());
+		int pages = 0;
+		int max = 0;
+		while (!tail.isEmpty()) {
+			SplitPoint<DummySplitPoint, SplitPointDataStream<DummySplitPoint>> sp = sph.split(25, tail, StandardSplitOption.ALLOW_FORCE);
+			max = Math.max(max, sp.getTail().getBufferedCount()+sp.getHead().size()+sp.getDiscarded().size());
+			tail = SplitPointHandler.<DummySplitPoint, SplitPointDataStream<DummySplitPoint>>trimLeading(sp.getTail()).getTail();
+			pages++;
+		}
+		assertTrue(pages>500);
+		// one page, and the units that were examined beyond it
+		assertTrue("Max buffered: " + max, max<100);
+	}
+
+	@Test
+	public void testPaginator() {
+		List<DummySplitPoint> units = RandomFlow.create(500, 1);
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> expected = Paginator.builder(new SplitPointDataList<>(units, RandomFlow.supplements()))
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build();
+		Paginator<DummySplitPoint, SplitPointDataStream<DummySplitPoint>> actual = Paginator.builder(new SplitPointDataStream<>(units.iterator(), RandomFlow.supplements()))
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.build();
+		while (expected.hasNext()) {
+			assertTrue(actual.hasNext());
+			SplitPoint<DummySplitPoint, ?> e = expected.next(10);
+			SplitPoint<DummySplitPoint, ?> a = actual.next(10);
+			RandomFlow.assertSamePages(Collections.singletonList(e), Collections.singletonList(a));
+		}
+		assertFalse(actual.hasNext());
+	}
+
+}
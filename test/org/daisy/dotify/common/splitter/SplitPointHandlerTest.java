@@ -1,10 +1,13 @@
 package org.daisy.dotify.common.splitter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import org.daisy.dotify.common.collection.SplitList;
 import org.daisy.dotify.common.splitter.SplitPoint;
@@ -12,6 +15,7 @@ import org.daisy.dotify.common.splitter.SplitPointCost;
 import org.daisy.dotify.common.splitter.SplitPointDataList;
 import org.daisy.dotify.common.splitter.SplitPointDataSource;
 import org.daisy.dotify.common.splitter.SplitPointHandler;
+import org.daisy.dotify.common.splitter.SplitOption;
 import org.daisy.dotify.common.splitter.StandardSplitOption;
 import org.daisy.dotify.common.splitter.Supplements;
 import org.junit.Test;
@@ -467,4 +471,336 @@ public class SplitPointHandlerTest {
 		assertEquals(Arrays.asList(x), bp.getTail().getRemaining());
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testIndexedTotalSize_01() {
+		final DummySplitPoint s1 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).minSize(0.5f).build();
+		final DummySplitPoint s2 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).minSize(0.5f).build();
+		final DummySplitPoint s3 = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).minSize(0.5f).build();
+		float res = SplitPointHandler.totalSize(SplitPointDataList.indexed(Arrays.asList(s1, s2, s3), null), 3, true);
+		assertEquals(2.5, res, 0);
+	}
+
+	@Test
+	public void testIndexedSupplementsSize_01() {
+		Supplements<DummySplitPoint> supps = RandomFlow.supplements();
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).supplementID("s1").supplementID("s2").size(1).build();
+		SplitPointDataList<DummySplitPoint> data = SplitPointDataList.indexed(Arrays.asList(c, x, c), supps);
+		assertEquals(3+0.5+2+3, SplitPointHandler.totalSize(data, 10, true), 0);
+		assertEquals(2+0.5+2+3, SplitPointHandler.totalSize(data.tail(1), 10, true), 0);
+		assertEquals(1, SplitPointHandler.totalSize(data.tail(2), 10, true), 0);
+	}
+
+	@Test
+	public void testIndexedSameAsUnindexed() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					RandomFlow.assertSamePages(
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options),
+							RandomFlow.paginate(bph, SplitPointDataList.indexed(units, RandomFlow.supplements()), height, options)
+					);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testColumnarSameAsUnindexed() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					RandomFlow.assertSamePages(
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options),
+							RandomFlow.paginate(bph, SplitPointDataList.columnar(units, RandomFlow.supplements()), height, options)
+					);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNonDyadicSizesSameAsUnindexed() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (long seed=0; seed<100; seed++) {
+			Random r = new Random(seed);
+			// leading units are removed by the paginator, but not by the handler
+			List<DummySplitPoint> units = SplitPointHandler.trimLeading(new SplitPointDataList<>(RandomFlow.createNonDyadic(100, seed))).getTail().getRemaining();
+			float height = 1+r.nextInt(50)/10f;
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = 
+						RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options);
+				RandomFlow.assertSamePages(expected, RandomFlow.paginate(bph, SplitPointDataList.indexed(units, RandomFlow.supplements()), height, options));
+				RandomFlow.assertSamePages(expected, RandomFlow.paginate(bph, SplitPointDataList.columnar(units, RandomFlow.supplements()), height, options));
+				Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(units, RandomFlow.supplements()))
+						.options(options)
+						.trimLeading(true)
+						.build();
+				// the paginator places removed units in the discarded units
+				for (int i=0; i<expected.size(); i++) {
+					SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> actual = p.next(height);
+					assertEquals("Page " + i, expected.get(i).getHead(), actual.getHead());
+					assertEquals("Page " + i, expected.get(i).getSupplements(), actual.getSupplements());
+				}
+				assertEquals(expected.get(expected.size()-1).getTail().getRemaining(), p.getRemaining().getRemaining());
+			}
+		}
+	}
+
+	@Test
+	public void testSplitPointViews() {
+		DummySplitPoint s1 = new DummySplitPoint.Builder().breakable(true).supplementID("s1").build();
+		DummySplitPoint s2 = new DummySplitPoint.Builder().breakable(true).supplementID("s2").supplementID("s1").build();
+		DummySplitPoint m1 = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(1).build();
+		DummySplitPoint m2 = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(2).build();
+		List<DummySplitPoint> units = Arrays.asList(s1, m1, m2, m1, c, m2, m1, s2, e, e, c);
+		List<String> lookups = new ArrayList<>();
+		Supplements<DummySplitPoint> supps = id->{
+			lookups.add(id);
+			return RandomFlow.supplements().get(id);
+		};
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (SplitPointDataList<DummySplitPoint> data : Arrays.asList(new SplitPointDataList<>(units, supps), SplitPointDataList.columnar(units, supps))) {
+			lookups.clear();
+			SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = bph.split(new SplitPointSpecification(10, false, true), data);
+			assertEquals(Arrays.asList(s1, m2, c, m2, s2), sp.getHead());
+			assertEquals(Arrays.asList(m1, m1, m1, e, e), sp.getDiscarded());
+			assertEquals(Arrays.asList(c), sp.getTail().getRemaining());
+			// the supplements are resolved when they are accessed
+			assertTrue(lookups.isEmpty());
+			assertEquals(Arrays.asList(supps.get("s1"), supps.get("s2")), sp.getSupplements());
+			assertEquals(s2, sp.getHead().get(4));
+			try {
+				sp.getHead().get(5);
+				fail();
+			} catch (IndexOutOfBoundsException ex) {
+				// expected
+			}
+			// the lists can be modified, without modifying the data source
+			sp.getHead().add(c);
+			sp.getDiscarded().clear();
+			assertEquals(Arrays.asList(s1, m2, c, m2, s2, c), sp.getHead());
+			assertEquals(Collections.emptyList(), sp.getDiscarded());
+			assertEquals(Arrays.asList(s1, m1, m2, m1, c, m2, m1, s2, e, e, c), data.getRemaining());
+		}
+	}
+
+	/**
+	 * A collapsible unit that only collapses with margins of the same or an adjacent level.
+	 */
+	private static class Margin extends DummySplitPoint {
+		private final int level;
+
+		private Margin(int level, float size) {
+			super(new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(size).minSize(0));
+			this.level = level;
+		}
+
+		@Override
+		public boolean collapsesWith(Object obj) {
+			return obj instanceof Margin && Math.abs(((Margin)obj).level-level)<=1;
+		}
+	}
+
+	private static List<DummySplitPoint> createWithMargins(long seed) {
+		Random r = new Random(seed);
+		List<DummySplitPoint> ret = new ArrayList<>();
+		for (DummySplitPoint u : RandomFlow.create(300, seed)) {
+			ret.add(u);
+			if (r.nextInt(4)==0) {
+				for (int i=r.nextInt(8); i>=0; i--) {
+					ret.add(new Margin(r.nextInt(4), r.nextInt(5)*0.5f));
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testCollapseGroupsSameAsUnindexed() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		float[] heights = {1, 5.5f, 25};
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = createWithMargins(seed);
+			SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(units, RandomFlow.supplements());
+			SplitPointDataList<DummySplitPoint> columnar = SplitPointDataList.columnar(units, RandomFlow.supplements());
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : heights) {
+					RandomFlow.assertSamePages(
+							RandomFlow.paginate(bph, data, height, options),
+							RandomFlow.paginate(bph, columnar, height, options)
+					);
+				}
+				// tails may start inside a collapse group
+				for (int start=0; start<units.size(); start+=7) {
+					List<SplitPointSpecification> specs = bph.find(heights, columnar.tail(start), options);
+					for (int i=0; i<heights.length; i++) {
+						RandomFlow.assertSameSpec("Height " + heights[i], bph.find(heights[i], data.tail(start), options), specs.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIndexedSupplementsSameAsSupplements() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					List<SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>>> expected = 
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options);
+					RandomFlow.assertSamePages(expected, 
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.indexedSupplements()), height, options));
+					RandomFlow.assertSamePages(expected, 
+							RandomFlow.paginate(bph, SplitPointDataList.indexed(units, RandomFlow.indexedSupplements()), height, options));
+					RandomFlow.assertSamePages(expected, 
+							RandomFlow.paginate(bph, SplitPointDataList.columnar(units, RandomFlow.indexedSupplements()), height, options));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIndexedSupplementsTotalSize() {
+		IndexedSupplements<DummySplitPoint> supps = RandomFlow.indexedSupplements();
+		DummySplitPoint x = new DummySplitPoint.Builder().breakable(true).supplementID("s1").supplementID("s2").supplementID("s1").supplementID("s99").size(1).build();
+		SplitPointDataList<DummySplitPoint> data = SplitPointDataList.columnar(Arrays.asList(c, x, c), supps);
+		assertEquals(3+0.5+2+3, SplitPointHandler.totalSize(data, 10, true), 0);
+		assertEquals(2+0.5+2+3, SplitPointHandler.totalSize(data.tail(1), 10, true), 0);
+		assertEquals(3+0.5+2+3, SplitPointHandler.totalSize(new SplitPointDataList<>(Arrays.asList(c, x, c), supps), 10, true), 0);
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = new SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>>().split(10, data);
+		assertEquals(Arrays.asList(supps.get("s1"), supps.get("s2")), sp.getSupplements());
+	}
+
+	@Test
+	public void testLowerBoundSameAsFullScan() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> full = new SplitPointHandler<>();
+		SplitPointCounters counters = new SplitPointCounters();
+		SplitPointCounters fullCounters = new SplitPointCounters();
+		bph.setListener(counters);
+		full.setListener(fullCounters);
+		// same as the default cost, but without a lower bound
+		SplitPointCost<DummySplitPoint> cost = (data, index, limit)->bph.defaultCost.getCost(data, index, limit);
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				for (float height : new float[]{1, 5.5f, 25}) {
+					RandomFlow.assertSamePages(
+							RandomFlow.paginate(full, new SplitPointDataList<>(units, RandomFlow.supplements()), height, cost, options),
+							RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, options)
+					);
+				}
+			}
+		}
+		assertEquals(0, fullCounters.getCostEvaluationsSaved());
+		assertTrue(counters.getCostEvaluationsSaved()>0);
+		assertEquals(fullCounters.getCostEvaluations(), counters.getCostEvaluations()+counters.getCostEvaluationsSaved());
+	}
+
+	@Test
+	public void testLowerBoundWithTies() {
+		// the first of several units with the same cost is used
+		SplitPointCost<DummySplitPoint> cost = new SplitPointCost<DummySplitPoint>() {
+			@Override
+			public double getCost(SplitPointDataSource<DummySplitPoint, ?> units, int index, int limit) {
+				return index<2?0:index;
+			}
+
+			@Override
+			public double getLowerBound(SplitPointDataSource<DummySplitPoint, ?> units, int index, int limit) {
+				return 0;
+			}
+		};
+		DummySplitPoint b = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bp = SplitPointHandler.split(6, Arrays.asList(b, b, b, b, b, b, b, b), cost);
+		assertEquals(Arrays.asList(b), bp.getHead());
+	}
+
+	@Test
+	public void testLookBack_01() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointCounters counters = new SplitPointCounters();
+		bph.setListener(counters);
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bp = bph.split(6, new SplitPointDataList<>(c, e, c, c, c, c, c, c), LookBackSplitOption.maxUnits(3));
+		assertEquals(Collections.emptyList(), bp.getHead());
+		bp = bph.split(6, new SplitPointDataList<>(c, e, c, c, c, c, c, c), LookBackSplitOption.maxUnits(3), StandardSplitOption.ALLOW_FORCE);
+		assertEquals(Arrays.asList(c, e, c, c, c, c), bp.getHead());
+		assertTrue(bp.isHardBreak());
+		bp = bph.split(6, new SplitPointDataList<>(c, e, c, c, c, c, c, c), LookBackSplitOption.maxUnits(5));
+		assertEquals(Arrays.asList(c), bp.getHead());
+		// 3+3+5 evaluations, the last split stops at the first breakable unit
+		assertEquals(11, counters.getCostEvaluations());
+		assertEquals(7, counters.getCostEvaluationsSaved());
+	}
+
+	@Test
+	public void testBatchCostSameAsPerCall() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointCost<DummySplitPoint> cost = (data, index, limit)->(index*31)%7+(data.get(index).isBreakable()?0:10);
+		BatchSplitPointCost<DummySplitPoint> batch = new BatchSplitPointCost<DummySplitPoint>() {
+			@Override
+			public double getCost(SplitPointDataSource<DummySplitPoint, ?> units, int index, int limit) {
+				return cost.getCost(units, index, limit);
+			}
+
+			@Override
+			public void getCosts(SplitPointDataSource<DummySplitPoint, ?> units, int from, int to, int limit, double[] out) {
+				for (int i=from; i<to; i++) {
+					out[i-from] = cost.getCost(units, i, limit);
+				}
+			}
+		};
+		List<DummySplitPoint> units = RandomFlow.create(2000, 1);
+		for (SplitOption[] options : RandomFlow.OPTIONS) {
+			for (float height : new float[]{5.5f, 100, 300}) {
+				RandomFlow.assertSamePages(
+						RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, cost, options),
+						RandomFlow.paginate(bph, new SplitPointDataList<>(units, RandomFlow.supplements()), height, batch, options)
+				);
+			}
+		}
+	}
+
+	@Test
+	public void testMultiFind_01() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, e, c, c, e, c, c);
+		List<SplitPointSpecification> specs = bph.find(new float[]{0, 3, 7, 0.5f, 5, 4}, data);
+		assertEquals(6, specs.size());
+		assertEquals(SplitPointSpecification.Type.NONE, specs.get(0).getType());
+		assertEquals(2, specs.get(1).getIndex());
+		assertEquals(SplitPointSpecification.Type.ALL, specs.get(2).getType());
+		assertEquals(SplitPointSpecification.Type.NONE, specs.get(3).getType());
+		assertEquals(5, specs.get(4).getIndex());
+		// the skippable unit at the end is allowed to overflow
+		assertEquals(5, specs.get(5).getIndex());
+		assertEquals(SplitPointSpecification.Type.EMPTY, bph.find(new float[]{1}, data.createEmpty()).get(0).getType());
+	}
+
+	@Test
+	public void testMultiFindSameAsFind() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		float[] heights = {25, 1, 5.5f, 5, 0, 12.5f, 6, 5.5f, 100};
+		for (long seed=0; seed<20; seed++) {
+			List<DummySplitPoint> units = RandomFlow.create(500, seed);
+			for (SplitOption[] options : RandomFlow.OPTIONS) {
+				SplitPointDataList<DummySplitPoint> data = SplitPointDataList.indexed(units, RandomFlow.supplements());
+				// test a few tails, starting at arbitrary positions
+				for (int start=0; start<units.size(); start+=37) {
+					SplitPointDataList<DummySplitPoint> tail = data.tail(start);
+					List<SplitPointSpecification> specs = bph.find(heights, tail, options);
+					for (int i=0; i<heights.length; i++) {
+						RandomFlow.assertSameSpec("Height " + heights[i], bph.find(heights[i], tail, options), specs.get(i));
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package org.daisy.dotify.common.splitter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class SplitPointListenerTest {
+	private final DummySplitPoint c = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).build();
+	private final DummySplitPoint t = new DummySplitPoint.Builder().breakable(true).skippable(false).size(1).build();
+
+	private static class Recorder implements SplitPointListener {
+		private final List<SplitPointEvent> finds = new ArrayList<>();
+		private final List<SplitPointEvent> splits = new ArrayList<>();
+
+		@Override
+		public void findCompleted(SplitPointEvent event) {
+			finds.add(event);
+		}
+
+		@Override
+		public void splitCompleted(SplitPointEvent event) {
+			splits.add(event);
+		}
+	}
+
+	@Test
+	public void testFind() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		Recorder r = new Recorder();
+		bph.setListener(r);
+		assertEquals(3, bph.find(3, new SplitPointDataList<>(c, c, t, c, t, c, c, t)).getIndex());
+		assertEquals(1, r.finds.size());
+		assertEquals(0, r.splits.size());
+		SplitPointEvent e = r.finds.get(0);
+		// the total size is examined until it exceeds the break point
+		assertEquals(4, e.getTotalSizeUnits());
+		// the fourth unit overflows
+		assertEquals(4, e.getCollapseUnits());
+		// the default cost function is evaluated in blocks, here for all units up to the last unit that fits
+		assertEquals(3, e.getCostEvaluations());
+		assertEquals(0, e.getCostEvaluationsSaved());
+		assertEquals(0, e.getDiscardedUnits());
+		assertEquals(0, e.getSupplementLookups());
+		assertTrue(e.getElapsedNanos()>=0);
+	}
+
+	@Test
+	public void testSplit() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		Recorder r = new Recorder();
+		bph.setListener(r);
+		SplitPoint<DummySplitPoint, SplitPointDataList<DummySplitPoint>> sp = bph.split(3, new SplitPointDataList<>(c, c, t, c, t, c, c, t));
+		assertEquals(Arrays.asList(c, c, t), sp.getHead());
+		assertEquals(0, r.finds.size());
+		assertEquals(1, r.splits.size());
+		// same as find, plus the units of the head
+		assertEquals(4+3, r.splits.get(0).getCollapseUnits());
+	}
+
+	@Test
+	public void testCollapseAndSupplements() {
+		DummySplitPoint s = new DummySplitPoint.Builder().breakable(false).skippable(false).size(1).supplementID("s1").supplementID("s2").build();
+		DummySplitPoint m = new DummySplitPoint.Builder().breakable(true).skippable(true).collapsable(true).size(1).build();
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		Recorder r = new Recorder();
+		bph.setListener(r);
+		// 5 units, the overhead and two supplements of size 2 and 3
+		bph.find(10.5f, new SplitPointDataList<>(Arrays.asList(s, m, m, m, c), RandomFlow.supplements()));
+		SplitPointEvent e = r.finds.get(0);
+		// everything fits, so the units are only examined once
+		assertEquals(5, e.getTotalSizeUnits());
+		assertEquals(0, e.getCollapseUnits());
+		assertEquals(2, e.getSupplementLookups());
+		bph.find(2, new SplitPointDataList<>(c, m, m, m, c));
+		e = r.finds.get(1);
+		assertEquals(5, e.getCollapseUnits());
+		assertEquals(2, e.getDiscardedUnits());
+	}
+
+	@Test
+	public void testNoListener() {
+		SplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new SplitPointHandler<>();
+		assertNull(bph.getListener());
+		Recorder r = new Recorder();
+		bph.setListener(r);
+		bph.setListener(null);
+		bph.split(3, new SplitPointDataList<>(c, c, t, c));
+		assertEquals(0, r.finds.size());
+		assertEquals(0, r.splits.size());
+	}
+
+	@Test
+	public void testCachingHandler() {
+		CachingSplitPointHandler<DummySplitPoint, SplitPointDataList<DummySplitPoint>> bph = new CachingSplitPointHandler<>();
+		Recorder r = new Recorder();
+		bph.setListener(r);
+		SplitPointDataList<DummySplitPoint> data = new SplitPointDataList<>(c, c, t, c, t, c, c, t);
+		bph.find(3, data);
+		bph.find(2, data);
+		assertEquals(4, r.finds.get(0).getCollapseUnits());
+		// the units have already been measured
+		assertEquals(0, r.finds.get(1).getTotalSizeUnits());
+		assertEquals(0, r.finds.get(1).getCollapseUnits());
+		bph.find(new float[]{4, 6}, data);
+		assertEquals(3, r.finds.size());
+	}
+
+	@Test
+	public void testCounters() {
+		SplitPointCounters counters = new SplitPointCounters();
+		Paginator<DummySplitPoint, SplitPointDataList<DummySplitPoint>> p = Paginator.builder(new SplitPointDataList<>(RandomFlow.create(500, 1), RandomFlow.supplements()))
+				.options(StandardSplitOption.ALLOW_FORCE)
+				.trimLeading(true)
+				.listener(counters)
+				.build();
+		int pages = 0;
+		while (p.hasNext()) {
+			p.next(10);
+			pages++;
+		}
+		assertEquals(pages, counters.getFinds());
+		assertEquals(pages, counters.getSplits());
+		assertTrue(counters.getCollapseUnits()>=500);
+		assertTrue(counters.getCostEvaluations()>=pages);
+		assertTrue(counters.getSupplementLookups()>0);
+		assertTrue(counters.getDiscardedUnits()>0);
+		assertTrue(counters.toString().startsWith("SplitPointCounters [finds=" + pages + ", "));
+		counters.reset();
+		assertEquals(0, counters.getFinds());
+		assertEquals(0, counters.getCollapseUnits());
+		assertEquals(0, counters.getElapsedNanos());
+	}
+
+}
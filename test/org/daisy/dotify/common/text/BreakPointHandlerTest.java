@@ -239,6 +239,42 @@ public class BreakPointHandlerTest {
 		assertTrue(!bp.isHardBreak());
 	}
 	
+	@Test
+	public void testNSH_07() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("aa bb til\u00adlåta").
+				addHyphenationInfo(8, 3, "ll\u00adl").build();
+		bph.nextRow(2, false);
+		bph.nextRow(2, false);
+		BreakPoint bp = bph.nextRow(5, false);
+		assertEquals("till-", bp.getHead());
+		assertEquals("låta", bp.getTail());
+		assertTrue(!bp.isHardBreak());
+	}
+
+	@Test
+	public void testNSH_08() {
+		BreakPointHandler bph = new BreakPointHandler.Builder("eigh\u00adteen til\u00adlåta").
+				addHyphenationInfo(4, 2, "t\u00adt").
+				addHyphenationInfo(12, 3, "ll\u00adl").build();
+		BreakPoint bp = bph.nextRow(6, false);
+		assertEquals("eight-", bp.getHead());
+		bp = bph.nextRow(5, false);
+		assertEquals("teen", bp.getHead());
+		bp = bph.nextRow(5, false);
+		assertEquals("till-", bp.getHead());
+		assertEquals("låta", bp.getTail());
+		assertTrue(!bp.isHardBreak());
+	}
+
+	@Test
+	public void testTailSequence() {
+		BreakPointHandler bph = new BreakPointHandler("abc 123 xyz");
+		BreakPoint bp = bph.nextRow(3, false);
+		assertEquals("123 xyz", bp.getTailSequence().toString());
+		assertEquals(new BreakPoint("abc", "123 xyz", false), bp);
+		assertEquals(7, bph.countRemaining());
+	}
+
 	@Test
 	public void testIgnoreHyphen_01() {
 		// Tests ignoring hyphens with a space in the input
@@ -0,0 +1,111 @@
+package org.daisy.dotify.common.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class CodePointTableTest {
+
+	@Test
+	public void testLookup() {
+		Map<Integer, String> map = new HashMap<>();
+		map.put((int)'a', "A");
+		map.put(0x2013, "-");
+		map.put(0x4E00, "yi");
+		map.put(0x1D400, "A");
+		map.put((int)'b', "");
+		map.put((int)'c', null);
+		map.put(-1, "invalid");
+		CodePointTable t = CodePointTable.compile(map);
+		assertEquals(4, t.size());
+		assertEquals("A", t.get('a'));
+		assertEquals("-", t.get(0x2013));
+		assertEquals("yi", t.get(0x4E00));
+		assertEquals("A", t.get(0x1D400));
+		assertNull(t.get('b'));
+		assertNull(t.get('c'));
+		assertNull(t.get('d'));
+		assertNull(t.get(-1));
+		assertNull(t.get(0x4E01));
+		assertNull(t.get(0x10FFFF));
+	}
+
+	@Test
+	public void testManySparseEntries() {
+		Map<Integer, String> map = new HashMap<>();
+		for (int cp = 0x10000; cp<0x10000+5000; cp+=3) {
+			map.put(cp, Integer.toHexString(cp));
+		}
+		CodePointTable t = CodePointTable.compile(map);
+		assertEquals(map.size(), t.size());
+		for (int cp = 0x10000; cp<0x10000+5000; cp++) {
+			assertEquals(map.get(cp), t.get(cp));
+		}
+	}
+
+	@Test
+	public void testReplacerModification() {
+		SimpleUCharReplacer r = new SimpleUCharReplacer();
+		r.put((int)'a', "b");
+		assertEquals("bbc", r.replace("abc").toString());
+		r.put((int)'c', "\uD835\uDC00");
+		assertEquals("bb\uD835\uDC00", r.replace("abc").toString());
+		r.remove((int)'a');
+		assertEquals("ab\uD835\uDC00", r.replace("abc").toString());
+		r.keySet().remove((int)'c');
+		assertEquals("abc", r.replace("abc").toString());
+	}
+
+	@Test
+	public void testReplacerViewModification() {
+		SimpleUCharReplacer r = new SimpleUCharReplacer();
+		r.put((int)'a', "b");
+		Iterator<Map.Entry<Integer, String>> it = r.entrySet().iterator();
+		assertEquals("bbc", r.replace("abc").toString());
+		it.next().setValue("x");
+		assertEquals("xbc", r.replace("abc").toString());
+		it.remove();
+		assertEquals("abc", r.replace("abc").toString());
+		r.put((int)'c', "d");
+		assertEquals("abd", r.replace("abc").toString());
+		r.values().removeIf("d"::equals);
+		assertEquals("abc", r.replace("abc").toString());
+	}
+
+	@Test
+	public void testReplacerReadKeepsTable() {
+		SimpleUCharReplacer r = new SimpleUCharReplacer();
+		r.put((int)'a', "b");
+		CodePointTable t = r.getTable();
+		assertEquals("{97=b}", r.toString());
+		assertEquals(r.hashCode(), new HashMap<>(r).hashCode());
+		assertTrue(r.equals(new HashMap<>(r)));
+		assertTrue(r.keySet().contains((int)'a'));
+		assertSame(t, r.getTable());
+	}
+
+	@Test
+	public void testReplaceRuns() {
+		SimpleUCharReplacer r = new SimpleUCharReplacer();
+		r.put(0x2013, "-");
+		r.put(0x1D400, "A");
+		assertEquals("a-b A c-", r.replace("a\u2013b \uD835\uDC00 c\u2013").toString());
+		assertEquals("\uD835\uDC01\uDC00", r.replace("\uD835\uDC01\uDC00").toString());
+	}
+
+	@Test
+	public void testReplaceUnchanged() {
+		SimpleUCharReplacer r = new SimpleUCharReplacer();
+		r.put(0x2013, "-");
+		String input = "abc def";
+		assertSame(input, r.replace(input));
+	}
+}
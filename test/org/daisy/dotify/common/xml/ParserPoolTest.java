@@ -0,0 +1,54 @@
+package org.daisy.dotify.common.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+@SuppressWarnings("javadoc")
+public class ParserPoolTest {
+
+	@Test
+	public void testReuse() throws Exception {
+		ParserPool pool = new ParserPool(SAXParserFactory.newInstance(), 1);
+		SAXParser p1 = pool.acquire();
+		p1.getXMLReader().setContentHandler(new DefaultHandler());
+		pool.release(p1);
+		assertEquals(1, pool.size());
+		SAXParser p2 = pool.acquire();
+		assertSame(p1, p2);
+		assertNull(p2.getXMLReader().getContentHandler());
+		assertEquals(0, pool.size());
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		ParserPool pool = new ParserPool(SAXParserFactory.newInstance(), 1);
+		SAXParser p1 = pool.acquire();
+		SAXParser p2 = pool.acquire();
+		pool.release(p1);
+		pool.release(p2);
+		pool.release(null);
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void testParseXMLReusesParser() throws Exception {
+		for (int i=0; i<3; i++) {
+			XMLInfo info = XMLTools.parseXML(new InputSource(new StringReader("<root xmlns=\"http://www.example.com/ns/test\"/>")));
+			assertNotNull(info);
+			assertEquals("http://www.example.com/ns/test", info.getUri());
+		}
+		assertNull(XMLTools.parseXML(new InputSource(new StringReader("<root>"))));
+		assertNotNull(XMLTools.parseXML(new InputSource(new StringReader("<root/>"))));
+	}
+}
@@ -0,0 +1,93 @@
+package org.daisy.dotify.common.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class TemplatesCacheTest {
+
+	private static File createXslt(String text) throws IOException {
+		File f = File.createTempFile("xslt", ".xsl");
+		f.deleteOnExit();
+		writeXslt(f, text);
+		return f;
+	}
+
+	private static void writeXslt(File f, String text) throws IOException {
+		Files.write(f.toPath(), ("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\">" + text + "</xsl:template></xsl:stylesheet>")
+				.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String transform(File xslt, TransformerEnvironment<XMLToolsException> env) throws IOException, XMLToolsException {
+		File input = File.createTempFile("input", ".xml");
+		input.deleteOnExit();
+		Files.write(input.toPath(), "<root/>".getBytes(StandardCharsets.UTF_8));
+		StringWriter result = new StringWriter();
+		XMLTools.transform(new StreamSource(input), new StreamResult(result), new StreamSource(xslt), env);
+		return result.toString();
+	}
+
+	@Test
+	public void testHitsAndMisses() throws IOException, XMLToolsException {
+		File xslt = createXslt("a");
+		TransformerEnvironment<XMLToolsException> env = TransformerEnvironment.builder().templatesCacheSize(2).build();
+		assertEquals("a", transform(xslt, env));
+		assertEquals("a", transform(xslt, env));
+		assertEquals("a", transform(xslt, env));
+		assertEquals(2, env.getTemplatesCacheHits());
+		assertEquals(1, env.getTemplatesCacheMisses());
+	}
+
+	@Test
+	public void testModified() throws IOException, XMLToolsException {
+		File xslt = createXslt("a");
+		TransformerEnvironment<XMLToolsException> env = TransformerEnvironment.builder().templatesCacheSize(2).build();
+		assertEquals("a", transform(xslt, env));
+		long lastModified = xslt.lastModified();
+		writeXslt(xslt, "b");
+		xslt.setLastModified(lastModified+2000);
+		assertEquals("b", transform(xslt, env));
+		assertEquals(0, env.getTemplatesCacheHits());
+		assertEquals(2, env.getTemplatesCacheMisses());
+	}
+
+	@Test
+	public void testEviction() throws IOException, XMLToolsException {
+		File x1 = createXslt("1");
+		File x2 = createXslt("2");
+		File x3 = createXslt("3");
+		TransformerEnvironment<XMLToolsException> env = TransformerEnvironment.builder().templatesCacheSize(2).build();
+		transform(x1, env);
+		transform(x2, env);
+		transform(x1, env);
+		// evicts x2, the least recently used
+		transform(x3, env);
+		assertEquals(1, env.getTemplatesCacheHits());
+		transform(x1, env);
+		assertEquals(2, env.getTemplatesCacheHits());
+		assertEquals("2", transform(x2, env));
+		assertEquals(2, env.getTemplatesCacheHits());
+		assertEquals(4, env.getTemplatesCacheMisses());
+	}
+
+	@Test
+	public void testDisabled() throws IOException, XMLToolsException {
+		File xslt = createXslt("a");
+		TransformerEnvironment<XMLToolsException> env = TransformerEnvironment.builder().build();
+		assertEquals("a", transform(xslt, env));
+		assertEquals("a", transform(xslt, env));
+		assertEquals(0, env.getTemplatesCacheHits());
+		assertEquals(0, env.getTemplatesCacheMisses());
+	}
+}
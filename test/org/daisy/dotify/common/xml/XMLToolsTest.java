@@ -3,6 +3,7 @@ package org.daisy.dotify.common.xml;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -11,7 +12,14 @@ import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 
 import org.daisy.dotify.common.io.FileIO;
@@ -164,6 +172,97 @@ public class XMLToolsTest {
 		return data.getBytes(charset);
 	}
 
+	@Test
+	public void testBatchTransform() throws IOException, XMLToolsException {
+		File xslt = createTempFile("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"root\"/></xsl:template></xsl:stylesheet>");
+		List<Map.Entry<File, File>> batch = new ArrayList<>();
+		for (int i=0; i<20; i++) {
+			batch.add(new SimpleEntry<>(createTempFile("<root>" + i + "</root>"), createTempFile("")));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			XMLTools.transform(batch, xslt, TransformerEnvironment.builder().build(), executor);
+		} finally {
+			executor.shutdown();
+		}
+		int i = 0;
+		for (Map.Entry<File, File> e : batch) {
+			assertEquals(Integer.toString(i++), new String(Files.readAllBytes(e.getValue().toPath()), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testBatchTransformErrors() throws IOException {
+		File xslt = createTempFile("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"root\"/></xsl:template></xsl:stylesheet>");
+		List<Map.Entry<File, File>> batch = new ArrayList<>();
+		batch.add(new SimpleEntry<>(createTempFile("<root>1</root>"), createTempFile("")));
+		batch.add(new SimpleEntry<>(createTempFile("<root>"), createTempFile("")));
+		batch.add(new SimpleEntry<>(createTempFile("<root>3</root>"), createTempFile("")));
+		batch.add(new SimpleEntry<>(createTempFile("<root"), createTempFile("")));
+		try {
+			XMLTools.transform(batch, xslt, TransformerEnvironment.builder().build());
+			fail();
+		} catch (XMLToolsException e) {
+			assertEquals(1, e.getSuppressed().length);
+		}
+		assertEquals("1", new String(Files.readAllBytes(batch.get(0).getValue().toPath()), StandardCharsets.UTF_8));
+		assertEquals("3", new String(Files.readAllBytes(batch.get(2).getValue().toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testBatchTransformSameSource() throws IOException, XMLToolsException {
+		File xslt = createTempFile("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"root\"/></xsl:template></xsl:stylesheet>");
+		File input = createTempFile("<root>1</root>");
+		List<Map.Entry<File, File>> batch = new ArrayList<>();
+		batch.add(new SimpleEntry<>(input, createTempFile("")));
+		batch.add(new SimpleEntry<>(input, createTempFile("")));
+		XMLTools.transform(batch, xslt, TransformerEnvironment.builder().build());
+		for (Map.Entry<File, File> e : batch) {
+			assertEquals("1", new String(Files.readAllBytes(e.getValue().toPath()), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testBatchTransformMissingInput() throws IOException {
+		File xslt = createTempFile("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"root\"/></xsl:template></xsl:stylesheet>");
+		File missing = createTempFile("");
+		assertTrue(missing.delete());
+		List<Map.Entry<File, File>> batch = new ArrayList<>();
+		batch.add(new SimpleEntry<>(createTempFile("<root>1</root>"), createTempFile("")));
+		batch.add(new SimpleEntry<>(missing, createTempFile("")));
+		try {
+			XMLTools.transform(batch, xslt, TransformerEnvironment.builder().build());
+			fail();
+		} catch (XMLToolsException e) {
+			assertEquals(0, e.getSuppressed().length);
+		}
+	}
+
+	@Test
+	public void testBatchTransformCustomThrowable() throws IOException {
+		File xslt = createTempFile("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+				+ "<xsl:output method=\"text\"/><xsl:template match=\"/\"><xsl:value-of select=\"root\"/></xsl:template></xsl:stylesheet>");
+		List<Map.Entry<File, File>> batch = new ArrayList<>();
+		batch.add(new SimpleEntry<>(createTempFile("<root>"), createTempFile("")));
+		try {
+			XMLTools.transform(batch, xslt, TransformerEnvironment.builder().build(IOException::new));
+			fail();
+		} catch (IOException e) {
+			assertFalse(e.getCause() instanceof IOException);
+		}
+	}
+
+	private static File createTempFile(String contents) throws IOException {
+		File f = File.createTempFile("junit", ".tmp");
+		f.deleteOnExit();
+		Files.write(f.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
 	private File getResourceCopy(String path) throws IOException {
 		File f = File.createTempFile("junit", ".tmp");
 		f.deleteOnExit();